@@ -15,11 +15,63 @@ public class AppConfig {
     private Otp otp = new Otp();
     private Admin admin = new Admin();
     private Security security = new Security();
+    private Notification notification = new Notification();
+    private Outbox outbox = new Outbox();
+    private Email email = new Email();
+    private Upload upload = new Upload();
+    private Storage storage = new Storage();
 
     @Data
     public static class Otp {
         private int expirationMinutes = 10;
         private int maxAttempts = 3;
+        private String store = "memory";
+    }
+
+    @Data
+    public static class Notification {
+        private int inboxPageSize = 20;
+        private int inboxMaxPageSize = 100;
+        private int archiveAfterDays = 90;
+        private int archiveBatchSize = 1000;
+        private int coalesceWindowSeconds = 30;
+        private boolean coalesceRows = true;
+    }
+
+    @Data
+    public static class Outbox {
+        private int batchSize = 100;
+        private int leaseSeconds = 60;
+        private int maxAttempts = 8;
+        private long initialBackoffSeconds = 5;
+        private long maxBackoffSeconds = 3600;
+        // Clé AES-256 (base64) des secrets stockés dans les payloads ; dérivée de jwt.secret si absente
+        private String secretKey;
+    }
+
+    @Data
+    public static class Email {
+        private int workerThreads = 2;
+        private int queueCapacity = 1000;
+        private int batchSize = 20;
+    }
+
+    @Data
+    public static class Upload {
+        private long maxTotalSize = 524288000;
+        private long maxChunkSize = 8388608;
+        private int sessionTtlHours = 24;
+        private int maxOpenSessionsPerUser = 5;
+    }
+
+    @Data
+    public static class Storage {
+        // 0 = pas de limite
+        private long buildingQuotaBytes = 10737418240L;
+        private long apartmentQuotaBytes = 1073741824L;
+        private int reconcileBatchSize = 500;
+        private int reconcileFilesPerSecond = 200;
+        private int reconcileGraceMinutes = 60;
     }
 
     @Data
@@ -31,6 +83,24 @@ public class AppConfig {
     @Data
     public static class Security {
         private Cors cors = new Cors();
+        private PasswordHashing passwordHashing = new PasswordHashing();
+        private RateLimit rateLimit = new RateLimit();
+
+        @Data
+        public static class PasswordHashing {
+            private int threads = 4;
+            private int queueCapacity = 64;
+            private long maxWaitMillis = 5000;
+        }
+
+        @Data
+        public static class RateLimit {
+            private int ipCapacity = 30;
+            private int ipRefillPerMinute = 30;
+            private int emailCapacity = 5;
+            private int emailRefillPerMinute = 5;
+        }
+
         @Data
         public static class Cors {
             private String[] allowedOrigins;
@@ -0,0 +1,154 @@
+package be.delomid.oneapp.mschat.mschat.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Pools d'exécution de l'application. Les pools nommés ci-dessous remplacent le pool par
+ * défaut de Spring Boot : les méthodes @Async et les réponses MVC asynchrones disposent donc
+ * chacune d'un pool borné déclaré explicitement, sans quoi Spring créerait un thread par tâche.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig implements AsyncConfigurer, WebMvcConfigurer {
+
+    /**
+     * Pool des méthodes @Async (relais prioritaire de l'outbox, indexation, réconciliation
+     * du stockage). Saturé, l'appelant exécute lui-même la tâche.
+     */
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public ThreadPoolTaskExecutor applicationTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("async-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool des réponses MVC asynchrones (téléchargements ZIP streamés) : séparé du pool @Async
+     * pour que des téléchargements longs ne retardent pas les tâches internes. Saturé, la
+     * requête est refusée.
+     */
+    @Bean(name = "mvcAsyncExecutor")
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(50);
+        executor.setThreadNamePrefix("mvc-async-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return applicationTaskExecutor();
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+    }
+
+    /**
+     * Pool utilisé par le bootstrap de l'application mobile pour exécuter
+     * les sous-requêtes indépendantes en parallèle.
+     */
+    @Bean(name = "bootstrapExecutor")
+    public ThreadPoolTaskExecutor bootstrapExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(32);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("bootstrap-");
+        // Si le pool est saturé, la requête HTTP exécute elle-même la tâche
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setTaskDecorator(securityContextPropagator());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool dédié au rendu des aperçus de documents et des vignettes de photos : borné pour
+     * qu'une rafale d'uploads ne monopolise pas le CPU. Une tâche refusée sera relancée à la
+     * prochaine demande d'aperçu.
+     */
+    @Bean(name = "previewExecutor")
+    public ThreadPoolTaskExecutor previewExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("preview-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool d'indexation plein texte des documents : l'extraction du texte (PDF, ...) se fait
+     * après le commit de l'upload, hors transaction. Une tâche refusée est rattrapée par
+     * l'indexation des documents manquants au démarrage.
+     */
+    @Bean(name = "searchIndexExecutor")
+    public ThreadPoolTaskExecutor searchIndexExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("search-index-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool d'écriture disque des photos reçues en lot (sinistres) : les fichiers sont écrits
+     * en parallèle, avant toute transaction. Saturé, le thread de la requête écrit lui-même.
+     */
+    @Bean(name = "fileIoExecutor")
+    public ThreadPoolTaskExecutor fileIoExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(64);
+        executor.setThreadNamePrefix("file-io-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Propage le contexte de sécurité (et donc le buildingId du JWT) vers les threads du pool.
+     */
+    private TaskDecorator securityContextPropagator() {
+        return runnable -> {
+            SecurityContext context = SecurityContextHolder.getContext();
+            return () -> {
+                SecurityContext previous = SecurityContextHolder.getContext();
+                try {
+                    SecurityContextHolder.setContext(context);
+                    runnable.run();
+                } finally {
+                    SecurityContextHolder.setContext(previous);
+                }
+            };
+        };
+    }
+}
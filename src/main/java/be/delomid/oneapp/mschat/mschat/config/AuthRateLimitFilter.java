@@ -0,0 +1,54 @@
+package be.delomid.oneapp.mschat.mschat.config;
+
+import be.delomid.oneapp.mschat.mschat.service.AuthRateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applique la limite par adresse IP sur /auth/** avant tout traitement (et donc avant BCrypt).
+ * La limite par email est appliquée dans AuthService, une fois le corps de la requête lu.
+ * getRemoteAddr() renvoie l'adresse du client réel : le RemoteIpValve (server.forward-headers-strategy=native)
+ * la réécrit à partir de X-Forwarded-For uniquement si la requête vient d'un proxy de confiance.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+
+    private final AuthRateLimiter authRateLimiter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith("/auth/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long retryAfter = authRateLimiter.tryAcquireForIp(request.getRemoteAddr());
+        if (retryAfter > 0) {
+            log.warn("Auth rate limit exceeded for IP: {}", request.getRemoteAddr());
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write("{\"status\":429,\"error\":\"Too Many Requests\",\"message\":\"Trop de requêtes, veuillez réessayer plus tard\"}");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
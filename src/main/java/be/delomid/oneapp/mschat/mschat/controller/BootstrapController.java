@@ -0,0 +1,30 @@
+package be.delomid.oneapp.mschat.mschat.controller;
+
+import be.delomid.oneapp.mschat.mschat.dto.AppBootstrapDto;
+import be.delomid.oneapp.mschat.mschat.service.BootstrapService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/bootstrap")
+@RequiredArgsConstructor
+@Tag(name = "Bootstrap", description = "Données de démarrage de l'application")
+@SecurityRequirement(name = "Bearer Authentication")
+public class BootstrapController {
+
+    private final BootstrapService bootstrapService;
+
+    @GetMapping
+    @Operation(summary = "Récupérer en un seul appel les données de l'écran d'accueil")
+    public ResponseEntity<AppBootstrapDto> getBootstrap(Authentication authentication) {
+        AppBootstrapDto bootstrap = bootstrapService.getBootstrap(authentication.getName());
+        return ResponseEntity.ok(bootstrap);
+    }
+}
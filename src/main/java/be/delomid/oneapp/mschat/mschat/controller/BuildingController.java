@@ -111,6 +111,14 @@ public class BuildingController {
         return ResponseEntity.ok(photo);
     }
 
+    @PutMapping("/{buildingId}/photos/order")
+    public ResponseEntity<List<BuildingPhotoDto>> reorderPhotos(
+            @PathVariable String buildingId,
+            @RequestBody List<Long> photoIds) {
+        List<BuildingPhotoDto> photos = buildingPhotoService.reorderPhotos(buildingId, photoIds);
+        return ResponseEntity.ok(photos);
+    }
+
     private String getUserId(Authentication authentication) {
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
         return userDetails.getUsername(); // Email, mais on devrait récupérer l'ID
@@ -1,8 +1,10 @@
 package be.delomid.oneapp.mschat.mschat.controller;
 
 import be.delomid.oneapp.mschat.mschat.dto.ClaimDto;
+import be.delomid.oneapp.mschat.mschat.dto.ClaimStatsDto;
 import be.delomid.oneapp.mschat.mschat.dto.CreateClaimRequest;
 import be.delomid.oneapp.mschat.mschat.dto.UpdateClaimStatusRequest;
+import be.delomid.oneapp.mschat.mschat.model.ClaimStatus;
 import be.delomid.oneapp.mschat.mschat.model.MemberRole;
 import be.delomid.oneapp.mschat.mschat.model.ResidentBuilding;
 import be.delomid.oneapp.mschat.mschat.model.UserRole;
@@ -11,11 +13,17 @@ import be.delomid.oneapp.mschat.mschat.service.ClaimService;
 import be.delomid.oneapp.mschat.mschat.util.SecurityContextUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -68,6 +76,48 @@ public class ClaimController {
         }
     }
 
+    @GetMapping("/building/{buildingId}/page")
+    public ResponseEntity<Page<ClaimDto>> getClaimsPageByBuilding(
+            @PathVariable String buildingId,
+            @RequestParam(required = false) ClaimStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @PageableDefault(size = 20) Pageable pageable) {
+        try {
+            String residentId = SecurityContextUtil.getCurrentUserId();
+
+            boolean isAdmin = residentBuildingRepository.findByResidentIdAndBuildingId(residentId, buildingId)
+                    .stream()
+                    .anyMatch(rb -> rb.getRoleInBuilding().equals(UserRole.BUILDING_ADMIN));
+
+            return ResponseEntity.ok(claimService.getClaimsByBuilding(
+                    buildingId, residentId, isAdmin, status, from, to, pageable));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/building/{buildingId}/stats")
+    public ResponseEntity<ClaimStatsDto> getClaimStats(
+            @PathVariable String buildingId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            String residentId = SecurityContextUtil.getCurrentUserId();
+
+            boolean isAdmin = residentBuildingRepository.findByResidentIdAndBuildingId(residentId, buildingId)
+                    .stream()
+                    .anyMatch(rb -> rb.getRoleInBuilding().equals(UserRole.BUILDING_ADMIN));
+            if (!isAdmin) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+
+            return ResponseEntity.ok(claimService.getClaimStats(buildingId, from, to));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/{claimId}")
     public ResponseEntity<ClaimDto> getClaimById(@PathVariable Long claimId) {
         try {
@@ -2,20 +2,34 @@ package be.delomid.oneapp.mschat.mschat.controller;
 
 import be.delomid.oneapp.mschat.mschat.dto.*;
 import be.delomid.oneapp.mschat.mschat.dto.BuildingMembersDto;
+import be.delomid.oneapp.mschat.mschat.service.DocumentPreviewService;
 import be.delomid.oneapp.mschat.mschat.service.DocumentService;
+import be.delomid.oneapp.mschat.mschat.service.FolderArchive;
+import be.delomid.oneapp.mschat.mschat.service.FolderArchiveService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -25,6 +39,7 @@ import java.util.List;
 public class DocumentController {
 
     private final DocumentService documentService;
+    private final FolderArchiveService folderArchiveService;
 
     private String getUserEmail(Authentication authentication) {
         if (authentication == null || authentication.getName() == null) {
@@ -171,18 +186,20 @@ public class DocumentController {
     }
 
     @GetMapping("/{documentId}/download")
-    public ResponseEntity<byte[]> downloadDocument(
+    public ResponseEntity<Resource> downloadDocument(
             @PathVariable Long documentId,
             Authentication authentication) throws IOException {
         try {
             String email = getUserEmail(authentication);
             log.info("Téléchargement du document {} par utilisateur: {}", documentId, email);
-            byte[] fileContent = documentService.downloadDocument(documentId, email);
+            Path filePath = documentService.downloadDocument(documentId, email);
 
+            // Contenu streamé depuis le disque par le convertisseur de ressources
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment")
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(fileContent);
+                    .contentLength(Files.size(filePath))
+                    .body(new FileSystemResource(filePath));
         } catch (IOException e) {
             log.error("Échec du téléchargement du document: {}", e.getMessage());
             throw e;
@@ -192,19 +209,67 @@ public class DocumentController {
         }
     }
 
+    @GetMapping("/folders/{folderId}/download")
+    public ResponseEntity<StreamingResponseBody> downloadFolder(
+            @PathVariable Long folderId,
+            Authentication authentication) {
+        try {
+            String email = getUserEmail(authentication);
+            log.info("Téléchargement du dossier {} par utilisateur: {}", folderId, email);
+            FolderArchive archive = documentService.prepareFolderArchive(folderId, email);
+
+            StreamingResponseBody body = outputStream -> folderArchiveService.write(archive, outputStream);
+
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(archive.filename(), StandardCharsets.UTF_8)
+                            .build()
+                            .toString())
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .body(body);
+        } catch (RuntimeException e) {
+            log.error("Échec du téléchargement du dossier: {}", e.getMessage());
+            throw e;
+        }
+    }
+
     @GetMapping("/{documentId}/preview")
     public ResponseEntity<byte[]> previewDocument(
             @PathVariable Long documentId,
+            WebRequest webRequest,
             Authentication authentication) throws IOException {
         try {
             String email = getUserEmail(authentication);
-            log.info("Aperçu du document {} par utilisateur: {}", documentId, email);
-            byte[] fileContent = documentService.downloadDocument(documentId, email);
+            log.debug("Aperçu du document {} par utilisateur: {}", documentId, email);
+            DocumentPreviewService.Preview preview = documentService.getDocumentPreview(documentId, email);
+
+            if (preview.status() == DocumentPreviewService.Status.UNSUPPORTED) {
+                return ResponseEntity.notFound().build();
+            }
+            if (preview.status() == DocumentPreviewService.Status.PENDING) {
+                return previewPending();
+            }
+
+            String etag = "\"" + documentId + "-" + preview.lastModified() + "\"";
+            if (webRequest.checkNotModified(etag, preview.lastModified())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+
+            byte[] content;
+            try {
+                content = Files.readAllBytes(preview.file());
+            } catch (NoSuchFileException e) {
+                // Évincé du cache entre-temps : sera régénéré à la prochaine demande
+                return previewPending();
+            }
 
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(fileContent);
+                    .eTag(etag)
+                    .lastModified(preview.lastModified())
+                    .cacheControl(CacheControl.maxAge(Duration.ofDays(7)).cachePrivate())
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .body(content);
         } catch (IOException e) {
             log.error("Échec de l'aperçu du document: {}", e.getMessage());
             throw e;
@@ -214,14 +279,22 @@ public class DocumentController {
         }
     }
 
+    private ResponseEntity<byte[]> previewPending() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header(HttpHeaders.RETRY_AFTER, "2")
+                .build();
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<DocumentDto>> searchDocuments(
             @RequestParam String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
             Authentication authentication) {
         try {
             String email = getUserEmail(authentication);
             log.info("Recherche de documents avec la requête: '{}' par utilisateur: {}", query, email);
-            List<DocumentDto> documents = documentService.searchDocuments(query, email);
+            List<DocumentDto> documents = documentService.searchDocuments(query, email, page, size);
             return ResponseEntity.ok(documents);
         } catch (RuntimeException e) {
             log.error("Échec de la recherche de documents: {}", e.getMessage());
@@ -3,6 +3,7 @@ package be.delomid.oneapp.mschat.mschat.controller;
 import be.delomid.oneapp.mschat.mschat.service.FileService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -30,17 +31,17 @@ public class FileController {
     }
 
     @GetMapping("/{fileId}")
-    public ResponseEntity<byte[]> getFile(@PathVariable String fileId) {
+    public ResponseEntity<Resource> getFile(@PathVariable String fileId) {
         return fileService.getFile(fileId);
     }
 
     @GetMapping("/download/{fileId}")
-    public ResponseEntity<byte[]> downloadFile(@PathVariable String fileId) {
+    public ResponseEntity<Resource> downloadFile(@PathVariable String fileId) {
         return fileService.downloadFile(fileId);
     }
 
     @GetMapping("/profiles/{filename}")
-    public ResponseEntity<byte[]> getProfilePicture(@PathVariable String filename) {
+    public ResponseEntity<Resource> getProfilePicture(@PathVariable String filename) {
         return fileService.getProfilePicture(filename);
     }
 
@@ -1,6 +1,7 @@
 package be.delomid.oneapp.mschat.mschat.controller;
 
 import be.delomid.oneapp.mschat.mschat.dto.NotificationDto;
+import be.delomid.oneapp.mschat.mschat.dto.NotificationPageDto;
 import be.delomid.oneapp.mschat.mschat.service.NotificationService;
 import be.delomid.oneapp.mschat.mschat.util.SecurityContextUtil;
 import io.swagger.v3.oas.annotations.Operation;
@@ -8,9 +9,11 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -46,6 +49,20 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
 
+    @GetMapping("/inbox")
+    @Operation(summary = "Récupérer les notifications page par page (pagination par curseur)")
+    public ResponseEntity<NotificationPageDto> getInbox(
+            @RequestParam(required = false) String buildingId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) Integer size) {
+        String residentId = SecurityContextUtil.getCurrentUserId();
+        log.debug("Getting inbox page for user: {} and building: {} before {}/{}", residentId, buildingId, before, beforeId);
+
+        NotificationPageDto page = notificationService.getInbox(residentId, buildingId, before, beforeId, size);
+        return ResponseEntity.ok(page);
+    }
+
     @GetMapping("/unread-count")
     @Operation(summary = "Récupérer le nombre de notifications non lues")
     public ResponseEntity<Map<String, Long>> getUnreadCount() {
@@ -0,0 +1,75 @@
+package be.delomid.oneapp.mschat.mschat.controller;
+
+import be.delomid.oneapp.mschat.mschat.dto.InitUploadRequest;
+import be.delomid.oneapp.mschat.mschat.dto.UploadSessionDto;
+import be.delomid.oneapp.mschat.mschat.service.ChunkedUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * Uploads fragmentés : POST pour initialiser, PUT d'un fragment brut à un offset,
+ * GET pour connaître l'offset de reprise, POST /complete pour finaliser.
+ */
+@RestController
+@RequestMapping("/uploads")
+@RequiredArgsConstructor
+@Slf4j
+public class UploadController {
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    private String getUserEmail(Authentication authentication) {
+        if (authentication == null || authentication.getName() == null) {
+            throw new RuntimeException("Authentication requise");
+        }
+        return authentication.getName();
+    }
+
+    @PostMapping
+    public ResponseEntity<UploadSessionDto> initUpload(
+            @Valid @RequestBody InitUploadRequest request,
+            Authentication authentication) {
+        return ResponseEntity.ok(chunkedUploadService.initUpload(request, getUserEmail(authentication)));
+    }
+
+    @PutMapping(value = "/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSessionDto> appendChunk(
+            @PathVariable String uploadId,
+            @RequestParam long offset,
+            HttpServletRequest request,
+            Authentication authentication) throws IOException {
+        // Le corps est lu en flux directement depuis la requête, sans passer par le multipart
+        return ResponseEntity.ok(chunkedUploadService.appendChunk(
+                uploadId, offset, request.getInputStream(), getUserEmail(authentication)));
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadSessionDto> getStatus(
+            @PathVariable String uploadId,
+            Authentication authentication) {
+        return ResponseEntity.ok(chunkedUploadService.getStatus(uploadId, getUserEmail(authentication)));
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<Object> completeUpload(
+            @PathVariable String uploadId,
+            Authentication authentication) {
+        return ResponseEntity.ok(chunkedUploadService.completeUpload(uploadId, getUserEmail(authentication)));
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abortUpload(
+            @PathVariable String uploadId,
+            Authentication authentication) {
+        chunkedUploadService.abortUpload(uploadId, getUserEmail(authentication));
+        return ResponseEntity.noContent().build();
+    }
+}
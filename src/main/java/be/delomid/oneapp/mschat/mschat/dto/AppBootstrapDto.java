@@ -0,0 +1,19 @@
+package be.delomid.oneapp.mschat.mschat.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class AppBootstrapDto {
+    private String userId;
+    private String buildingId;
+    private List<BuildingSelectionDto> buildings;
+    private ApartmentDto currentApartment;
+    private List<ChannelDto> channels;
+    private Long unreadNotifications;
+    private Long unreadNotificationsForBuilding;
+    private List<VoteDto> activeVotes;
+}
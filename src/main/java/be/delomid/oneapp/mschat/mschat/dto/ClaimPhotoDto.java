@@ -5,6 +5,7 @@ import java.time.LocalDateTime;
 public class ClaimPhotoDto {
     private Long id;
     private String photoUrl;
+    private String thumbnailUrl;
     private Integer photoOrder;
     private LocalDateTime createdAt;
 
@@ -25,6 +26,14 @@ public class ClaimPhotoDto {
         this.photoUrl = photoUrl;
     }
 
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
     public Integer getPhotoOrder() {
         return photoOrder;
     }
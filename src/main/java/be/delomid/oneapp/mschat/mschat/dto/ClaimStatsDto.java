@@ -0,0 +1,40 @@
+package be.delomid.oneapp.mschat.mschat.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tableau de bord des sinistres d'un immeuble, calculé à partir des tables d'agrégats.
+ */
+@Data
+@Builder
+public class ClaimStatsDto {
+    private String buildingId;
+    private Long totalClaims;
+    private Map<String, Long> byStatus;
+    private Map<String, Long> byType;
+    private List<MonthStats> byMonth;
+    private Long resolvedClaims;
+    private Double averageResolutionHours;
+    private List<ResolutionBucket> resolutionHistogram;
+
+    @Data
+    @Builder
+    public static class MonthStats {
+        private LocalDate month;
+        private Long total;
+        private Map<String, Long> byStatus;
+    }
+
+    @Data
+    @Builder
+    public static class ResolutionBucket {
+        // Borne supérieure exclue, null pour la dernière tranche
+        private Long upToHours;
+        private Long count;
+    }
+}
@@ -25,6 +25,7 @@ public class FolderDto {
     private LocalDateTime createdAt;
     private Integer subFolderCount;
     private Integer documentCount;
+    private Long totalBytes;
     private List<FolderDto> subFolders;
     private List<FolderPermissionDto> permissions;
     private Boolean canUpload;
@@ -0,0 +1,38 @@
+package be.delomid.oneapp.mschat.mschat.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InitUploadRequest {
+    @NotBlank(message = "Target is required")
+    private String target;
+
+    @NotBlank(message = "Filename is required")
+    private String filename;
+
+    private String mimeType;
+
+    @NotNull(message = "Total size is required")
+    @Positive(message = "Total size must be positive")
+    private Long totalSize;
+
+    // Dossier de destination (target = DOCUMENT)
+    private Long folderId;
+
+    private String description;
+
+    // IMAGE, AUDIO ou FILE (target = ATTACHMENT)
+    private String fileType;
+
+    // SHA-256 hexadécimal attendu, vérifié à la finalisation s'il est fourni
+    @Pattern(regexp = "^[0-9a-fA-F]{64}$", message = "Checksum must be a SHA-256 hex digest")
+    private String checksum;
+}
@@ -25,4 +25,12 @@ public class NotificationDto {
     private Boolean isRead;
     private LocalDateTime createdAt;
     private LocalDateTime readAt;
+
+    // Utilisé par les projections JPQL de NotificationRepository
+    public NotificationDto(Long id, String residentId, String buildingId, String title, String body, String type,
+                           Long channelId, Long voteId, Long documentId, Boolean isRead,
+                           LocalDateTime createdAt, LocalDateTime readAt) {
+        this(id, residentId, buildingId, title, body, type, channelId, voteId, documentId, null,
+                isRead, createdAt, readAt);
+    }
 }
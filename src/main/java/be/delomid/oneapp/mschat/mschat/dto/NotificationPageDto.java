@@ -0,0 +1,17 @@
+package be.delomid.oneapp.mschat.mschat.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+public class NotificationPageDto {
+    private List<NotificationDto> notifications;
+    private Boolean hasMore;
+    // Curseur à renvoyer (before / beforeId) pour obtenir la page suivante
+    private LocalDateTime nextBefore;
+    private Long nextBeforeId;
+}
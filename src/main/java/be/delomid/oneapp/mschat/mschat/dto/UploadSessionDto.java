@@ -0,0 +1,22 @@
+package be.delomid.oneapp.mschat.mschat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDto {
+    private String uploadId;
+    private String target;
+    private String filename;
+    private Long totalSize;
+    private Long receivedBytes;
+    private Long maxChunkSize;
+    private LocalDateTime expiresAt;
+}
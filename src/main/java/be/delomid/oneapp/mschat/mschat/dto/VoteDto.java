@@ -24,4 +24,5 @@ public class VoteDto {
     private LocalDateTime updatedAt;
     private Boolean hasVoted;
     private Long totalVotes;
+    private Long voterCount;
 }
\ No newline at end of file
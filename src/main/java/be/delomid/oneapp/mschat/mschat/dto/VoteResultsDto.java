@@ -0,0 +1,19 @@
+package be.delomid.oneapp.mschat.mschat.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Résultats d'un vote poussés sur /topic/vote/{id}.
+ */
+@Data
+@Builder
+public class VoteResultsDto {
+    private Long voteId;
+    private Boolean isActive;
+    private Long totalVotes;
+    private Long voterCount;
+    private List<VoteOptionDto> options;
+}
@@ -0,0 +1,8 @@
+package be.delomid.oneapp.mschat.mschat.exception;
+
+public class StorageQuotaExceededException extends RuntimeException {
+
+    public StorageQuotaExceededException(String message) {
+        super(message);
+    }
+}
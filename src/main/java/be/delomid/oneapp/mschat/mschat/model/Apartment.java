@@ -56,6 +56,11 @@ public class Apartment {
     @JoinColumn(name = "resident_id")
     private Resident resident;
 
+    // Incrémentée à chaque modification des détails (sections, photos) ; invalide le cache de lecture
+    @Builder.Default
+    @Column(name = "details_version", insertable = false, updatable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long detailsVersion = 0L;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -6,7 +6,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "claims")
+@Table(
+    name = "claims",
+    indexes = @Index(
+        name = "idx_claims_building_status_created",
+        columnList = "building_id, status, created_at DESC"
+    )
+)
 public class Claim {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -49,6 +55,10 @@ public class Claim {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
+    // Premier passage à RESOLVED ou CLOSED ; remis à null si le sinistre est rouvert
+    @Column(name = "resolved_at")
+    private LocalDateTime resolvedAt;
+
     @OneToMany(mappedBy = "claim", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ClaimAffectedApartment> affectedApartments = new ArrayList<>();
 
@@ -171,6 +181,14 @@ public class Claim {
         this.updatedAt = updatedAt;
     }
 
+    public LocalDateTime getResolvedAt() {
+        return resolvedAt;
+    }
+
+    public void setResolvedAt(LocalDateTime resolvedAt) {
+        this.resolvedAt = resolvedAt;
+    }
+
     public List<ClaimAffectedApartment> getAffectedApartments() {
         return affectedApartments;
     }
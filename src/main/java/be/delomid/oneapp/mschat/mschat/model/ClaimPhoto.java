@@ -17,6 +17,9 @@ public class ClaimPhoto {
     @Column(name = "photo_url", nullable = false, columnDefinition = "TEXT")
     private String photoUrl;
 
+    @Column(name = "thumbnail_url", columnDefinition = "TEXT")
+    private String thumbnailUrl;
+
     @Column(name = "photo_order", nullable = false)
     private Integer photoOrder = 0;
 
@@ -53,6 +56,14 @@ public class ClaimPhoto {
         this.photoUrl = photoUrl;
     }
 
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
     public Integer getPhotoOrder() {
         return photoOrder;
     }
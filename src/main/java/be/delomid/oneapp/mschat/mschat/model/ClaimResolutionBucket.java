@@ -0,0 +1,45 @@
+package be.delomid.oneapp.mschat.mschat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Histogramme des délais de résolution des sinistres d'un immeuble : nombre de sinistres
+ * résolus et durée cumulée par tranche, d'où se déduit la durée moyenne sans relire claims.
+ */
+@Entity
+@Table(
+    name = "claim_resolution_buckets",
+    uniqueConstraints = @UniqueConstraint(
+        name = "uk_claim_resolution_bucket",
+        columnNames = {"building_id", "bucket"}
+    )
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaimResolutionBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "building_id", nullable = false)
+    private String buildingId;
+
+    // Indice de la tranche, voir ClaimStatsService
+    @Column(nullable = false)
+    private Integer bucket;
+
+    @Builder.Default
+    @Column(name = "claim_count", nullable = false)
+    private Long claimCount = 0L;
+
+    @Builder.Default
+    @Column(name = "total_seconds", nullable = false)
+    private Long totalSeconds = 0L;
+}
@@ -0,0 +1,52 @@
+package be.delomid.oneapp.mschat.mschat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Nombre de sinistres par (immeuble, mois de création, statut, type), maintenu à chaque
+ * création / changement de statut / suppression pour éviter de relire la table claims.
+ * Un sinistre à plusieurs types compte une fois par type, et une fois sous {@code ALL_TYPES}.
+ */
+@Entity
+@Table(
+    name = "claim_stats_counters",
+    uniqueConstraints = @UniqueConstraint(
+        name = "uk_claim_stats_counter",
+        columnNames = {"building_id", "month", "status", "claim_type"}
+    )
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaimStatsCounter {
+
+    public static final String ALL_TYPES = "*";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "building_id", nullable = false)
+    private String buildingId;
+
+    // Premier jour du mois de création
+    @Column(nullable = false)
+    private LocalDate month;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "claim_type", nullable = false, length = 50)
+    private String claimType;
+
+    @Builder.Default
+    @Column(name = "claim_count", nullable = false)
+    private Long claimCount = 0L;
+}
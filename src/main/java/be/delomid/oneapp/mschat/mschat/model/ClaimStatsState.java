@@ -0,0 +1,36 @@
+package be.delomid.oneapp.mschat.mschat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * État de l'initialisation des agrégats des sinistres (ligne unique), partagé par toutes les
+ * instances. Les sinistres ]backfillCursor, backfillMaxId] restent à relire ; le curseur avance
+ * dans la transaction de chaque lot, si bien qu'une initialisation interrompue reprend au dernier
+ * lot validé. La date de fin n'est écrite qu'après le dernier lot.
+ */
+@Entity
+@Table(name = "claim_stats_state")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaimStatsState {
+
+    public static final int SINGLETON_ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "backfill_completed_at")
+    private LocalDateTime backfillCompletedAt;
+
+    @Column(name = "backfill_cursor")
+    private Long backfillCursor;
+
+    @Column(name = "backfill_max_id")
+    private Long backfillMaxId;
+}
@@ -0,0 +1,40 @@
+package be.delomid.oneapp.mschat.mschat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Index plein texte d'un document (nom, description et texte extrait).
+ * Le tsvector est écrit uniquement par requête native (DocumentSearchRepository).
+ */
+@Entity
+@Table(name = "document_search_index")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentSearchEntry {
+
+    @Id
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @MapsId
+    @JoinColumn(name = "document_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Document document;
+
+    @Column(name = "search_vector", columnDefinition = "tsvector", insertable = false, updatable = false)
+    private String searchVector;
+
+    @Column(name = "indexed_at")
+    private LocalDateTime indexedAt;
+}
@@ -12,7 +12,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "folders")
+@Table(name = "folders", indexes = {
+    @Index(name = "idx_folders_tree_path", columnList = "tree_path")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -72,4 +74,27 @@ public class Folder {
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
+
+    // Incrémentée à chaque modification des permissions ; permet à l'index d'ACL de détecter une entrée périmée
+    @Builder.Default
+    @Column(name = "acl_version", insertable = false, updatable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long aclVersion = 0L;
+
+    // Chemin matérialisé des ids ("/12/45/78/") : sous-arbre = tree_path LIKE '/12/%'.
+    // Colonnes maintenues uniquement par requêtes (FolderHierarchyService), jamais par dirty checking.
+    @Column(name = "tree_path", length = 1024, insertable = false, updatable = false)
+    private String treePath;
+
+    @Builder.Default
+    @Column(name = "subfolder_count", updatable = false)
+    private Integer subFolderCount = 0;
+
+    @Builder.Default
+    @Column(name = "document_count", updatable = false)
+    private Integer documentCount = 0;
+
+    // Taille cumulée des documents du sous-arbre
+    @Builder.Default
+    @Column(name = "total_bytes", updatable = false)
+    private Long totalBytes = 0L;
 }
@@ -9,7 +9,19 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications")
+@Table(
+    name = "notifications",
+    indexes = {
+        @Index(
+            name = "idx_notifications_inbox",
+            columnList = "resident_id, building_id, created_at DESC, id DESC"
+        ),
+        @Index(
+            name = "idx_notifications_inbox_all_buildings",
+            columnList = "resident_id, created_at DESC, id DESC"
+        )
+    }
+)
 @Data
 @Builder
 @NoArgsConstructor
@@ -50,7 +62,7 @@ public class Notification {
     @Column(name = "is_read", nullable = false)
     private Boolean isRead = false;
 
-    @Column(name = "created_at", nullable = false)
+    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "read_at")
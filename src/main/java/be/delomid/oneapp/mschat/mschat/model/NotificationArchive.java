@@ -0,0 +1,61 @@
+package be.delomid.oneapp.mschat.mschat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Notifications lues et anciennes, déplacées hors de la table principale
+ * par {@link be.delomid.oneapp.mschat.mschat.service.NotificationArchiveService}.
+ */
+@Entity
+@Table(
+    name = "notifications_archive",
+    indexes = @Index(name = "idx_notifications_archive_resident", columnList = "resident_id, created_at DESC")
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationArchive {
+
+    @Id
+    private Long id;
+
+    @Column(name = "resident_id", nullable = false)
+    private String residentId;
+
+    @Column(name = "building_id", nullable = false)
+    private String buildingId;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String body;
+
+    @Column(nullable = false, length = 50)
+    private String type;
+
+    @Column(name = "channel_id")
+    private Long channelId;
+
+    @Column(name = "vote_id")
+    private Long voteId;
+
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "read_at")
+    private LocalDateTime readAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,45 @@
+package be.delomid.oneapp.mschat.mschat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Nombre de notifications non lues par (résident, immeuble), maintenu à chaque
+ * création / lecture de notification pour éviter un COUNT sur la table notifications.
+ */
+@Entity
+@Table(
+    name = "notification_unread_counters",
+    uniqueConstraints = @UniqueConstraint(
+        name = "uk_notification_unread_counter",
+        columnNames = {"resident_id", "building_id"}
+    )
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationUnreadCounter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "resident_id", nullable = false)
+    private String residentId;
+
+    @Column(name = "building_id", nullable = false)
+    private String buildingId;
+
+    @Builder.Default
+    @Column(name = "unread_count", nullable = false)
+    private Long unreadCount = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
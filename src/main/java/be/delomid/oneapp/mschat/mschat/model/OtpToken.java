@@ -31,6 +31,10 @@ public class OtpToken {
     @Column(name = "is_used")
     private Boolean isUsed = false;
     
+    @Builder.Default
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+    
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
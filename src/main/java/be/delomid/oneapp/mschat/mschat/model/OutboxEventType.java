@@ -0,0 +1,9 @@
+package be.delomid.oneapp.mschat.mschat.model;
+
+public enum OutboxEventType {
+    PUSH_NOTIFICATION,
+    WEBSOCKET_TOPIC,
+    WEBSOCKET_USER,
+    ACCOUNT_STATUS_EMAIL,
+    WELCOME_EMAIL
+}
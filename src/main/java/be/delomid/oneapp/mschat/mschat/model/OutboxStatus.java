@@ -0,0 +1,7 @@
+package be.delomid.oneapp.mschat.mschat.model;
+
+public enum OutboxStatus {
+    PENDING,
+    PROCESSING,
+    FAILED
+}
@@ -0,0 +1,52 @@
+package be.delomid.oneapp.mschat.mschat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Espace disque consommé par un immeuble ou un appartement (documents et fichiers uploadés),
+ * maintenu à chaque upload / suppression et recalculé périodiquement par la réconciliation.
+ */
+@Entity
+@Table(
+    name = "storage_usage",
+    uniqueConstraints = @UniqueConstraint(
+        name = "uk_storage_usage_scope",
+        columnNames = {"scope_type", "scope_id"}
+    )
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageUsage {
+
+    public static final String BUILDING = "BUILDING";
+    public static final String APARTMENT = "APARTMENT";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "scope_type", nullable = false, length = 20)
+    private String scopeType;
+
+    @Column(name = "scope_id", nullable = false)
+    private String scopeId;
+
+    @Builder.Default
+    @Column(name = "used_bytes", nullable = false)
+    private Long usedBytes = 0L;
+
+    @Builder.Default
+    @Column(name = "file_count", nullable = false)
+    private Long fileCount = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,46 @@
+package be.delomid.oneapp.mschat.mschat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registre des fichiers écrits dans le répertoire d'uploads : le nom seul ne permet pas
+ * de savoir à quel immeuble ou appartement imputer l'espace lors de la suppression.
+ */
+@Entity
+@Table(name = "stored_files", indexes = {
+        @Index(name = "idx_stored_files_building", columnList = "building_id"),
+        @Index(name = "idx_stored_files_apartment", columnList = "apartment_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StoredFile {
+
+    @Id
+    @Column(name = "file_id")
+    private String fileId;
+
+    @Column(name = "building_id")
+    private String buildingId;
+
+    @Column(name = "apartment_id")
+    private String apartmentId;
+
+    @Column(name = "uploaded_by")
+    private String uploadedBy;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
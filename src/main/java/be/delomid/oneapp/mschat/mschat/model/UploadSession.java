@@ -0,0 +1,76 @@
+package be.delomid.oneapp.mschat.mschat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "upload_sessions", indexes = {
+        @Index(name = "idx_upload_sessions_updated_at", columnList = "updated_at"),
+        @Index(name = "idx_upload_sessions_uploaded_by", columnList = "uploaded_by")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSession {
+
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Column(name = "uploaded_by", nullable = false)
+    private String uploadedBy;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "target", nullable = false)
+    private UploadTarget target;
+
+    @Column(name = "folder_id")
+    private Long folderId;
+
+    @Column(name = "building_id")
+    private String buildingId;
+
+    @Column(name = "file_type")
+    private String fileType;
+
+    @Column(name = "original_filename", nullable = false)
+    private String originalFilename;
+
+    @Column(name = "mime_type")
+    private String mimeType;
+
+    @Column(name = "description", columnDefinition = "TEXT")
+    private String description;
+
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+
+    // Périmètre de quota auquel la session est imputée tant qu'elle est ouverte (fichier de staging)
+    @Column(name = "quota_building_id")
+    private String quotaBuildingId;
+
+    @Column(name = "quota_apartment_id")
+    private String quotaApartmentId;
+
+    // Mis à jour uniquement par UploadSessionRepository.advanceReceivedBytes (compare-and-set)
+    @Builder.Default
+    @Column(name = "received_bytes", nullable = false, updatable = false)
+    private Long receivedBytes = 0L;
+
+    @Column(name = "expected_checksum", length = 64)
+    private String expectedChecksum;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
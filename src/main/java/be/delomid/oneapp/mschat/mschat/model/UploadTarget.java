@@ -0,0 +1,6 @@
+package be.delomid.oneapp.mschat.mschat.model;
+
+public enum UploadTarget {
+    DOCUMENT,
+    ATTACHMENT
+}
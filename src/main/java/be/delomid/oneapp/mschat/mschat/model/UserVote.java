@@ -12,7 +12,13 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_votes")
+@Table(
+    name = "user_votes",
+    uniqueConstraints = @UniqueConstraint(
+        name = "uk_user_votes_vote_user_option",
+        columnNames = {"vote_id", "user_id", "vote_option_id"}
+    )
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
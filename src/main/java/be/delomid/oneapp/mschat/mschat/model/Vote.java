@@ -57,6 +57,15 @@ public class Vote {
     @Column(name = "end_date")
     private LocalDateTime endDate;
 
+    // Compteurs maintenus par VoteTallyService (incréments SQL) : jamais écrasés par une sauvegarde de l'entité
+    @Builder.Default
+    @Column(name = "total_votes", updatable = false)
+    private Long totalVotes = 0L;
+
+    @Builder.Default
+    @Column(name = "voter_count", updatable = false)
+    private Long voterCount = 0L;
+
     @OneToMany(mappedBy = "vote", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @Builder.Default
     private Set<VoteOption> options = new HashSet<>();
@@ -0,0 +1,43 @@
+package be.delomid.oneapp.mschat.mschat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Une ligne par votant et par vote : la contrainte unique garantit qu'un résident ne
+ * dépose qu'un seul bulletin, même lorsque deux soumissions arrivent en même temps.
+ */
+@Entity
+@Table(
+    name = "vote_ballots",
+    uniqueConstraints = @UniqueConstraint(
+        name = "uk_vote_ballots_vote_user",
+        columnNames = {"vote_id", "user_id"}
+    )
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VoteBallot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "vote_id", nullable = false)
+    private Long voteId;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @CreationTimestamp
+    @Column(name = "voted_at", nullable = false, updatable = false)
+    private LocalDateTime votedAt;
+}
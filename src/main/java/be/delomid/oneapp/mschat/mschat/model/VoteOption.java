@@ -32,6 +32,10 @@ public class VoteOption {
     @JoinColumn(name = "vote_id", nullable = false)
     private Vote vote;
 
+    @Builder.Default
+    @Column(name = "vote_count", updatable = false)
+    private Long voteCount = 0L;
+
     @OneToMany(mappedBy = "voteOption", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @Builder.Default
     private Set<UserVote> userVotes = new HashSet<>();
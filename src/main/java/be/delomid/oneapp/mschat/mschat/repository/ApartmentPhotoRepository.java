@@ -2,12 +2,29 @@ package be.delomid.oneapp.mschat.mschat.repository;
 
 import be.delomid.oneapp.mschat.mschat.model.ApartmentPhoto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface ApartmentPhotoRepository extends JpaRepository<ApartmentPhoto, Long> {
+public interface ApartmentPhotoRepository extends JpaRepository<ApartmentPhoto, Long>, PhotoOrderRepository {
     List<ApartmentPhoto> findByApartmentIdOrderByDisplayOrderAsc(String apartmentId);
     void deleteByApartmentId(String apartmentId);
+
+    @Override
+    @Query("SELECT COUNT(p) FROM ApartmentPhoto p WHERE p.apartmentId = :ownerId AND p.id IN :photoIds")
+    long countPhotosOwnedBy(@Param("ownerId") String ownerId, @Param("photoIds") Collection<Long> photoIds);
+
+    @Override
+    @Modifying
+    @Query(value = "UPDATE apartment_photos " +
+            "SET display_order = array_position(CAST(string_to_array(:orderedIds, ',') AS BIGINT[]), id) - 1 " +
+            "WHERE apartment_id = :ownerId AND id IN (:photoIds)",
+            nativeQuery = true)
+    int applyPhotoOrder(@Param("ownerId") String ownerId, @Param("photoIds") Collection<Long> photoIds,
+                        @Param("orderedIds") String orderedIds);
 }
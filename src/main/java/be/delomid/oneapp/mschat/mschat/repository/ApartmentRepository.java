@@ -1,9 +1,15 @@
 package be.delomid.oneapp.mschat.mschat.repository;
 
 import be.delomid.oneapp.mschat.mschat.model.Apartment;
+import be.delomid.oneapp.mschat.mschat.model.ApartmentEnergie;
+import be.delomid.oneapp.mschat.mschat.model.ApartmentExterior;
+import be.delomid.oneapp.mschat.mschat.model.ApartmentGeneralInfo;
+import be.delomid.oneapp.mschat.mschat.model.ApartmentInstallations;
+import be.delomid.oneapp.mschat.mschat.model.ApartmentInterior;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -32,4 +38,38 @@ public interface ApartmentRepository extends JpaRepository<Apartment, String> {
 
     @Query("SELECT a FROM Apartment a WHERE a.apartmentFloor = :floor AND a.building.buildingId = :buildingId")
     List<Apartment> findByFloorAndBuildingId(@Param("floor") Integer floor, @Param("buildingId") String buildingId);
-}
\ No newline at end of file
+
+    // Immeuble et version des détails, suffisants pour le contrôle d'accès et la validation du cache
+    @Query("SELECT a.building.buildingId AS buildingId, a.detailsVersion AS detailsVersion " +
+           "FROM Apartment a WHERE a.idApartment = :apartmentId")
+    Optional<DetailsVersionView> findDetailsVersion(@Param("apartmentId") String apartmentId);
+
+    // Appartement et ses cinq sections de détails en une seule requête
+    @Query("SELECT a AS apartment, g AS generalInfo, i AS interior, e AS exterior, inst AS installations, en AS energie " +
+           "FROM Apartment a " +
+           "LEFT JOIN ApartmentGeneralInfo g ON g.apartmentId = a.idApartment " +
+           "LEFT JOIN ApartmentInterior i ON i.apartmentId = a.idApartment " +
+           "LEFT JOIN ApartmentExterior e ON e.apartmentId = a.idApartment " +
+           "LEFT JOIN ApartmentInstallations inst ON inst.apartmentId = a.idApartment " +
+           "LEFT JOIN ApartmentEnergie en ON en.apartmentId = a.idApartment " +
+           "WHERE a.idApartment = :apartmentId")
+    Optional<DetailsView> findDetails(@Param("apartmentId") String apartmentId);
+
+    @Modifying
+    @Query("UPDATE Apartment a SET a.detailsVersion = COALESCE(a.detailsVersion, 0) + 1 WHERE a.idApartment = :apartmentId")
+    int incrementDetailsVersion(@Param("apartmentId") String apartmentId);
+
+    interface DetailsVersionView {
+        String getBuildingId();
+        Long getDetailsVersion();
+    }
+
+    interface DetailsView {
+        Apartment getApartment();
+        ApartmentGeneralInfo getGeneralInfo();
+        ApartmentInterior getInterior();
+        ApartmentExterior getExterior();
+        ApartmentInstallations getInstallations();
+        ApartmentEnergie getEnergie();
+    }
+}
@@ -2,12 +2,30 @@ package be.delomid.oneapp.mschat.mschat.repository;
 
 import be.delomid.oneapp.mschat.mschat.model.BuildingPhoto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface BuildingPhotoRepository extends JpaRepository<BuildingPhoto, Long> {
+public interface BuildingPhotoRepository extends JpaRepository<BuildingPhoto, Long>, PhotoOrderRepository {
     List<BuildingPhoto> findByBuildingBuildingIdOrderByPhotoOrderAsc(String buildingId);
     void deleteByBuildingBuildingId(String buildingId);
+
+    @Override
+    @Query("SELECT COUNT(p) FROM BuildingPhoto p WHERE p.building.buildingId = :ownerId AND p.id IN :photoIds")
+    long countPhotosOwnedBy(@Param("ownerId") String ownerId, @Param("photoIds") Collection<Long> photoIds);
+
+    @Override
+    @Modifying
+    @Query(value = "UPDATE building_photos " +
+            "SET photo_order = array_position(CAST(string_to_array(:orderedIds, ',') AS BIGINT[]), id) - 1, " +
+            "updated_at = CURRENT_TIMESTAMP " +
+            "WHERE building_id = :ownerId AND id IN (:photoIds)",
+            nativeQuery = true)
+    int applyPhotoOrder(@Param("ownerId") String ownerId, @Param("photoIds") Collection<Long> photoIds,
+                        @Param("orderedIds") String orderedIds);
 }
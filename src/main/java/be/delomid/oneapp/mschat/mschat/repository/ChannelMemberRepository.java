@@ -3,10 +3,12 @@ package be.delomid.oneapp.mschat.mschat.repository;
   import be.delomid.oneapp.mschat.mschat.model.ChannelMember;
   import be.delomid.oneapp.mschat.mschat.model.MemberRole;
   import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,4 +26,17 @@ public interface ChannelMemberRepository extends JpaRepository<ChannelMember, Lo
 
     @Query("SELECT COUNT(cm) FROM ChannelMember cm WHERE cm.channel.id = :channelId AND cm.isActive = true")
     Long countActiveByChannelId(@Param("channelId") Long channelId);
+
+    /**
+     * Ajoute en une instruction les résidents donnés ; ceux déjà membres du canal sont ignorés
+     * (uk_channel_member_user).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO channel_members (channel_id, user_id, role, can_write, is_active, joined_at) " +
+            "SELECT :channelId, r.id_users, :role, true, true, CURRENT_TIMESTAMP FROM residents r " +
+            "WHERE r.id_users IN (:userIds) " +
+            "ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertMembers(@Param("channelId") Long channelId, @Param("userIds") Collection<String> userIds,
+                      @Param("role") String role);
 }
\ No newline at end of file
@@ -2,8 +2,11 @@ package be.delomid.oneapp.mschat.mschat.repository;
 
 import be.delomid.oneapp.mschat.mschat.model.ClaimAffectedApartment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,4 +15,14 @@ public interface ClaimAffectedApartmentRepository extends JpaRepository<ClaimAff
     List<ClaimAffectedApartment> findByClaimId(Long claimId);
 
     void deleteByClaimId(Long claimId);
+
+    // Appartements touchés de plusieurs sinistres, sans charger les appartements
+    @Query("SELECT caa.claim.id AS claimId, caa.apartment.idApartment AS apartmentId " +
+           "FROM ClaimAffectedApartment caa WHERE caa.claim.id IN :claimIds")
+    List<AffectedApartmentView> findApartmentIdsByClaimIds(@Param("claimIds") Collection<Long> claimIds);
+
+    interface AffectedApartmentView {
+        Long getClaimId();
+        String getApartmentId();
+    }
 }
@@ -2,8 +2,13 @@ package be.delomid.oneapp.mschat.mschat.repository;
 
 import be.delomid.oneapp.mschat.mschat.model.ClaimPhoto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -11,5 +16,13 @@ public interface ClaimPhotoRepository extends JpaRepository<ClaimPhoto, Long> {
 
     List<ClaimPhoto> findByClaimIdOrderByPhotoOrderAsc(Long claimId);
 
+    @Query("SELECT p FROM ClaimPhoto p WHERE p.claim.id IN :claimIds ORDER BY p.claim.id, p.photoOrder")
+    List<ClaimPhoto> findByClaimIds(@Param("claimIds") Collection<Long> claimIds);
+
     void deleteByClaimId(Long claimId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ClaimPhoto p SET p.thumbnailUrl = :thumbnailUrl WHERE p.id = :photoId")
+    int updateThumbnailUrl(@Param("photoId") Long photoId, @Param("thumbnailUrl") String thumbnailUrl);
 }
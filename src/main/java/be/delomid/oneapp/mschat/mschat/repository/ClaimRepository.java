@@ -2,19 +2,27 @@ package be.delomid.oneapp.mschat.mschat.repository;
 
 import be.delomid.oneapp.mschat.mschat.model.Claim;
 import be.delomid.oneapp.mschat.mschat.model.ClaimStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ClaimRepository extends JpaRepository<Claim, Long> {
 
+    @EntityGraph(attributePaths = {"reporter", "apartment", "building"})
     List<Claim> findByBuilding_BuildingIdOrderByCreatedAtDesc(String buildingId);
 
 
+    @EntityGraph(attributePaths = {"reporter", "apartment", "building"})
     @Query("SELECT c FROM Claim c WHERE c.building.buildingId = :buildingId " +
            "AND (c.reporter.idUsers = :residentId OR c.apartment.idApartment IN " +
            "(SELECT rb.apartment.idApartment FROM ResidentBuilding rb WHERE rb.resident.idUsers = :residentId) " +
@@ -22,4 +30,66 @@ public interface ClaimRepository extends JpaRepository<Claim, Long> {
            "WHERE caa.apartment.idApartment IN (SELECT rb.apartment.idApartment FROM ResidentBuilding rb WHERE rb.resident.idUsers = :residentId))) " +
            "ORDER BY c.createdAt DESC")
     List<Claim> findClaimsByBuildingAndResident(@Param("buildingId") String buildingId, @Param("residentId") String residentId);
+
+    /**
+     * Page des sinistres d'un immeuble (vue admin), filtrée par statut et période, servie par
+     * idx_claims_building_status_created. Déclarant, appartement et immeuble sont chargés dans la même requête.
+     */
+    @EntityGraph(attributePaths = {"reporter", "apartment", "building"})
+    @Query(value = "SELECT c FROM Claim c WHERE c.building.buildingId = :buildingId " +
+           "AND c.status IN :statuses AND c.createdAt >= :from AND c.createdAt < :to " +
+           "ORDER BY c.createdAt DESC, c.id DESC",
+           countQuery = "SELECT COUNT(c) FROM Claim c WHERE c.building.buildingId = :buildingId " +
+           "AND c.status IN :statuses AND c.createdAt >= :from AND c.createdAt < :to")
+    Page<Claim> findPageByBuilding(@Param("buildingId") String buildingId,
+                                   @Param("statuses") Collection<ClaimStatus> statuses,
+                                   @Param("from") LocalDateTime from,
+                                   @Param("to") LocalDateTime to,
+                                   Pageable pageable);
+
+    // Même page restreinte aux sinistres visibles par un résident (déclarés par lui, sur ou touchant son appartement)
+    @EntityGraph(attributePaths = {"reporter", "apartment", "building"})
+    @Query(value = "SELECT c FROM Claim c WHERE c.building.buildingId = :buildingId " +
+           "AND c.status IN :statuses AND c.createdAt >= :from AND c.createdAt < :to " +
+           "AND (c.reporter.idUsers = :residentId OR c.apartment.idApartment IN " +
+           "(SELECT rb.apartment.idApartment FROM ResidentBuilding rb WHERE rb.resident.idUsers = :residentId) " +
+           "OR c.id IN (SELECT caa.claim.id FROM ClaimAffectedApartment caa " +
+           "WHERE caa.apartment.idApartment IN (SELECT rb.apartment.idApartment FROM ResidentBuilding rb WHERE rb.resident.idUsers = :residentId))) " +
+           "ORDER BY c.createdAt DESC, c.id DESC",
+           countQuery = "SELECT COUNT(c) FROM Claim c WHERE c.building.buildingId = :buildingId " +
+           "AND c.status IN :statuses AND c.createdAt >= :from AND c.createdAt < :to " +
+           "AND (c.reporter.idUsers = :residentId OR c.apartment.idApartment IN " +
+           "(SELECT rb.apartment.idApartment FROM ResidentBuilding rb WHERE rb.resident.idUsers = :residentId) " +
+           "OR c.id IN (SELECT caa.claim.id FROM ClaimAffectedApartment caa " +
+           "WHERE caa.apartment.idApartment IN (SELECT rb.apartment.idApartment FROM ResidentBuilding rb WHERE rb.resident.idUsers = :residentId)))")
+    Page<Claim> findPageByBuildingAndResident(@Param("buildingId") String buildingId,
+                                              @Param("residentId") String residentId,
+                                              @Param("statuses") Collection<ClaimStatus> statuses,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to,
+                                              Pageable pageable);
+
+    @Query("SELECT MAX(c.id) FROM Claim c")
+    Long findMaxId();
+
+    // Lot de sinistres pour l'initialisation des statistiques, par id croissant
+    @Query("SELECT c.id AS id, c.building.buildingId AS buildingId, c.status AS status, c.claimTypes AS claimTypes, " +
+           "c.createdAt AS createdAt, c.resolvedAt AS resolvedAt " +
+           "FROM Claim c WHERE c.id > :lastId AND c.id <= :maxId ORDER BY c.id")
+    List<StatsView> findStatsBatch(@Param("lastId") Long lastId, @Param("maxId") Long maxId, Pageable pageable);
+
+    // Date de résolution des sinistres clos avant l'introduction de resolved_at : dernière modification
+    @Modifying
+    @Query("UPDATE Claim c SET c.resolvedAt = c.updatedAt WHERE c.resolvedAt IS NULL " +
+           "AND c.status IN :statuses")
+    int backfillResolvedAt(@Param("statuses") Collection<ClaimStatus> statuses);
+
+    interface StatsView {
+        Long getId();
+        String getBuildingId();
+        ClaimStatus getStatus();
+        String[] getClaimTypes();
+        LocalDateTime getCreatedAt();
+        LocalDateTime getResolvedAt();
+    }
 }
@@ -0,0 +1,26 @@
+package be.delomid.oneapp.mschat.mschat.repository;
+
+import be.delomid.oneapp.mschat.mschat.model.ClaimResolutionBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ClaimResolutionBucketRepository extends JpaRepository<ClaimResolutionBucket, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO claim_resolution_buckets (building_id, bucket, claim_count, total_seconds) " +
+            "VALUES (:buildingId, :bucket, :countDelta, :secondsDelta) " +
+            "ON CONFLICT (building_id, bucket) DO UPDATE " +
+            "SET claim_count = claim_resolution_buckets.claim_count + :countDelta, " +
+            "total_seconds = claim_resolution_buckets.total_seconds + :secondsDelta",
+            nativeQuery = true)
+    void add(@Param("buildingId") String buildingId, @Param("bucket") int bucket,
+             @Param("countDelta") long countDelta, @Param("secondsDelta") long secondsDelta);
+
+    List<ClaimResolutionBucket> findByBuildingIdOrderByBucketAsc(String buildingId);
+}
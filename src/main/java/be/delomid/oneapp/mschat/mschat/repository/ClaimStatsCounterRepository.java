@@ -0,0 +1,30 @@
+package be.delomid.oneapp.mschat.mschat.repository;
+
+import be.delomid.oneapp.mschat.mschat.model.ClaimStatsCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ClaimStatsCounterRepository extends JpaRepository<ClaimStatsCounter, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO claim_stats_counters (building_id, month, status, claim_type, claim_count) " +
+            "VALUES (:buildingId, :month, :status, :claimType, :delta) " +
+            "ON CONFLICT (building_id, month, status, claim_type) DO UPDATE " +
+            "SET claim_count = claim_stats_counters.claim_count + :delta",
+            nativeQuery = true)
+    void add(@Param("buildingId") String buildingId, @Param("month") LocalDate month,
+             @Param("status") String status, @Param("claimType") String claimType, @Param("delta") long delta);
+
+    @Query("SELECT c FROM ClaimStatsCounter c WHERE c.buildingId = :buildingId " +
+           "AND c.month >= :from AND c.month <= :to AND c.claimCount > 0 ORDER BY c.month")
+    List<ClaimStatsCounter> findByBuildingIdAndMonthBetween(@Param("buildingId") String buildingId,
+                                                            @Param("from") LocalDate from,
+                                                            @Param("to") LocalDate to);
+}
@@ -0,0 +1,46 @@
+package be.delomid.oneapp.mschat.mschat.repository;
+
+import be.delomid.oneapp.mschat.mschat.model.ClaimStatsState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ClaimStatsStateRepository extends JpaRepository<ClaimStatsState, Integer> {
+
+    /**
+     * Verrou consultatif Postgres, libéré à la fin de la transaction courante (ou à la perte
+     * de la connexion). Retourne false si une autre instance le détient déjà.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryAdvisoryXactLock(@Param("key") long key);
+
+    /**
+     * Verrous consultatifs bloquants, libérés à la fin de la transaction courante : partagé pour
+     * les mises à jour incrémentales, exclusif pour les lots d'initialisation.
+     */
+    @Query(value = "SELECT COUNT(*) FROM (SELECT pg_advisory_xact_lock_shared(:key)) l", nativeQuery = true)
+    long advisoryXactLockShared(@Param("key") long key);
+
+    @Query(value = "SELECT COUNT(*) FROM (SELECT pg_advisory_xact_lock(:key)) l", nativeQuery = true)
+    long advisoryXactLock(@Param("key") long key);
+
+    // Relu en base à chaque appel (pas d'entité gérée) : l'état peut avoir été avancé par une autre instance
+    @Query(value = "SELECT backfill_completed_at IS NOT NULL AS completed, backfill_cursor AS backfillCursor, " +
+            "backfill_max_id AS backfillMaxId FROM claim_stats_state WHERE id = 1", nativeQuery = true)
+    Optional<StateView> findState();
+
+    @Modifying
+    @Query(value = "TRUNCATE claim_stats_counters, claim_resolution_buckets", nativeQuery = true)
+    void truncateRollups();
+
+    interface StateView {
+        Boolean getCompleted();
+        Long getBackfillCursor();
+        Long getBackfillMaxId();
+    }
+}
@@ -4,6 +4,7 @@ import be.delomid.oneapp.mschat.mschat.model.Document;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -39,11 +40,6 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     List<Document> searchDocuments(@Param("buildingId") String buildingId,
                                    @Param("search") String search);
 
-    @Query("SELECT d FROM Document d WHERE d.building.buildingId = :buildingId " +
-           "AND LOWER(d.originalFilename) LIKE LOWER(CONCAT('%', :search, '%'))")
-    List<Document> searchByBuildingIdAndOriginalFilenameContaining(@Param("buildingId") String buildingId,
-                                                                    @Param("search") String search);
-
     @Query("SELECT d FROM Document d WHERE d.apartment.idApartment = :apartmentId")
     List<Document> findByApartmentId(@Param("apartmentId") String apartmentId);
 
@@ -56,4 +52,23 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     List<Document> findByFolderIdOrderByCreatedAtDesc(Long folderId);
 
     boolean existsByOriginalFilenameAndFolderId(String originalFilename, Long folderId);
+
+    @Modifying
+    @Query("DELETE FROM Document d WHERE d.folder.id IN (SELECT f.id FROM Folder f WHERE f.treePath LIKE :prefix)")
+    int deleteByFolderTreePathPrefix(@Param("prefix") String prefix);
+
+    @Query("SELECT d.id FROM Document d WHERE d.folder.id IN (SELECT f.id FROM Folder f WHERE f.treePath LIKE :prefix)")
+    List<Long> findIdsByFolderTreePathPrefix(@Param("prefix") String prefix);
+
+    // Volume par appartement d'un sous-arbre, à libérer des quotas avant sa suppression
+    @Query("SELECT d.apartment.idApartment AS apartmentId, COALESCE(SUM(d.fileSize), 0) AS bytes, COUNT(d) AS files " +
+           "FROM Document d WHERE d.folder.id IN (SELECT f.id FROM Folder f WHERE f.treePath LIKE :prefix) " +
+           "GROUP BY d.apartment.idApartment")
+    List<StorageView> sumStorageByFolderTreePathPrefix(@Param("prefix") String prefix);
+
+    interface StorageView {
+        String getApartmentId();
+        Long getBytes();
+        Long getFiles();
+    }
 }
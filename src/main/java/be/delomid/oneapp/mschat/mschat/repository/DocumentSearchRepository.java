@@ -0,0 +1,73 @@
+package be.delomid.oneapp.mschat.mschat.repository;
+
+import be.delomid.oneapp.mschat.mschat.model.DocumentSearchEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface DocumentSearchRepository extends JpaRepository<DocumentSearchEntry, Long> {
+
+    /**
+     * Les textes sont normalisés côté Java (minuscules, sans accents) : pas besoin de l'extension unaccent.
+     * Poids : nom (A) > description (B) > contenu (C).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO document_search_index (document_id, search_vector, indexed_at) " +
+            "VALUES (:documentId, " +
+            "setweight(to_tsvector('simple', :name), 'A') || " +
+            "setweight(to_tsvector('simple', :description), 'B') || " +
+            "setweight(to_tsvector('simple', :content), 'C'), now()) " +
+            "ON CONFLICT (document_id) DO UPDATE SET search_vector = EXCLUDED.search_vector, indexed_at = now()",
+            nativeQuery = true)
+    void upsert(@Param("documentId") Long documentId,
+                @Param("name") String name,
+                @Param("description") String description,
+                @Param("content") String content);
+
+    @Modifying
+    @Query(value = "DELETE FROM document_search_index WHERE document_id = :documentId", nativeQuery = true)
+    void deleteByDocumentId(@Param("documentId") Long documentId);
+
+    /**
+     * Recherche classée ; le filtre d'accès reprend les règles de DocumentService.hasAccessToFolder.
+     */
+    @Query(value = "SELECT d.id FROM document_search_index si " +
+            "JOIN documents d ON d.id = si.document_id " +
+            "JOIN folders f ON f.id = d.folder_id " +
+            "CROSS JOIN to_tsquery('simple', :tsQuery) q " +
+            "WHERE d.building_id = :buildingId " +
+            "AND si.search_vector @@ q " +
+            "AND (f.created_by = :residentId " +
+            "  OR f.share_type = 'ALL_APARTMENTS' " +
+            "  OR (f.share_type = 'SPECIFIC_APARTMENTS' AND EXISTS (" +
+            "      SELECT 1 FROM folder_permissions fp WHERE fp.folder_id = f.id " +
+            "      AND (fp.resident_id = :residentId OR fp.apartment_id = CAST(:apartmentId AS varchar))))) " +
+            "ORDER BY ts_rank(si.search_vector, q) DESC, d.id DESC " +
+            "LIMIT :limit OFFSET :offset",
+            nativeQuery = true)
+    List<Long> searchAccessibleDocumentIds(@Param("buildingId") String buildingId,
+                                           @Param("residentId") String residentId,
+                                           @Param("apartmentId") String apartmentId,
+                                           @Param("tsQuery") String tsQuery,
+                                           @Param("limit") int limit,
+                                           @Param("offset") int offset);
+
+    @Query(value = "SELECT d.id FROM documents d " +
+            "LEFT JOIN document_search_index si ON si.document_id = d.id " +
+            "WHERE si.document_id IS NULL ORDER BY d.id LIMIT :limit",
+            nativeQuery = true)
+    List<Long> findUnindexedDocumentIds(@Param("limit") int limit);
+
+    // Index GIN : Hibernate (ddl-auto) ne sait pas le créer
+    @Modifying
+    @Transactional
+    @Query(value = "CREATE INDEX IF NOT EXISTS idx_document_search_vector ON document_search_index USING GIN (search_vector)",
+            nativeQuery = true)
+    void createVectorIndexIfMissing();
+}
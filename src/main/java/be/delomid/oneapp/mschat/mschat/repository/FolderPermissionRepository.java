@@ -2,6 +2,7 @@ package be.delomid.oneapp.mschat.mschat.repository;
 
 import be.delomid.oneapp.mschat.mschat.model.FolderPermission;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -21,4 +22,27 @@ public interface FolderPermissionRepository extends JpaRepository<FolderPermissi
     List<FolderPermission> findByFolderIdAndResidentId(@Param("folderId") Long folderId, @Param("residentId") String residentId);
 
     void deleteByFolderId(Long folderId);
+
+    @Modifying
+    @Query("DELETE FROM FolderPermission fp WHERE fp.folder.id IN (SELECT f.id FROM Folder f WHERE f.treePath LIKE :prefix)")
+    int deleteByFolderTreePathPrefix(@Param("prefix") String prefix);
+
+    @Query("SELECT fp.id AS id, fp.folder.id AS folderId, a.idApartment AS apartmentId, r.idUsers AS residentId, " +
+           "fp.canRead AS canRead, fp.canUpload AS canUpload FROM FolderPermission fp " +
+           "LEFT JOIN fp.apartment a LEFT JOIN fp.resident r WHERE fp.folder.building.buildingId = :buildingId")
+    List<FolderPermissionView> findViewsByBuildingId(@Param("buildingId") String buildingId);
+
+    @Query("SELECT fp.id AS id, fp.folder.id AS folderId, a.idApartment AS apartmentId, r.idUsers AS residentId, " +
+           "fp.canRead AS canRead, fp.canUpload AS canUpload FROM FolderPermission fp " +
+           "LEFT JOIN fp.apartment a LEFT JOIN fp.resident r WHERE fp.folder.id = :folderId")
+    List<FolderPermissionView> findViewsByFolderId(@Param("folderId") Long folderId);
+
+    interface FolderPermissionView {
+        Long getId();
+        Long getFolderId();
+        String getApartmentId();
+        String getResidentId();
+        Boolean getCanRead();
+        Boolean getCanUpload();
+    }
 }
@@ -1,10 +1,13 @@
 package be.delomid.oneapp.mschat.mschat.repository;
 
 import be.delomid.oneapp.mschat.mschat.model.Folder;
+import be.delomid.oneapp.mschat.mschat.model.ShareType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -74,4 +77,74 @@ public interface FolderRepository extends JpaRepository<Folder, Long> {
            "OR (f.shareType = 'SPECIFIC_APARTMENTS' AND p.resident.idUsers = :residentId))")
     List<Folder> findAccessibleFoldersForAdminWithoutApartment(@Param("buildingId") String buildingId,
                                                                 @Param("residentId") String residentId);
+
+    @Query("SELECT f.id AS id, f.createdBy AS createdBy, f.shareType AS shareType, " +
+           "COALESCE(f.aclVersion, 0) AS aclVersion FROM Folder f WHERE f.building.buildingId = :buildingId")
+    List<FolderAclView> findAclViewsByBuildingId(@Param("buildingId") String buildingId);
+
+    @Query("SELECT f.id AS id, f.createdBy AS createdBy, f.shareType AS shareType, " +
+           "COALESCE(f.aclVersion, 0) AS aclVersion FROM Folder f WHERE f.id = :id")
+    Optional<FolderAclView> findAclViewById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Folder f SET f.aclVersion = COALESCE(f.aclVersion, 0) + 1 WHERE f.id = :id")
+    int incrementAclVersion(@Param("id") Long id);
+
+    @Query("SELECT COALESCE(f.aclVersion, 0) FROM Folder f WHERE f.id = :id")
+    Optional<Long> findAclVersionById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Folder f SET f.treePath = :treePath WHERE f.id = :id")
+    int setTreePath(@Param("id") Long id, @Param("treePath") String treePath);
+
+    @Modifying
+    @Query("UPDATE Folder f SET f.subFolderCount = f.subFolderCount + :delta WHERE f.id = :id")
+    int addSubFolderCount(@Param("id") Long id, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE Folder f SET f.documentCount = f.documentCount + :delta WHERE f.id = :id")
+    int addDocumentCount(@Param("id") Long id, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE Folder f SET f.totalBytes = f.totalBytes + :delta WHERE f.id IN :ids")
+    int addTotalBytes(@Param("ids") List<Long> ids, @Param("delta") long delta);
+
+    @Modifying
+    @Query("DELETE FROM Folder f WHERE f.treePath LIKE :prefix")
+    int deleteByTreePathPrefix(@Param("prefix") String prefix);
+
+    /**
+     * Calcule le chemin matérialisé des dossiers qui n'en ont pas encore (données antérieures).
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "WITH RECURSIVE tree AS (" +
+            "  SELECT id, '/' || id || '/' AS path FROM folders WHERE parent_folder_id IS NULL " +
+            "  UNION ALL " +
+            "  SELECT f.id, t.path || f.id || '/' FROM folders f JOIN tree t ON f.parent_folder_id = t.id" +
+            ") " +
+            "UPDATE folders f SET tree_path = tree.path FROM tree WHERE f.id = tree.id AND f.tree_path IS NULL",
+            nativeQuery = true)
+    int backfillTreePaths();
+
+    /**
+     * Recalcule les compteurs des dossiers dont au moins un compteur est absent.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE folders f SET " +
+            "subfolder_count = (SELECT COUNT(*) FROM folders c WHERE c.parent_folder_id = f.id), " +
+            "document_count = (SELECT COUNT(*) FROM documents d WHERE d.folder_id = f.id), " +
+            "total_bytes = (SELECT COALESCE(SUM(d.file_size), 0) FROM documents d " +
+            "  JOIN folders s ON s.id = d.folder_id WHERE s.tree_path LIKE f.tree_path || '%') " +
+            "WHERE f.subfolder_count IS NULL OR f.document_count IS NULL OR f.total_bytes IS NULL",
+            nativeQuery = true)
+    int backfillCounters();
+
+    interface FolderAclView {
+        Long getId();
+        String getCreatedBy();
+        ShareType getShareType();
+        Long getAclVersion();
+    }
 }
@@ -1,20 +1,51 @@
 package be.delomid.oneapp.mschat.mschat.repository;
 
+import be.delomid.oneapp.mschat.mschat.dto.NotificationDto;
 import be.delomid.oneapp.mschat.mschat.model.Notification;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
 
-    List<Notification> findByResidentIdUsersOrderByCreatedAtDesc(String residentId);
+    String INBOX_PROJECTION = "SELECT new be.delomid.oneapp.mschat.mschat.dto.NotificationDto(" +
+            "n.id, n.resident.idUsers, n.building.buildingId, n.title, n.body, n.type, n.channel.id, " +
+            "n.voteId, n.documentId, n.isRead, n.createdAt, n.readAt) FROM Notification n ";
 
-    List<Notification> findByResidentIdUsersAndBuildingBuildingIdOrderByCreatedAtDesc(String residentId, String buildingId);
+    @Query(INBOX_PROJECTION + "WHERE n.resident.idUsers = :residentId ORDER BY n.createdAt DESC, n.id DESC")
+    List<NotificationDto> findInbox(@Param("residentId") String residentId, Limit limit);
+
+    @Query(INBOX_PROJECTION + "WHERE n.resident.idUsers = :residentId " +
+            "AND (n.createdAt < :beforeCreatedAt OR (n.createdAt = :beforeCreatedAt AND n.id < :beforeId)) " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    List<NotificationDto> findInboxBefore(@Param("residentId") String residentId,
+                                          @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                          @Param("beforeId") Long beforeId,
+                                          Limit limit);
+
+    @Query(INBOX_PROJECTION + "WHERE n.resident.idUsers = :residentId AND n.building.buildingId = :buildingId " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    List<NotificationDto> findInboxForBuilding(@Param("residentId") String residentId,
+                                               @Param("buildingId") String buildingId,
+                                               Limit limit);
+
+    @Query(INBOX_PROJECTION + "WHERE n.resident.idUsers = :residentId AND n.building.buildingId = :buildingId " +
+            "AND (n.createdAt < :beforeCreatedAt OR (n.createdAt = :beforeCreatedAt AND n.id < :beforeId)) " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    List<NotificationDto> findInboxForBuildingBefore(@Param("residentId") String residentId,
+                                                     @Param("buildingId") String buildingId,
+                                                     @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                                     @Param("beforeId") Long beforeId,
+                                                     Limit limit);
 
     @Query("SELECT COUNT(n) FROM Notification n WHERE n.resident.idUsers = :residentId AND n.isRead = false")
     Long countUnreadByResidentId(@Param("residentId") String residentId);
@@ -22,11 +53,52 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     @Query("SELECT COUNT(n) FROM Notification n WHERE n.resident.idUsers = :residentId AND n.building.buildingId = :buildingId AND n.isRead = false")
     Long countUnreadByResidentIdAndBuildingId(@Param("residentId") String residentId, @Param("buildingId") String buildingId);
 
+    @Query("SELECT n.resident.idUsers AS residentId, n.building.buildingId AS buildingId FROM Notification n WHERE n.id = :notificationId")
+    Optional<NotificationRecipient> findRecipientById(@Param("notificationId") Long notificationId);
+
     @Modifying
-    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = CURRENT_TIMESTAMP WHERE n.id = :notificationId")
-    void markAsRead(@Param("notificationId") Long notificationId);
+    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = CURRENT_TIMESTAMP WHERE n.id = :notificationId AND n.isRead = false")
+    int markAsRead(@Param("notificationId") Long notificationId);
+
+    // created_at reste inchangé : il sert de clé au curseur de la boîte de réception
+    @Modifying
+    @Query("UPDATE Notification n SET n.title = :title, n.body = :body " +
+            "WHERE n.id = :notificationId AND n.isRead = false")
+    int updateUnreadContent(@Param("notificationId") Long notificationId,
+                            @Param("title") String title,
+                            @Param("body") String body);
 
     @Modifying
     @Query("UPDATE Notification n SET n.isRead = true, n.readAt = CURRENT_TIMESTAMP WHERE n.resident.idUsers = :residentId AND n.isRead = false")
-    void markAllAsReadForResident(@Param("residentId") String residentId);
+    int markAllAsReadForResident(@Param("residentId") String residentId);
+
+    /**
+     * Déplace un lot de notifications lues plus anciennes que {@code cutoff} vers notifications_archive.
+     * Retourne le nombre de lignes déplacées (0 quand il n'y a plus rien à archiver).
+     * Une ligne déjà archivée avec le même id est remplacée par la version supprimée :
+     * aucune donnée ne quitte notifications sans être écrite dans l'archive.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "WITH moved AS (" +
+            "  DELETE FROM notifications WHERE id IN (" +
+            "    SELECT id FROM notifications WHERE is_read = true AND created_at < :cutoff " +
+            "    ORDER BY id LIMIT :batchSize FOR UPDATE SKIP LOCKED" +
+            "  ) RETURNING id, resident_id, building_id, title, body, type, channel_id, vote_id, document_id, created_at, read_at" +
+            ") " +
+            "INSERT INTO notifications_archive (id, resident_id, building_id, title, body, type, channel_id, vote_id, " +
+            "document_id, created_at, read_at, archived_at) " +
+            "SELECT id, resident_id, building_id, title, body, type, channel_id, vote_id, document_id, created_at, read_at, " +
+            "CURRENT_TIMESTAMP FROM moved " +
+            "ON CONFLICT (id) DO UPDATE SET resident_id = EXCLUDED.resident_id, building_id = EXCLUDED.building_id, " +
+            "title = EXCLUDED.title, body = EXCLUDED.body, type = EXCLUDED.type, channel_id = EXCLUDED.channel_id, " +
+            "vote_id = EXCLUDED.vote_id, document_id = EXCLUDED.document_id, created_at = EXCLUDED.created_at, " +
+            "read_at = EXCLUDED.read_at, archived_at = EXCLUDED.archived_at",
+            nativeQuery = true)
+    int archiveReadBefore(@Param("cutoff") LocalDateTime cutoff, @Param("batchSize") int batchSize);
+
+    interface NotificationRecipient {
+        String getResidentId();
+        String getBuildingId();
+    }
 }
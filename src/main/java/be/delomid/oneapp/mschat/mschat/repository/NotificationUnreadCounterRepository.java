@@ -0,0 +1,65 @@
+package be.delomid.oneapp.mschat.mschat.repository;
+
+import be.delomid.oneapp.mschat.mschat.model.NotificationUnreadCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface NotificationUnreadCounterRepository extends JpaRepository<NotificationUnreadCounter, Long> {
+
+    @Query("SELECT c.unreadCount FROM NotificationUnreadCounter c WHERE c.residentId = :residentId AND c.buildingId = :buildingId")
+    Optional<Long> findCount(@Param("residentId") String residentId, @Param("buildingId") String buildingId);
+
+    @Query("SELECT COALESCE(SUM(c.unreadCount), 0) FROM NotificationUnreadCounter c WHERE c.residentId = :residentId")
+    Long sumForResident(@Param("residentId") String residentId);
+
+    /**
+     * Ajoute {@code delta} au compteur, sans relire la table notifications. Un compteur absent
+     * vaut zéro : les notifications antérieures à l'introduction des compteurs sont comptées
+     * une fois au démarrage par {@link #seedMissing}.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO notification_unread_counters (resident_id, building_id, unread_count, updated_at) " +
+            "VALUES (:residentId, :buildingId, GREATEST(:delta, 0), CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (resident_id, building_id) DO UPDATE " +
+            "SET unread_count = GREATEST(notification_unread_counters.unread_count + :delta, 0), updated_at = CURRENT_TIMESTAMP",
+            nativeQuery = true)
+    void add(@Param("residentId") String residentId, @Param("buildingId") String buildingId, @Param("delta") long delta);
+
+    /**
+     * Variante de {@link #add} pour plusieurs résidents d'un même immeuble, en une instruction
+     * et sans relire la table notifications.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO notification_unread_counters (resident_id, building_id, unread_count, updated_at) " +
+            "SELECT r.id_users, :buildingId, GREATEST(:delta, 0), CURRENT_TIMESTAMP " +
+            "FROM residents r WHERE r.id_users IN (:residentIds) " +
+            "ON CONFLICT (resident_id, building_id) DO UPDATE " +
+            "SET unread_count = GREATEST(notification_unread_counters.unread_count + :delta, 0), updated_at = CURRENT_TIMESTAMP",
+            nativeQuery = true)
+    void addForResidents(@Param("residentIds") Collection<String> residentIds, @Param("buildingId") String buildingId,
+                         @Param("delta") long delta);
+
+    @Query("SELECT c FROM NotificationUnreadCounter c WHERE c.residentId IN :residentIds")
+    List<NotificationUnreadCounter> findByResidentIds(@Param("residentIds") Collection<String> residentIds);
+
+    @Modifying
+    @Query("UPDATE NotificationUnreadCounter c SET c.unreadCount = 0, c.updatedAt = CURRENT_TIMESTAMP WHERE c.residentId = :residentId")
+    void resetForResident(@Param("residentId") String residentId);
+
+    // Initialise les compteurs manquants à partir des notifications existantes
+    @Modifying
+    @Query(value = "INSERT INTO notification_unread_counters (resident_id, building_id, unread_count, updated_at) " +
+            "SELECT resident_id, building_id, COUNT(*), CURRENT_TIMESTAMP FROM notifications WHERE is_read = false " +
+            "GROUP BY resident_id, building_id " +
+            "ON CONFLICT (resident_id, building_id) DO NOTHING",
+            nativeQuery = true)
+    int seedMissing();
+}
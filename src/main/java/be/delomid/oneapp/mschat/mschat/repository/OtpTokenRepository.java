@@ -3,6 +3,7 @@ package be.delomid.oneapp.mschat.mschat.repository;
 import be.delomid.oneapp.mschat.mschat.model.OtpToken;
 import be.delomid.oneapp.mschat.mschat.model.OtpType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -13,11 +14,15 @@ import java.util.Optional;
 @Repository
 public interface OtpTokenRepository extends JpaRepository<OtpToken, Long> {
     
-    @Query("SELECT o FROM OtpToken o WHERE o.email = :email AND o.otpCode = :otpCode AND o.otpType = :otpType AND o.isUsed = false AND o.expiresAt > :now")
-    Optional<OtpToken> findValidOtp(@Param("email") String email, 
-                                   @Param("otpCode") String otpCode, 
-                                   @Param("otpType") OtpType otpType,
-                                   @Param("now") LocalDateTime now);
+    Optional<OtpToken> findFirstByEmailAndOtpTypeAndIsUsedFalseOrderByCreatedAtDesc(String email, OtpType otpType);
+    
+    @Modifying
+    @Query("UPDATE OtpToken o SET o.attempts = o.attempts + 1 WHERE o.id = :id AND o.attempts < :maxAttempts")
+    int incrementAttempts(@Param("id") Long id, @Param("maxAttempts") int maxAttempts);
+    
+    @Modifying
+    @Query("UPDATE OtpToken o SET o.isUsed = true WHERE o.id = :id AND o.isUsed = false")
+    int markUsed(@Param("id") Long id);
     
     void deleteByEmailAndOtpType(String email, OtpType otpType);
     
@@ -0,0 +1,58 @@
+package be.delomid.oneapp.mschat.mschat.repository;
+
+import be.delomid.oneapp.mschat.mschat.model.OutboxEvent;
+import be.delomid.oneapp.mschat.mschat.model.OutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Sélectionne les événements à délivrer (les plus prioritaires d'abord) en ignorant ceux déjà
+     * verrouillés par un autre nœud. Les événements PROCESSING dont le bail a expiré (nœud arrêté
+     * en cours d'envoi) sont repris.
+     */
+    @Query(value = "SELECT id FROM outbox_events " +
+            "WHERE priority >= :minPriority " +
+            "AND ((status = 'PENDING' AND next_attempt_at <= :now) " +
+            "OR (status = 'PROCESSING' AND locked_until < :now)) " +
+            "ORDER BY priority DESC, id LIMIT :batchSize FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Long> lockDueEventIds(@Param("now") LocalDateTime now, @Param("minPriority") int minPriority,
+                               @Param("batchSize") int batchSize);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = :status, e.lockedUntil = :lockedUntil, e.attempts = e.attempts + 1 " +
+            "WHERE e.id IN :ids")
+    void markProcessing(@Param("ids") List<Long> ids,
+                        @Param("status") OutboxStatus status,
+                        @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.status = :status, e.nextAttemptAt = :nextAttemptAt, e.lockedUntil = null, " +
+            "e.lastError = :lastError WHERE e.id = :id")
+    void markFailedAttempt(@Param("id") Long id,
+                           @Param("status") OutboxStatus status,
+                           @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                           @Param("lastError") String lastError);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.payload = :payload WHERE e.id = :id")
+    void updatePayload(@Param("id") Long id, @Param("payload") String payload);
+
+    // Les événements délivrés sont supprimés (leur contenu peut être sensible, ex. mot de passe temporaire)
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxEvent e WHERE e.id IN :ids")
+    void deleteDelivered(@Param("ids") List<Long> ids);
+}
@@ -0,0 +1,16 @@
+package be.delomid.oneapp.mschat.mschat.repository;
+
+import java.util.Collection;
+
+/**
+ * Réordonnancement groupé des photos d'un propriétaire (appartement, immeuble), implémenté
+ * par chaque dépôt de photos avec ses propres requêtes. Voir PhotoOrderService.
+ */
+public interface PhotoOrderRepository {
+
+    // Nombre de photos de la liste appartenant au propriétaire
+    long countPhotosOwnedBy(String ownerId, Collection<Long> photoIds);
+
+    // Position de chaque photo = son rang dans orderedIds (ids séparés par des virgules), à partir de 0
+    int applyPhotoOrder(String ownerId, Collection<Long> photoIds, String orderedIds);
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,4 +37,16 @@ public interface ResidentBuildingRepository extends JpaRepository<ResidentBuildi
 
     @Query("SELECT rb FROM ResidentBuilding rb WHERE rb.building.buildingId = :buildingId AND rb.apartment.idApartment = :apartmentId AND rb.isActive = true")
     List<ResidentBuilding> findByBuildingIdAndApartmentId(@Param("buildingId") String buildingId, @Param("apartmentId") String apartmentId);
+
+    @Query("SELECT rb FROM ResidentBuilding rb JOIN FETCH rb.resident " +
+           "WHERE rb.building.buildingId = :buildingId AND rb.roleInBuilding = :role AND rb.isActive = true")
+    List<ResidentBuilding> findByBuildingIdAndRoleWithResident(@Param("buildingId") String buildingId, @Param("role") UserRole role);
+
+    // Admins de l'immeuble et résidents des appartements donnés, avec leur profil, en une requête
+    @Query("SELECT rb FROM ResidentBuilding rb JOIN FETCH rb.resident LEFT JOIN rb.apartment a " +
+           "WHERE rb.building.buildingId = :buildingId AND rb.isActive = true " +
+           "AND (rb.roleInBuilding = :role OR a.idApartment IN :apartmentIds)")
+    List<ResidentBuilding> findByBuildingIdAndRoleOrApartmentIds(@Param("buildingId") String buildingId,
+                                                                @Param("role") UserRole role,
+                                                                @Param("apartmentIds") Collection<String> apartmentIds);
 }
\ No newline at end of file
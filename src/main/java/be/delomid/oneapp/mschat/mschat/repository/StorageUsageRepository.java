@@ -0,0 +1,88 @@
+package be.delomid.oneapp.mschat.mschat.repository;
+
+import be.delomid.oneapp.mschat.mschat.model.StorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StorageUsageRepository extends JpaRepository<StorageUsage, Long> {
+
+    @Query("SELECT u.usedBytes FROM StorageUsage u WHERE u.scopeType = :scopeType AND u.scopeId = :scopeId")
+    Optional<Long> findUsedBytes(@Param("scopeType") String scopeType, @Param("scopeId") String scopeId);
+
+    /**
+     * Réserve {@code bytes} si le total reste sous {@code limit} : vérification et incrément
+     * en une seule requête, deux uploads concurrents ne peuvent pas dépasser le quota ensemble.
+     * Retourne 0 si le quota serait dépassé.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO storage_usage (scope_type, scope_id, used_bytes, file_count, updated_at) " +
+            "VALUES (:scopeType, :scopeId, :bytes, :files, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (scope_type, scope_id) DO UPDATE " +
+            "SET used_bytes = storage_usage.used_bytes + :bytes, " +
+            "file_count = storage_usage.file_count + :files, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE storage_usage.used_bytes + :bytes <= :limit",
+            nativeQuery = true)
+    int tryAdd(@Param("scopeType") String scopeType, @Param("scopeId") String scopeId,
+               @Param("bytes") long bytes, @Param("files") long files, @Param("limit") long limit);
+
+    @Modifying
+    @Query(value = "UPDATE storage_usage SET used_bytes = GREATEST(used_bytes - :bytes, 0), " +
+            "file_count = GREATEST(file_count - :files, 0), updated_at = CURRENT_TIMESTAMP " +
+            "WHERE scope_type = :scopeType AND scope_id = :scopeId",
+            nativeQuery = true)
+    int subtract(@Param("scopeType") String scopeType, @Param("scopeId") String scopeId,
+                 @Param("bytes") long bytes, @Param("files") long files);
+
+    /**
+     * Verrouille tous les compteurs le temps du recalcul : une réservation concurrente attend
+     * le commit au lieu d'être écrasée. Ordre immeubles puis appartements, comme les réservations.
+     */
+    @Query(value = "SELECT id FROM storage_usage ORDER BY scope_type = 'APARTMENT', id FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockAll();
+
+    /**
+     * Recalcule les compteurs d'immeubles depuis les registres (documents et fichiers uploadés).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO storage_usage (scope_type, scope_id, used_bytes, file_count, updated_at) " +
+            "SELECT 'BUILDING', f.building_id, SUM(f.size), COUNT(*), CURRENT_TIMESTAMP FROM (" +
+            "  SELECT building_id, COALESCE(file_size, 0) AS size FROM documents " +
+            "  UNION ALL SELECT building_id, size_bytes FROM stored_files WHERE building_id IS NOT NULL" +
+            ") f GROUP BY f.building_id " +
+            "ON CONFLICT (scope_type, scope_id) DO UPDATE " +
+            "SET used_bytes = EXCLUDED.used_bytes, file_count = EXCLUDED.file_count, updated_at = CURRENT_TIMESTAMP",
+            nativeQuery = true)
+    int recomputeBuildings();
+
+    @Modifying
+    @Query(value = "INSERT INTO storage_usage (scope_type, scope_id, used_bytes, file_count, updated_at) " +
+            "SELECT 'APARTMENT', f.apartment_id, SUM(f.size), COUNT(*), CURRENT_TIMESTAMP FROM (" +
+            "  SELECT apartment_id, COALESCE(file_size, 0) AS size FROM documents WHERE apartment_id IS NOT NULL " +
+            "  UNION ALL SELECT apartment_id, size_bytes FROM stored_files WHERE apartment_id IS NOT NULL" +
+            ") f GROUP BY f.apartment_id " +
+            "ON CONFLICT (scope_type, scope_id) DO UPDATE " +
+            "SET used_bytes = EXCLUDED.used_bytes, file_count = EXCLUDED.file_count, updated_at = CURRENT_TIMESTAMP",
+            nativeQuery = true)
+    int recomputeApartments();
+
+    // Remet à zéro les compteurs dont plus aucun fichier ne dépend
+    @Modifying
+    @Query(value = "UPDATE storage_usage u SET used_bytes = 0, file_count = 0, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE u.file_count <> 0 AND (" +
+            "  (u.scope_type = 'BUILDING' " +
+            "   AND NOT EXISTS (SELECT 1 FROM documents d WHERE d.building_id = u.scope_id) " +
+            "   AND NOT EXISTS (SELECT 1 FROM stored_files s WHERE s.building_id = u.scope_id)) " +
+            "  OR (u.scope_type = 'APARTMENT' " +
+            "   AND NOT EXISTS (SELECT 1 FROM documents d WHERE d.apartment_id = u.scope_id) " +
+            "   AND NOT EXISTS (SELECT 1 FROM stored_files s WHERE s.apartment_id = u.scope_id)))",
+            nativeQuery = true)
+    int resetEmptyScopes();
+}
@@ -0,0 +1,39 @@
+package be.delomid.oneapp.mschat.mschat.repository;
+
+import be.delomid.oneapp.mschat.mschat.model.StoredFile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, String> {
+
+    // Parcours par clé pour la réconciliation (pas d'OFFSET sur une table qui change)
+    List<StoredFile> findByFileIdGreaterThanOrderByFileIdAsc(String fileId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE StoredFile s SET s.sizeBytes = :sizeBytes WHERE s.fileId = :fileId")
+    int updateSize(@Param("fileId") String fileId, @Param("sizeBytes") long sizeBytes);
+
+    /**
+     * Enregistre les photos d'appartement et de sinistre uploadées avant l'introduction du registre.
+     * La taille est inconnue (0) jusqu'au passage de la réconciliation sur le disque. La date de
+     * création, inconnue elle aussi, est fixée au 1er janvier 1970 : ces fichiers sont complets et
+     * ne doivent pas bénéficier du délai de grâce des écritures en cours.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO stored_files (file_id, building_id, apartment_id, uploaded_by, size_bytes, created_at) " +
+            "SELECT regexp_replace(p.photo_url, '^.*/', ''), a.building_id, p.apartment_id, p.uploaded_by, 0, TIMESTAMP '1970-01-01 00:00:00' " +
+            "FROM apartment_photos p JOIN apartments a ON a.id_apartment = p.apartment_id " +
+            "UNION ALL " +
+            "SELECT regexp_replace(p.photo_url, '^.*/', ''), c.building_id, c.apartment_id, NULL, 0, TIMESTAMP '1970-01-01 00:00:00' " +
+            "FROM claim_photos p JOIN claims c ON c.id = p.claim_id " +
+            "ON CONFLICT (file_id) DO NOTHING",
+            nativeQuery = true)
+    int seedFromPhotos();
+}
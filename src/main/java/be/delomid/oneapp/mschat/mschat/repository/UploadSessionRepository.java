@@ -0,0 +1,40 @@
+package be.delomid.oneapp.mschat.mschat.repository;
+
+import be.delomid.oneapp.mschat.mschat.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    /**
+     * Avance la progression uniquement si personne ne l'a modifiée depuis la lecture :
+     * deux envois concurrents du même fragment ne peuvent pas valider tous les deux.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.receivedBytes = :receivedBytes, s.updatedAt = :now " +
+           "WHERE s.id = :id AND s.receivedBytes = :expectedBytes")
+    int advanceReceivedBytes(@Param("id") String id,
+                             @Param("expectedBytes") long expectedBytes,
+                             @Param("receivedBytes") long receivedBytes,
+                             @Param("now") LocalDateTime now);
+
+    List<UploadSession> findByUpdatedAtBefore(LocalDateTime cutoff);
+
+    long countByUploadedBy(String uploadedBy);
+
+    // Taille annoncée des sessions ouvertes, imputée au quota en plus de l'espace déjà utilisé
+    @Query("SELECT COALESCE(SUM(s.totalSize), 0) FROM UploadSession s WHERE s.quotaBuildingId = :buildingId")
+    long sumOpenBytesByBuilding(@Param("buildingId") String buildingId);
+
+    @Query("SELECT COALESCE(SUM(s.totalSize), 0) FROM UploadSession s WHERE s.quotaApartmentId = :apartmentId")
+    long sumOpenBytesByApartment(@Param("apartmentId") String apartmentId);
+}
@@ -2,10 +2,12 @@ package be.delomid.oneapp.mschat.mschat.repository;
 
 import be.delomid.oneapp.mschat.mschat.model.UserVote;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -18,4 +20,19 @@ public interface UserVoteRepository extends JpaRepository<UserVote, Long> {
     Long countByVoteId(@Param("voteId") Long voteId);
 
     boolean existsByVoteIdAndUserId(Long voteId, String userId);
+
+    // Tous les choix d'un bulletin en une seule instruction ; les doublons sont écartés par
+    // uk_user_votes_vote_user_option (cible non nommée : la table peut précéder la contrainte)
+    @Modifying
+    @Query(value = "INSERT INTO user_votes (vote_id, vote_option_id, user_id, voted_at) " +
+            "SELECT o.vote_id, o.id, :userId, now() FROM vote_options o " +
+            "WHERE o.vote_id = :voteId AND o.id IN (:optionIds) " +
+            "ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertSelections(@Param("voteId") Long voteId, @Param("userId") String userId,
+                         @Param("optionIds") Collection<Long> optionIds);
+
+    // Votes (parmi ceux listés) auxquels l'utilisateur a déjà participé, en une requête
+    @Query("SELECT DISTINCT uv.vote.id FROM UserVote uv WHERE uv.vote.id IN :voteIds AND uv.userId IN :userKeys")
+    List<Long> findVotedVoteIds(@Param("voteIds") Collection<Long> voteIds, @Param("userKeys") Collection<String> userKeys);
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package be.delomid.oneapp.mschat.mschat.repository;
+
+import be.delomid.oneapp.mschat.mschat.model.VoteBallot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface VoteBallotRepository extends JpaRepository<VoteBallot, Long> {
+
+    /**
+     * Enregistre le bulletin s'il n'existe pas encore. Retourne 0 si l'utilisateur a déjà voté :
+     * une soumission concurrente attend la fin de la première sur l'index unique.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO vote_ballots (vote_id, user_id, voted_at) " +
+            "VALUES (:voteId, :userId, now()) " +
+            "ON CONFLICT (vote_id, user_id) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("voteId") Long voteId, @Param("userId") String userId);
+
+    // Bulletins déposés avant l'introduction du registre
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO vote_ballots (vote_id, user_id, voted_at) " +
+            "SELECT vote_id, user_id, MIN(voted_at) FROM user_votes GROUP BY vote_id, user_id " +
+            "ON CONFLICT (vote_id, user_id) DO NOTHING",
+            nativeQuery = true)
+    int backfillFromUserVotes();
+}
@@ -2,18 +2,41 @@ package be.delomid.oneapp.mschat.mschat.repository;
 
 import be.delomid.oneapp.mschat.mschat.model.VoteOption;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface VoteOptionRepository extends JpaRepository<VoteOption, Long> {
 
-    @Query("SELECT COUNT(uv) FROM UserVote uv WHERE uv.voteOption.id = :optionId")
-    Long countVotesByOptionId(@Param("optionId") Long optionId);
-
     @Query("SELECT vo FROM VoteOption vo WHERE vo.vote.id = :voteId ORDER BY vo.id")
     List<VoteOption> findByVoteId(@Param("voteId") Long voteId);
+
+    @Query("SELECT vo.id FROM VoteOption vo WHERE vo.vote.id = :voteId AND vo.id IN :optionIds")
+    List<Long> findIdsByVoteIdAndIdIn(@Param("voteId") Long voteId, @Param("optionIds") Collection<Long> optionIds);
+
+    @Modifying
+    @Query("UPDATE VoteOption vo SET vo.voteCount = vo.voteCount + 1 WHERE vo.id IN :optionIds")
+    int incrementVoteCounts(@Param("optionIds") Collection<Long> optionIds);
+
+    // Recalcule les compteurs depuis user_votes : photographie exacte figée à la clôture
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE vote_options o SET vote_count = " +
+            "(SELECT COUNT(*) FROM user_votes uv WHERE uv.vote_option_id = o.id) " +
+            "WHERE o.vote_id IN (:voteIds)",
+            nativeQuery = true)
+    int recomputeVoteCounts(@Param("voteIds") Collection<Long> voteIds);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE vote_options o SET vote_count = " +
+            "(SELECT COUNT(*) FROM user_votes uv WHERE uv.vote_option_id = o.id) " +
+            "WHERE o.vote_count IS NULL",
+            nativeQuery = true)
+    int backfillVoteCounts();
 }
\ No newline at end of file
@@ -2,21 +2,80 @@ package be.delomid.oneapp.mschat.mschat.repository;
 
 import be.delomid.oneapp.mschat.mschat.model.Vote;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface VoteRepository extends JpaRepository<Vote, Long> {
 
     List<Vote> findByChannelIdOrderByCreatedAtDesc(Long channelId);
 
+    // Votes du canal avec leurs options (et compteurs) en une seule requête
+    @Query("SELECT DISTINCT v FROM Vote v LEFT JOIN FETCH v.options " +
+            "WHERE v.channel.id = :channelId ORDER BY v.createdAt DESC")
+    List<Vote> findByChannelIdWithOptions(@Param("channelId") Long channelId);
+
+    @Query("SELECT v FROM Vote v LEFT JOIN FETCH v.options WHERE v.id = :voteId")
+    Optional<Vote> findByIdWithOptions(@Param("voteId") Long voteId);
+
     @Query("SELECT v FROM Vote v WHERE v.channel.id = :channelId AND v.isActive = true")
     List<Vote> findActiveVotesByChannelId(@Param("channelId") Long channelId);
 
-    @Query("SELECT v FROM Vote v WHERE v.endDate < :now AND v.isActive = true")
-    List<Vote> findExpiredActiveVotes(@Param("now") LocalDateTime now);
+    @Query("SELECT DISTINCT v FROM Vote v LEFT JOIN FETCH v.options JOIN ChannelMember cm ON cm.channel = v.channel " +
+            "WHERE cm.userId = :userId AND cm.isActive = true AND v.isActive = true " +
+            "AND v.channel.buildingId = :buildingId ORDER BY v.createdAt DESC")
+    List<Vote> findActiveVotesForMemberInBuilding(@Param("userId") String userId, @Param("buildingId") String buildingId);
+
+    @Query("SELECT v.id FROM Vote v WHERE v.endDate <= :now AND v.isActive = true")
+    List<Long> findExpiredActiveVoteIds(@Param("now") LocalDateTime now);
+
+    @Query("SELECT v.id FROM Vote v WHERE v.id IN :voteIds AND v.endDate <= :now AND v.isActive = true")
+    List<Long> findExpiredActiveVoteIds(@Param("voteIds") Collection<Long> voteIds, @Param("now") LocalDateTime now);
+
+    @Query("SELECT v.id AS id, v.endDate AS endDate FROM Vote v WHERE v.isActive = true AND v.endDate IS NOT NULL")
+    List<DeadlineView> findActiveDeadlines();
+
+    // Clôture en une instruction ; un vote déjà clos (manuellement ou par une autre instance) est ignoré
+    @Modifying
+    @Query("UPDATE Vote v SET v.isActive = false, v.updatedAt = :now " +
+            "WHERE v.id IN :voteIds AND v.isActive = true AND v.endDate <= :now")
+    int closeExpired(@Param("voteIds") Collection<Long> voteIds, @Param("now") LocalDateTime now);
+
+    /**
+     * Comptabilise un votant et ses choix. Ne modifie rien si le vote a été clos entre-temps.
+     */
+    @Modifying
+    @Query("UPDATE Vote v SET v.totalVotes = v.totalVotes + :selections, v.voterCount = v.voterCount + 1 " +
+            "WHERE v.id = :voteId AND v.isActive = true")
+    int addTallies(@Param("voteId") Long voteId, @Param("selections") long selections);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE votes v SET " +
+            "total_votes = (SELECT COUNT(*) FROM user_votes uv WHERE uv.vote_id = v.id), " +
+            "voter_count = (SELECT COUNT(DISTINCT uv.user_id) FROM user_votes uv WHERE uv.vote_id = v.id) " +
+            "WHERE v.id IN (:voteIds)",
+            nativeQuery = true)
+    int recomputeTallies(@Param("voteIds") Collection<Long> voteIds);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE votes v SET " +
+            "total_votes = (SELECT COUNT(*) FROM user_votes uv WHERE uv.vote_id = v.id), " +
+            "voter_count = (SELECT COUNT(DISTINCT uv.user_id) FROM user_votes uv WHERE uv.vote_id = v.id) " +
+            "WHERE v.total_votes IS NULL OR v.voter_count IS NULL",
+            nativeQuery = true)
+    int backfillTallies();
+
+    interface DeadlineView {
+        Long getId();
+        LocalDateTime getEndDate();
+    }
 }
\ No newline at end of file
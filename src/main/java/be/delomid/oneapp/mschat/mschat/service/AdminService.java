@@ -28,7 +28,7 @@ public class AdminService {
     private final ApartmentRepository apartmentRepository;
     private final BuildingRepository buildingRepository;
     private final ResidentBuildingRepository residentBuildingRepository;
-    private final EmailService emailService;
+    private final OutboxService outboxService;
     private final PasswordEncoder passwordEncoder;
     
     @PreAuthorize("hasRole('BUILDING_ADMIN') or hasRole('GROUP_ADMIN') or hasRole('SUPER_ADMIN')")
@@ -77,7 +77,7 @@ public class AdminService {
         resident = residentRepository.save(resident);
         
         // Envoyer email de confirmation
-        emailService.sendAccountStatusEmail(
+        outboxService.enqueueAccountStatusEmail(
                 resident.getEmail(), 
                 "ACTIVE", 
                 "Votre compte a été approuvé et activé."
@@ -99,7 +99,7 @@ public class AdminService {
         residentRepository.save(resident);
         
         // Envoyer email de rejet
-        emailService.sendAccountStatusEmail(
+        outboxService.enqueueAccountStatusEmail(
                 resident.getEmail(), 
                 "REJECTED", 
                 reason != null ? reason : "Votre demande d'inscription a été rejetée."
@@ -121,7 +121,7 @@ public class AdminService {
         resident = residentRepository.save(resident);
         
         // Envoyer email de blocage
-        emailService.sendAccountStatusEmail(
+        outboxService.enqueueAccountStatusEmail(
                 resident.getEmail(), 
                 "BLOCKED", 
                 reason != null ? reason : "Votre compte a été bloqué."
@@ -144,7 +144,7 @@ public class AdminService {
         resident = residentRepository.save(resident);
         
         // Envoyer email de déblocage
-        emailService.sendAccountStatusEmail(
+        outboxService.enqueueAccountStatusEmail(
                 resident.getEmail(), 
                 "ACTIVE", 
                 "Votre compte a été débloqué et réactivé."
@@ -215,7 +215,7 @@ public class AdminService {
 
         residentBuildingRepository.save(residentBuilding);
 
-        emailService.sendWelcomeEmail(
+        outboxService.enqueueWelcomeEmail(
                 resident.getEmail(),
                 resident.getFname() + " " + resident.getLname(),
                 building.getBuildingLabel(),
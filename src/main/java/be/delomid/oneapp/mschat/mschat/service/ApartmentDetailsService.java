@@ -9,6 +9,7 @@ import be.delomid.oneapp.mschat.mschat.util.SecurityContextUtil;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -16,8 +17,11 @@ import org.springframework.web.multipart.MultipartFile;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,69 +37,87 @@ public class ApartmentDetailsService {
     private final ApartmentEnergieRepository energieRepository;
     private final ResidentBuildingRepository residentBuildingRepository;
     private final FileService fileService;
+    private final PhotoOrderService photoOrderService;
     private final ObjectMapper objectMapper;
 
+    @Value("${app.apartments.details-cache-max-entries:1000}")
+    private int detailsCacheMaxEntries;
+
+    // Détails déjà convertis par appartement, valides tant que details_version n'a pas changé (LRU)
+    private final Map<String, CachedDetails> detailsCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedDetails> eldest) {
+                    return size() > detailsCacheMaxEntries;
+                }
+            });
+
+    /**
+     * Lecture servie par le cache tant que la version des détails de l'appartement n'a pas
+     * changé ; sinon l'appartement et ses sections sont relus en une requête, plus les photos.
+     * Le DTO en cache n'est jamais exposé : chaque appelant reçoit sa propre copie.
+     */
     public ApartmentDetailsDto getApartmentDetails(String apartmentId) {
-        Apartment apartment = apartmentRepository.findById(apartmentId)
+        ApartmentRepository.DetailsVersionView version = apartmentRepository.findDetailsVersion(apartmentId)
                 .orElseThrow(() -> new RuntimeException("Apartment not found"));
 
         String residentId = SecurityContextUtil.getCurrentUserId();
-        verifyResidentHasAccess(residentId, apartment.getBuilding().getBuildingId(), apartmentId);
-
-        ApartmentDetailsDto dto = new ApartmentDetailsDto();
-        dto.setApartmentId(apartmentId);
-        dto.setApartmentNumber(apartment.getApartmentNumber());
-
-        List<ApartmentPhoto> photos = photoRepository.findByApartmentIdOrderByDisplayOrderAsc(apartmentId);
-        dto.setPhotos(photos.stream().map(this::convertToPhotoDto).collect(Collectors.toList()));
-
-        generalInfoRepository.findByApartmentId(apartmentId)
-                .ifPresent(info -> dto.setGeneralInfo(convertToGeneralInfoDto(info)));
-
-        interiorRepository.findByApartmentId(apartmentId)
-                .ifPresent(interior -> dto.setInterior(convertToInteriorDto(interior)));
-
-        exteriorRepository.findByApartmentId(apartmentId)
-                .ifPresent(exterior -> dto.setExterior(convertToExteriorDto(exterior)));
-
-        installationsRepository.findByApartmentId(apartmentId)
-                .ifPresent(installations -> dto.setInstallations(convertToInstallationsDto(installations)));
+        verifyResidentHasAccess(residentId, version.getBuildingId(), apartmentId);
 
-        energieRepository.findByApartmentId(apartmentId)
-                .ifPresent(energie -> dto.setEnergie(convertToEnergieDto(energie)));
+        CachedDetails cached = detailsCache.get(apartmentId);
+        if (cached != null && Objects.equals(cached.version(), version.getDetailsVersion())) {
+            return copyOf(cached.details());
+        }
 
+        ApartmentRepository.DetailsView details = apartmentRepository.findDetails(apartmentId)
+                .orElseThrow(() -> new RuntimeException("Apartment not found"));
+        ApartmentDetailsDto dto = convertToDetailsDto(details.getApartment(), details.getGeneralInfo(),
+                details.getInterior(), details.getExterior(), details.getInstallations(), details.getEnergie());
+        detailsCache.put(apartmentId, new CachedDetails(details.getApartment().getDetailsVersion(), copyOf(dto)));
         return dto;
     }
 
+    // Copie profonde (photos et sections comprises)
+    private ApartmentDetailsDto copyOf(ApartmentDetailsDto details) {
+        return objectMapper.convertValue(details, ApartmentDetailsDto.class);
+    }
+
     @Transactional
     public ApartmentDetailsDto updateApartmentDetails(String apartmentId, UpdateApartmentDetailsRequest request) {
-        Apartment apartment = apartmentRepository.findById(apartmentId)
+        ApartmentRepository.DetailsView details = apartmentRepository.findDetails(apartmentId)
                 .orElseThrow(() -> new RuntimeException("Apartment not found"));
+        Apartment apartment = details.getApartment();
 
         String residentId = SecurityContextUtil.getCurrentUserId();
         verifyResidentHasAccess(residentId, apartment.getBuilding().getBuildingId(), apartmentId);
 
+        ApartmentGeneralInfo generalInfo = details.getGeneralInfo();
         if (request.getGeneralInfo() != null) {
-            updateGeneralInfo(apartmentId, request.getGeneralInfo(), residentId);
+            generalInfo = updateGeneralInfo(generalInfo, apartmentId, request.getGeneralInfo(), residentId);
         }
 
+        ApartmentInterior interior = details.getInterior();
         if (request.getInterior() != null) {
-            updateInterior(apartmentId, request.getInterior(), residentId);
+            interior = updateInterior(interior, apartmentId, request.getInterior(), residentId);
         }
 
+        ApartmentExterior exterior = details.getExterior();
         if (request.getExterior() != null) {
-            updateExterior(apartmentId, request.getExterior(), residentId);
+            exterior = updateExterior(exterior, apartmentId, request.getExterior(), residentId);
         }
 
+        ApartmentInstallations installations = details.getInstallations();
         if (request.getInstallations() != null) {
-            updateInstallations(apartmentId, request.getInstallations(), residentId);
+            installations = updateInstallations(installations, apartmentId, request.getInstallations(), residentId);
         }
 
+        ApartmentEnergie energie = details.getEnergie();
         if (request.getEnergie() != null) {
-            updateEnergie(apartmentId, request.getEnergie(), residentId);
+            energie = updateEnergie(energie, apartmentId, request.getEnergie(), residentId);
         }
 
-        return getApartmentDetails(apartmentId);
+        apartmentRepository.incrementDetailsVersion(apartmentId);
+        return convertToDetailsDto(apartment, generalInfo, interior, exterior, installations, energie);
     }
 
     @Transactional
@@ -106,7 +128,8 @@ public class ApartmentDetailsService {
         String residentId = SecurityContextUtil.getCurrentUserId();
         verifyResidentHasAccess(residentId, apartment.getBuilding().getBuildingId(), apartmentId);
 
-        Map<String, Object> uploadResult = fileService.uploadFile(file, "IMAGE", residentId);
+        Map<String, Object> uploadResult = fileService.uploadFile(file, "IMAGE", residentId,
+                new StorageScope(apartment.getBuilding().getBuildingId(), apartmentId));
         String photoUrl = uploadResult.get("url").toString();
 
         List<ApartmentPhoto> existingPhotos = photoRepository.findByApartmentIdOrderByDisplayOrderAsc(apartmentId);
@@ -120,6 +143,7 @@ public class ApartmentDetailsService {
         photo.setUploadedBy(residentId);
 
         photo = photoRepository.save(photo);
+        apartmentRepository.incrementDetailsVersion(apartmentId);
         return convertToPhotoDto(photo);
     }
 
@@ -135,6 +159,8 @@ public class ApartmentDetailsService {
         verifyResidentHasAccess(residentId, apartment.getBuilding().getBuildingId(), photo.getApartmentId());
 
         photoRepository.delete(photo);
+        apartmentRepository.incrementDetailsVersion(photo.getApartmentId());
+        fileService.deleteFileByUrl(photo.getPhotoUrl(), residentId);
     }
 
     @Transactional
@@ -145,17 +171,8 @@ public class ApartmentDetailsService {
         String residentId = SecurityContextUtil.getCurrentUserId();
         verifyResidentHasAccess(residentId, apartment.getBuilding().getBuildingId(), apartmentId);
 
-        for (int i = 0; i < photoIds.size(); i++) {
-            Long photoId = photoIds.get(i);
-            final int displayOrder = i; // make a final copy of i
-            photoRepository.findById(photoId).ifPresent(photo -> {
-                if (photo.getApartmentId().equals(apartmentId)) {
-                    photo.setDisplayOrder(displayOrder);
-                    photoRepository.save(photo);
-                }
-            });
-        }
-
+        photoOrderService.reorder(photoRepository, apartmentId, photoIds);
+        apartmentRepository.incrementDetailsVersion(apartmentId);
     }
 
     private void verifyResidentHasAccess(String residentId, String buildingId, String apartmentId) {
@@ -168,9 +185,9 @@ public class ApartmentDetailsService {
         }
     }
 
-    private void updateGeneralInfo(String apartmentId, UpdateApartmentDetailsRequest.GeneralInfoRequest request, String residentId) {
-        ApartmentGeneralInfo info = generalInfoRepository.findByApartmentId(apartmentId)
-                .orElse(new ApartmentGeneralInfo());
+    private ApartmentGeneralInfo updateGeneralInfo(ApartmentGeneralInfo existing, String apartmentId,
+            UpdateApartmentDetailsRequest.GeneralInfoRequest request, String residentId) {
+        ApartmentGeneralInfo info = existing != null ? existing : new ApartmentGeneralInfo();
 
         info.setApartmentId(apartmentId);
         info.setNbChambres(request.getNbChambres());
@@ -180,12 +197,12 @@ public class ApartmentDetailsService {
         info.setUpdatedAt(LocalDateTime.now());
         info.setUpdatedBy(residentId);
 
-        generalInfoRepository.save(info);
+        return generalInfoRepository.save(info);
     }
 
-    private void updateInterior(String apartmentId, UpdateApartmentDetailsRequest.InteriorRequest request, String residentId) {
-        ApartmentInterior interior = interiorRepository.findByApartmentId(apartmentId)
-                .orElse(new ApartmentInterior());
+    private ApartmentInterior updateInterior(ApartmentInterior existing, String apartmentId,
+            UpdateApartmentDetailsRequest.InteriorRequest request, String residentId) {
+        ApartmentInterior interior = existing != null ? existing : new ApartmentInterior();
 
         interior.setApartmentId(apartmentId);
         interior.setQuartierLieu(request.getQuartierLieu());
@@ -209,12 +226,12 @@ public class ApartmentDetailsService {
         interior.setUpdatedAt(LocalDateTime.now());
         interior.setUpdatedBy(residentId);
 
-        interiorRepository.save(interior);
+        return interiorRepository.save(interior);
     }
 
-    private void updateExterior(String apartmentId, UpdateApartmentDetailsRequest.ExteriorRequest request, String residentId) {
-        ApartmentExterior exterior = exteriorRepository.findByApartmentId(apartmentId)
-                .orElse(new ApartmentExterior());
+    private ApartmentExterior updateExterior(ApartmentExterior existing, String apartmentId,
+            UpdateApartmentDetailsRequest.ExteriorRequest request, String residentId) {
+        ApartmentExterior exterior = existing != null ? existing : new ApartmentExterior();
 
         exterior.setApartmentId(apartmentId);
         exterior.setSurfaceTerrasse(request.getSurfaceTerrasse());
@@ -222,12 +239,12 @@ public class ApartmentDetailsService {
         exterior.setUpdatedAt(LocalDateTime.now());
         exterior.setUpdatedBy(residentId);
 
-        exteriorRepository.save(exterior);
+        return exteriorRepository.save(exterior);
     }
 
-    private void updateInstallations(String apartmentId, UpdateApartmentDetailsRequest.InstallationsRequest request, String residentId) {
-        ApartmentInstallations installations = installationsRepository.findByApartmentId(apartmentId)
-                .orElse(new ApartmentInstallations());
+    private ApartmentInstallations updateInstallations(ApartmentInstallations existing, String apartmentId,
+            UpdateApartmentDetailsRequest.InstallationsRequest request, String residentId) {
+        ApartmentInstallations installations = existing != null ? existing : new ApartmentInstallations();
 
         installations.setApartmentId(apartmentId);
         installations.setAscenseur(request.getAscenseur());
@@ -239,12 +256,12 @@ public class ApartmentDetailsService {
         installations.setUpdatedAt(LocalDateTime.now());
         installations.setUpdatedBy(residentId);
 
-        installationsRepository.save(installations);
+        return installationsRepository.save(installations);
     }
 
-    private void updateEnergie(String apartmentId, UpdateApartmentDetailsRequest.EnergieRequest request, String residentId) {
-        ApartmentEnergie energie = energieRepository.findByApartmentId(apartmentId)
-                .orElse(new ApartmentEnergie());
+    private ApartmentEnergie updateEnergie(ApartmentEnergie existing, String apartmentId,
+            UpdateApartmentDetailsRequest.EnergieRequest request, String residentId) {
+        ApartmentEnergie energie = existing != null ? existing : new ApartmentEnergie();
 
         energie.setApartmentId(apartmentId);
         energie.setClasseEnergetique(request.getClasseEnergetique());
@@ -257,7 +274,35 @@ public class ApartmentDetailsService {
         energie.setUpdatedAt(LocalDateTime.now());
         energie.setUpdatedBy(residentId);
 
-        energieRepository.save(energie);
+        return energieRepository.save(energie);
+    }
+
+    private ApartmentDetailsDto convertToDetailsDto(Apartment apartment, ApartmentGeneralInfo generalInfo,
+                                                    ApartmentInterior interior, ApartmentExterior exterior,
+                                                    ApartmentInstallations installations, ApartmentEnergie energie) {
+        ApartmentDetailsDto dto = new ApartmentDetailsDto();
+        dto.setApartmentId(apartment.getIdApartment());
+        dto.setApartmentNumber(apartment.getApartmentNumber());
+
+        List<ApartmentPhoto> photos = photoRepository.findByApartmentIdOrderByDisplayOrderAsc(apartment.getIdApartment());
+        dto.setPhotos(photos.stream().map(this::convertToPhotoDto).collect(Collectors.toList()));
+
+        if (generalInfo != null) {
+            dto.setGeneralInfo(convertToGeneralInfoDto(generalInfo));
+        }
+        if (interior != null) {
+            dto.setInterior(convertToInteriorDto(interior));
+        }
+        if (exterior != null) {
+            dto.setExterior(convertToExteriorDto(exterior));
+        }
+        if (installations != null) {
+            dto.setInstallations(convertToInstallationsDto(installations));
+        }
+        if (energie != null) {
+            dto.setEnergie(convertToEnergieDto(energie));
+        }
+        return dto;
     }
 
     private ApartmentPhotoDto convertToPhotoDto(ApartmentPhoto photo) {
@@ -346,4 +391,7 @@ public class ApartmentDetailsService {
                 energie.getUpdatedAt()
         );
     }
+
+    private record CachedDetails(Long version, ApartmentDetailsDto details) {
+    }
 }
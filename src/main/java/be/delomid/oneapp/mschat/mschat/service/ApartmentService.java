@@ -138,6 +138,8 @@ public class ApartmentService {
         apartment.setIsFurnished(request.getIsFurnished());
 
         apartment = apartmentRepository.save(apartment);
+        // Le numéro fait partie des détails mis en cache par ApartmentDetailsService
+        apartmentRepository.incrementDetailsVersion(apartmentId);
         return convertToDto(apartment);
     }
 
@@ -0,0 +1,94 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.config.AppConfig;
+import be.delomid.oneapp.mschat.mschat.exception.TooManyRequestsException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limitation de débit des endpoints /auth/** par token bucket, par adresse IP et par email.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AuthRateLimiter {
+
+    private static final long IDLE_EVICTION_MILLIS = 10 * 60 * 1000;
+
+    private final AppConfig appConfig;
+
+    private final Map<String, TokenBucket> ipBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> emailBuckets = new ConcurrentHashMap<>();
+
+    /**
+     * Retourne le nombre de secondes à attendre si l'IP a épuisé son quota, 0 sinon.
+     */
+    public long tryAcquireForIp(String ip) {
+        AppConfig.Security.RateLimit config = appConfig.getSecurity().getRateLimit();
+        TokenBucket bucket = ipBuckets.computeIfAbsent(ip,
+                k -> new TokenBucket(config.getIpCapacity(), config.getIpRefillPerMinute()));
+        return bucket.tryConsume();
+    }
+
+    public void checkEmail(String email) {
+        if (email == null) {
+            return;
+        }
+        AppConfig.Security.RateLimit config = appConfig.getSecurity().getRateLimit();
+        TokenBucket bucket = emailBuckets.computeIfAbsent(email.toLowerCase(),
+                k -> new TokenBucket(config.getEmailCapacity(), config.getEmailRefillPerMinute()));
+        long retryAfter = bucket.tryConsume();
+        if (retryAfter > 0) {
+            log.warn("Auth rate limit exceeded for email: {}", email);
+            throw new TooManyRequestsException("Trop de tentatives pour ce compte, veuillez réessayer plus tard", retryAfter);
+        }
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void evictIdleBuckets() {
+        long threshold = System.currentTimeMillis() - IDLE_EVICTION_MILLIS;
+        ipBuckets.values().removeIf(bucket -> bucket.lastAccess() < threshold);
+        emailBuckets.values().removeIf(bucket -> bucket.lastAccess() < threshold);
+    }
+
+    private static final class TokenBucket {
+        private final int capacity;
+        private final double tokensPerMilli;
+        private double tokens;
+        private long lastRefill;
+        private volatile long lastAccess;
+
+        private TokenBucket(int capacity, int refillPerMinute) {
+            this.capacity = capacity;
+            this.tokensPerMilli = refillPerMinute / 60000.0;
+            this.tokens = capacity;
+            this.lastRefill = System.currentTimeMillis();
+            this.lastAccess = lastRefill;
+        }
+
+        /**
+         * Consomme un jeton ; retourne 0 si accepté, sinon le délai d'attente en secondes.
+         */
+        private synchronized long tryConsume() {
+            long now = System.currentTimeMillis();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerMilli);
+            lastRefill = now;
+            lastAccess = now;
+
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerMilli / 1000));
+        }
+
+        private long lastAccess() {
+            return lastAccess;
+        }
+    }
+}
@@ -9,7 +9,9 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.Optional;
@@ -24,25 +26,33 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtConfig jwtConfig;
     private final OtpService otpService;
+    private final AuthRateLimiter authRateLimiter;
     private final EmailService emailService;
     private final ResidentBuildingRepository residentBuildingRepository;
+    private final PlatformTransactionManager transactionManager;
 
-    @Transactional
+    /**
+     * Le hachage BCrypt est calculé avant l'ouverture de la transaction :
+     * la connexion n'est retenue que pour l'insertion et l'OTP.
+     */
     public AuthResponse register(RegisterRequest request) {
         log.debug("Registering new user: {}", request.getEmail());
+        authRateLimiter.checkEmail(request.getEmail());
 
         // Vérifier si l'email existe déjà
         if (residentRepository.findByEmail(request.getEmail()).isPresent()) {
             throw new IllegalArgumentException("Email already exists");
         }
 
+        String encodedPassword = passwordEncoder.encode(request.getPassword());
+
         // Créer le résident
-        Resident resident = Resident.builder()
+        Resident newResident = Resident.builder()
                 .idUsers(UUID.randomUUID().toString())
                 .fname(request.getFname())
                 .lname(request.getLname())
                 .email(request.getEmail())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(encodedPassword)
                 .phoneNumber(request.getPhoneNumber())
                 .picture(request.getPicture())
                 .role(UserRole.RESIDENT)
@@ -50,10 +60,13 @@ public class AuthService {
                 .isEnabled(false)
                 .build();
 
-        resident = residentRepository.save(resident);
+        Resident resident = new TransactionTemplate(transactionManager).execute(status -> {
+            Resident saved = residentRepository.save(newResident);
 
-        // Générer et envoyer OTP pour vérification email
-        otpService.generateAndSendOtp(request.getEmail(), OtpType.REGISTRATION);
+            // Générer et envoyer OTP pour vérification email
+            otpService.generateAndSendOtp(request.getEmail(), OtpType.REGISTRATION);
+            return saved;
+        });
 
         return AuthResponse.builder()
                 .userId(resident.getIdUsers())
@@ -69,6 +82,7 @@ public class AuthService {
 
     @Transactional
     public AuthResponse verifyRegistration(VerifyOtpRequest request) {
+        authRateLimiter.checkEmail(request.getEmail());
         if (!otpService.verifyOtp(request.getEmail(), request.getOtpCode(), OtpType.REGISTRATION)) {
             throw new IllegalArgumentException("Code OTP invalide ou expiré");
         }
@@ -93,6 +107,7 @@ public class AuthService {
 
     public AuthResponse login(LoginRequest request) {
         log.debug("Login attempt for email: {}", request.getEmail());
+        authRateLimiter.checkEmail(request.getEmail());
 
         Resident resident = residentRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new IllegalArgumentException("Email ou mot de passe incorrect"));
@@ -129,6 +144,7 @@ public class AuthService {
     }
 
     public AuthResponse verifyLogin(VerifyOtpRequest request) {
+        authRateLimiter.checkEmail(request.getEmail());
         if (!otpService.verifyOtp(request.getEmail(), request.getOtpCode(), OtpType.LOGIN)) {
             throw new IllegalArgumentException("Code OTP invalide ou expiré");
         }
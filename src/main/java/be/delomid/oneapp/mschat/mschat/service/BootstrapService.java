@@ -0,0 +1,120 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.dto.ApartmentDto;
+import be.delomid.oneapp.mschat.mschat.dto.AppBootstrapDto;
+import be.delomid.oneapp.mschat.mschat.dto.BuildingSelectionDto;
+import be.delomid.oneapp.mschat.mschat.dto.ChannelDto;
+import be.delomid.oneapp.mschat.mschat.dto.VoteDto;
+import be.delomid.oneapp.mschat.mschat.exception.UnauthorizedAccessException;
+import be.delomid.oneapp.mschat.mschat.model.Resident;
+import be.delomid.oneapp.mschat.mschat.repository.ResidentRepository;
+import be.delomid.oneapp.mschat.mschat.util.SecurityContextUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Agrège en un seul appel les données nécessaires à l'écran d'accueil de l'application.
+ * L'identité est résolue une seule fois, puis les sous-requêtes indépendantes sont
+ * exécutées en parallèle, chacune dans sa propre transaction en lecture seule.
+ */
+@Service
+@Slf4j
+public class BootstrapService {
+
+    private static final int CHANNELS_PAGE_SIZE = 50;
+
+    private final ResidentRepository residentRepository;
+    private final BuildingSelectionService buildingSelectionService;
+    private final ApartmentService apartmentService;
+    private final ChannelService channelService;
+    private final NotificationService notificationService;
+    private final VoteService voteService;
+    private final ThreadPoolTaskExecutor bootstrapExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public BootstrapService(ResidentRepository residentRepository,
+                            BuildingSelectionService buildingSelectionService,
+                            ApartmentService apartmentService,
+                            ChannelService channelService,
+                            NotificationService notificationService,
+                            VoteService voteService,
+                            @Qualifier("bootstrapExecutor") ThreadPoolTaskExecutor bootstrapExecutor,
+                            PlatformTransactionManager transactionManager) {
+        this.residentRepository = residentRepository;
+        this.buildingSelectionService = buildingSelectionService;
+        this.apartmentService = apartmentService;
+        this.channelService = channelService;
+        this.notificationService = notificationService;
+        this.voteService = voteService;
+        this.bootstrapExecutor = bootstrapExecutor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public AppBootstrapDto getBootstrap(String userEmail) {
+        Resident user = residentRepository.findByEmail(userEmail)
+                .or(() -> residentRepository.findById(userEmail))
+                .orElseThrow(() -> new UnauthorizedAccessException("User not found"));
+        String residentId = user.getIdUsers();
+        String buildingId = SecurityContextUtil.getCurrentBuildingId();
+
+        log.debug("Bootstrapping app for user {} in building {}", residentId, buildingId);
+
+        CompletableFuture<List<BuildingSelectionDto>> buildings = async(() -> buildingSelectionService.getBuildingsForResident(residentId));
+        CompletableFuture<Long> unread = async(() -> notificationService.getUnreadCount(residentId));
+
+        CompletableFuture<ApartmentDto> apartment = CompletableFuture.completedFuture(null);
+        CompletableFuture<List<ChannelDto>> channels = CompletableFuture.completedFuture(Collections.emptyList());
+        CompletableFuture<Long> unreadForBuilding = CompletableFuture.completedFuture(null);
+        CompletableFuture<List<VoteDto>> votes = CompletableFuture.completedFuture(Collections.emptyList());
+
+        // Sans immeuble sélectionné, seule la liste des immeubles est pertinente
+        if (buildingId != null) {
+            apartment = async(() -> apartmentService.getCurrentUserApartment(buildingId, residentId))
+                    .exceptionally(ex -> {
+                        log.debug("No apartment for user {} in building {}", residentId, buildingId);
+                        return null;
+                    });
+            channels = async(() -> channelService
+                    .getUserChannelsInBuilding(user, buildingId, PageRequest.of(0, CHANNELS_PAGE_SIZE))
+                    .getContent());
+            unreadForBuilding = async(() -> notificationService.getUnreadCountForBuilding(residentId, buildingId));
+            votes = async(() -> voteService.getActiveVotesForUser(user, buildingId));
+        }
+
+        try {
+            return AppBootstrapDto.builder()
+                    .userId(residentId)
+                    .buildingId(buildingId)
+                    .buildings(buildings.join())
+                    .currentApartment(apartment.join())
+                    .channels(channels.join())
+                    .unreadNotifications(unread.join())
+                    .unreadNotificationsForBuilding(unreadForBuilding.join())
+                    .activeVotes(votes.join())
+                    .build();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(
+                () -> readOnlyTransaction.execute(status -> query.get()),
+                bootstrapExecutor);
+    }
+}
@@ -20,6 +20,7 @@ public class BuildingPhotoService {
 
     private final BuildingPhotoRepository buildingPhotoRepository;
     private final BuildingRepository buildingRepository;
+    private final PhotoOrderService photoOrderService;
 
     @Transactional
     public BuildingPhotoDto addPhoto(String buildingId, String photoUrl, String description, Integer order) {
@@ -71,6 +72,16 @@ public class BuildingPhotoService {
         return convertToDto(photo);
     }
 
+    /**
+     * Applique en une fois l'ordre complet des photos d'un immeuble (glisser-déposer).
+     */
+    @Transactional
+    public List<BuildingPhotoDto> reorderPhotos(String buildingId, List<Long> photoIds) {
+        log.debug("Reordering {} photos of building: {}", photoIds.size(), buildingId);
+        photoOrderService.reorder(buildingPhotoRepository, buildingId, photoIds);
+        return getPhotosByBuildingId(buildingId);
+    }
+
     private BuildingPhotoDto convertToDto(BuildingPhoto photo) {
         return BuildingPhotoDto.builder()
                 .id(photo.getId())
@@ -32,7 +32,11 @@ public class BuildingSelectionService {
                 .or(() -> residentRepository.findById(userId))
                 .orElseThrow(() -> new IllegalArgumentException("User not found: " + userId));
 
-        List<ResidentBuilding> residentBuildings = residentBuildingRepository.findActiveByResidentId(resident.getIdUsers());
+        return getBuildingsForResident(resident.getIdUsers());
+    }
+
+    public List<BuildingSelectionDto> getBuildingsForResident(String residentId) {
+        List<ResidentBuilding> residentBuildings = residentBuildingRepository.findActiveByResidentId(residentId);
 
         return residentBuildings.stream()
                 .map(this::convertToDto)
@@ -6,9 +6,13 @@ import be.delomid.oneapp.mschat.mschat.model.*;
 import be.delomid.oneapp.mschat.mschat.repository.*;
 import be.delomid.oneapp.mschat.mschat.util.PictureUrlUtil;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -19,6 +23,7 @@ import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class CallService {
 
     private final CallRepository callRepository;
@@ -26,7 +31,9 @@ public class CallService {
     private final ResidentRepository residentRepository;
     private final MessageRepository messageRepository;
     private final SimpMessagingTemplate messagingTemplate;
+    private final OutboxService outboxService;
     private final org.springframework.messaging.simp.user.SimpUserRegistry simpUserRegistry;
+    private final PlatformTransactionManager transactionManager;
     private final NotificationService notificationService;
     private final FCMService fcmService;
 
@@ -211,52 +218,62 @@ public class CallService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Le message d'appel, sa notification et sa diffusion sont écrits dans une transaction
+     * séparée : un échec est annulé seul, sans marquer la transaction de l'appel rollback-only.
+     */
     private void createCallMessage(Call call) {
+        TransactionTemplate messageTransaction = new TransactionTemplate(transactionManager);
+        messageTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
         try {
-            Message message = Message.builder()
-                    .channel(call.getChannel())
-                    .senderId(call.getCaller().getIdUsers())
-                    .content("Appel " + (call.getStatus() == CallStatus.MISSED ? "manqué" : "refusé"))
-                    .type(MessageType.CALL)
-                    .callId(call.getId())
-                    .isEdited(false)
-                    .isDeleted(false)
-                    .build();
-
-            messageRepository.save(message);
-            notificationService.createNotification(
-                    call.getReceiver().getIdUsers(),
-                    call.getChannel().getBuildingId(),
-                    "Appel manqué",
-                    "Vous avez manqué un appel de :"+ call.getCaller().getFname() +" "+ call.getCaller().getLname(),
-                    "MESSAGE",
-                    call.getChannel().getId(),
-                    null,
-                    null
-            );
-            // Envoyer le message via WebSocket
-        MessageDto messageDto = MessageDto.builder()
-                    .id(message.getId())
-                    .channelId(message.getChannel().getId())
-                    .senderId(message.getSenderId())
-                    .senderFname(call.getCaller().getFname())
-                    .senderLname(call.getCaller().getLname())
-                    .senderPicture(PictureUrlUtil.normalizePictureUrl(call.getCaller().getPicture()))
-                    .content(message.getContent())
-                    .type(message.getType())
-                    .callData(buildCallData(call))
-                    .isEdited(message.getIsEdited())
-                    .isDeleted(message.getIsDeleted())
-                    .createdAt(message.getCreatedAt())
-                    .build();
-
-            messagingTemplate.convertAndSend("/topic/channel/" + call.getChannel().getId(), messageDto);
+            messageTransaction.executeWithoutResult(status -> writeCallMessage(call));
         } catch (Exception e) {
             // Log l'erreur mais ne pas faire échouer l'appel
-            System.err.println("Error creating call message: " + e.getMessage());
+            log.error("Error creating call message for call {}: {}", call.getId(), e.getMessage(), e);
         }
     }
 
+    private void writeCallMessage(Call call) {
+        Message message = Message.builder()
+                .channel(call.getChannel())
+                .senderId(call.getCaller().getIdUsers())
+                .content("Appel " + (call.getStatus() == CallStatus.MISSED ? "manqué" : "refusé"))
+                .type(MessageType.CALL)
+                .callId(call.getId())
+                .isEdited(false)
+                .isDeleted(false)
+                .build();
+
+        messageRepository.save(message);
+        notificationService.createNotification(
+                call.getReceiver().getIdUsers(),
+                call.getChannel().getBuildingId(),
+                "Appel manqué",
+                "Vous avez manqué un appel de :"+ call.getCaller().getFname() +" "+ call.getCaller().getLname(),
+                "MESSAGE",
+                call.getChannel().getId(),
+                null,
+                null
+        );
+        // Envoyer le message via WebSocket
+        MessageDto messageDto = MessageDto.builder()
+                .id(message.getId())
+                .channelId(message.getChannel().getId())
+                .senderId(message.getSenderId())
+                .senderFname(call.getCaller().getFname())
+                .senderLname(call.getCaller().getLname())
+                .senderPicture(PictureUrlUtil.normalizePictureUrl(call.getCaller().getPicture()))
+                .content(message.getContent())
+                .type(message.getType())
+                .callData(buildCallData(call))
+                .isEdited(message.getIsEdited())
+                .isDeleted(message.getIsDeleted())
+                .createdAt(message.getCreatedAt())
+                .build();
+
+        outboxService.enqueueTopicMessage("/topic/channel/" + call.getChannel().getId(), messageDto);
+    }
+
     private Map<String, Object> buildCallData(Call call) {
         Map<String, Object> callData = new HashMap<>();
         callData.put("callId", call.getId());
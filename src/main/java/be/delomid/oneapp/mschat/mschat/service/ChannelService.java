@@ -164,11 +164,15 @@ public class ChannelService {
             throw new UnauthorizedAccessException("No building selected. Please select a building first.");
         }
 
+        return getUserChannelsInBuilding(user, currentBuildingId, pageable);
+    }
+
+    public Page<ChannelDto> getUserChannelsInBuilding(Resident user, String buildingId, Pageable pageable) {
         // Utiliser l'ID utilisateur réel pour la requête avec filtrage par bâtiment
-        log.info("Fetching channels for userId: {} and buildingId: {}", user.getIdUsers(), currentBuildingId);
-        Page<Channel> channels = channelRepository.findChannelsByUserIdAndBuilding(user.getIdUsers(), currentBuildingId, pageable);
-        log.info("Found {} channels for user {} in building {}", channels.getTotalElements(), userId, currentBuildingId);
-        return channels.map(channel -> convertToDto(channel, userId));
+        log.info("Fetching channels for userId: {} and buildingId: {}", user.getIdUsers(), buildingId);
+        Page<Channel> channels = channelRepository.findChannelsByUserIdAndBuilding(user.getIdUsers(), buildingId, pageable);
+        log.info("Found {} channels for user {} in building {}", channels.getTotalElements(), user.getIdUsers(), buildingId);
+        return channels.map(channel -> convertToDto(channel, user.getIdUsers()));
     }
 
     public ChannelDto getChannelById(Long channelId, String userId) {
@@ -0,0 +1,400 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.config.AppConfig;
+import be.delomid.oneapp.mschat.mschat.dto.InitUploadRequest;
+import be.delomid.oneapp.mschat.mschat.dto.UploadSessionDto;
+import be.delomid.oneapp.mschat.mschat.exception.TooManyRequestsException;
+import be.delomid.oneapp.mschat.mschat.model.UploadSession;
+import be.delomid.oneapp.mschat.mschat.model.UploadTarget;
+import be.delomid.oneapp.mschat.mschat.repository.UploadSessionRepository;
+import be.delomid.oneapp.mschat.mschat.util.SecurityContextUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Uploads fragmentés et reprenables : init, envoi de fragments à un offset, finalisation.
+ *
+ * Chaque fragment est écrit par écritures positionnelles dans un fichier de staging, avec
+ * un tampon fixe de 64 Ko : la mémoire utilisée ne dépend pas de la taille du fichier.
+ * La progression est persistée après chaque fragment (y compris interrompu), le client
+ * reprend à {@code receivedBytes}. Le SHA-256 est calculé au fil de l'eau et recalculé
+ * depuis le fichier de staging si l'état en mémoire est perdu (redémarrage, autre instance)
+ * ou si un fragment renvoyé a réécrit des octets déjà comptés.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkedUploadService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String STAGING_DIR = ".staging";
+    private static final long OPEN_SESSIONS_RETRY_AFTER_SECONDS = 60;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final DocumentService documentService;
+    private final FileService fileService;
+    private final StorageQuotaService storageQuotaService;
+    private final AppConfig appConfig;
+
+    private final Map<String, UploadState> states = new ConcurrentHashMap<>();
+
+    @Value("${app.documents.base-dir:documents}")
+    private String baseDocumentsDir;
+
+    @Value("${app.file.upload-dir:uploads}")
+    private String uploadDir;
+
+    public UploadSessionDto initUpload(InitUploadRequest request, String email) {
+        UploadTarget target = parseTarget(request.getTarget());
+        AppConfig.Upload config = appConfig.getUpload();
+
+        if (request.getTotalSize() > config.getMaxTotalSize()) {
+            throw new IllegalArgumentException("Le fichier dépasse la taille maximale autorisée de "
+                    + (config.getMaxTotalSize() / 1024 / 1024) + " MB");
+        }
+        if (uploadSessionRepository.countByUploadedBy(email) >= config.getMaxOpenSessionsPerUser()) {
+            throw new TooManyRequestsException("Trop d'uploads en cours (" + config.getMaxOpenSessionsPerUser()
+                    + " maximum) : terminez ou annulez un upload existant", OPEN_SESSIONS_RETRY_AFTER_SECONDS);
+        }
+
+        UploadSession.UploadSessionBuilder builder = UploadSession.builder()
+                .id(UUID.randomUUID().toString())
+                .uploadedBy(email)
+                .target(target)
+                .originalFilename(request.getFilename())
+                .mimeType(request.getMimeType())
+                .totalSize(request.getTotalSize())
+                .expectedChecksum(request.getChecksum() != null ? request.getChecksum().toLowerCase() : null)
+                .updatedAt(LocalDateTime.now());
+
+        if (target == UploadTarget.DOCUMENT) {
+            if (request.getFolderId() == null) {
+                throw new IllegalArgumentException("Le dossier de destination est requis");
+            }
+            // Refuser dès l'init plutôt qu'après l'envoi de centaines de Mo
+            documentService.checkUploadAllowed(request.getFolderId(), email);
+            builder.folderId(request.getFolderId())
+                    .buildingId(SecurityContextUtil.getCurrentBuildingId())
+                    .description(request.getDescription());
+        } else {
+            if (request.getFileType() == null) {
+                throw new IllegalArgumentException("Le type de fichier est requis");
+            }
+            fileService.validateContentType(request.getMimeType(), request.getFileType());
+            builder.fileType(request.getFileType().toUpperCase());
+        }
+
+        // Le quota est réservé à la finalisation ; d'ici là, les sessions ouvertes du périmètre
+        // (fichiers de staging) sont comptées avec l'espace utilisé. Refuser dès maintenant s'il est insuffisant.
+        StorageScope scope = storageQuotaService.currentScope();
+        storageQuotaService.checkAvailable(scope, request.getTotalSize(),
+                scope.buildingId() != null ? uploadSessionRepository.sumOpenBytesByBuilding(scope.buildingId()) : 0L,
+                scope.apartmentId() != null ? uploadSessionRepository.sumOpenBytesByApartment(scope.apartmentId()) : 0L);
+
+        UploadSession session = builder
+                .quotaBuildingId(scope.buildingId())
+                .quotaApartmentId(scope.apartmentId())
+                .build();
+        try {
+            Path stagingFile = stagingFile(session);
+            Files.createDirectories(stagingFile.getParent());
+            Files.createFile(stagingFile);
+        } catch (IOException e) {
+            log.error("Erreur lors de la création du fichier de staging", e);
+            throw new RuntimeException("Impossible d'initialiser l'upload", e);
+        }
+
+        session = uploadSessionRepository.save(session);
+        states.put(session.getId(), new UploadState());
+
+        log.info("Upload fragmenté initialisé: {} ({} octets, {}) par {}",
+                session.getId(), session.getTotalSize(), target, email);
+        return toDto(session, 0L);
+    }
+
+    public UploadSessionDto appendChunk(String uploadId, long offset, InputStream body, String email) {
+        // Valider avant de créer l'état : un id inconnu ne doit rien laisser en mémoire
+        getOwnedSession(uploadId, email);
+        UploadState state = states.computeIfAbsent(uploadId, id -> new UploadState());
+        boolean ended = false;
+        state.lock.lock();
+        try {
+            // Relu sous verrou : la progression a pu avancer, ou la session être finalisée entre-temps
+            UploadSession session = uploadSessionRepository.findById(uploadId).orElse(null);
+            if (session == null) {
+                ended = true;
+                throw new RuntimeException("Upload non trouvé");
+            }
+            long received = session.getReceivedBytes();
+
+            if (offset < 0 || offset > received) {
+                throw new IllegalArgumentException("Offset invalide: " + offset + ", reprendre à " + received);
+            }
+
+            Path stagingFile = stagingFile(session);
+            state.ensureDigest(stagingFile, received);
+
+            long limit = Math.min(session.getTotalSize(), offset + appConfig.getUpload().getMaxChunkSize());
+            long position = offset;
+            boolean tooLarge = false;
+            IOException interruption = null;
+
+            try (FileChannel channel = FileChannel.open(stagingFile, StandardOpenOption.WRITE)) {
+                byte[] array = new byte[BUFFER_SIZE];
+                ByteBuffer buffer = ByteBuffer.wrap(array);
+                try {
+                    int read;
+                    // Lire un octet de plus que la limite permet de détecter un fragment trop long
+                    while ((read = body.read(array, 0, (int) Math.min(array.length, limit - position + 1))) != -1) {
+                        if (position + read > limit) {
+                            tooLarge = true;
+                            break;
+                        }
+                        buffer.clear().limit(read);
+                        long writePosition = position;
+                        while (buffer.hasRemaining()) {
+                            writePosition += channel.write(buffer, writePosition);
+                        }
+                        state.update(array, position, read);
+                        position += read;
+                    }
+                } catch (IOException e) {
+                    // Connexion coupée : conserver ce qui a été reçu, le client reprendra
+                    interruption = e;
+                }
+                channel.force(false);
+            }
+
+            long newReceived = Math.max(received, position);
+            if (newReceived > received
+                    && uploadSessionRepository.advanceReceivedBytes(uploadId, received, newReceived, LocalDateTime.now()) == 0) {
+                ended = true;
+                throw new IllegalStateException("Upload modifié en parallèle, reprendre depuis le statut");
+            }
+
+            if (tooLarge) {
+                throw new IllegalArgumentException("Fragment trop volumineux, reprendre à " + newReceived);
+            }
+            if (interruption != null) {
+                log.warn("Fragment interrompu pour l'upload {} à l'octet {}: {}", uploadId, newReceived, interruption.getMessage());
+                throw new RuntimeException("Fragment interrompu, reprendre à " + newReceived, interruption);
+            }
+
+            return toDto(session, newReceived);
+        } catch (IOException e) {
+            ended = true;
+            log.error("Erreur d'écriture du fragment pour l'upload {}", uploadId, e);
+            throw new RuntimeException("Erreur lors de l'écriture du fragment", e);
+        } finally {
+            if (ended) {
+                states.remove(uploadId, state);
+            }
+            state.lock.unlock();
+        }
+    }
+
+    public Object completeUpload(String uploadId, String email) {
+        getOwnedSession(uploadId, email);
+        UploadState state = states.computeIfAbsent(uploadId, id -> new UploadState());
+        // Le condensat est consommé par la finalisation : l'état n'est conservé que si l'upload reste à compléter
+        boolean keepState = false;
+        state.lock.lock();
+        try {
+            UploadSession session = getOwnedSession(uploadId, email);
+            if (!session.getReceivedBytes().equals(session.getTotalSize())) {
+                keepState = true;
+                throw new IllegalArgumentException("Upload incomplet: " + session.getReceivedBytes()
+                        + "/" + session.getTotalSize() + " octets reçus");
+            }
+
+            Path stagingFile = stagingFile(session);
+            state.ensureDigest(stagingFile, session.getTotalSize());
+            String checksum = HexFormat.of().formatHex(state.digest.digest());
+
+            if (session.getExpectedChecksum() != null && !session.getExpectedChecksum().equals(checksum)) {
+                throw new IllegalArgumentException("Checksum invalide: le fichier reçu est corrompu");
+            }
+
+            // Un fragment réécrit plus court a pu laisser des octets au-delà de la taille annoncée
+            try (FileChannel channel = FileChannel.open(stagingFile, StandardOpenOption.WRITE)) {
+                channel.truncate(session.getTotalSize());
+            }
+
+            Object result;
+            if (session.getTarget() == UploadTarget.DOCUMENT) {
+                if (!Objects.equals(session.getBuildingId(), SecurityContextUtil.getCurrentBuildingId())) {
+                    throw new RuntimeException("L'upload a été initialisé pour un autre immeuble");
+                }
+                result = documentService.registerUploadedDocument(session.getFolderId(), stagingFile,
+                        session.getOriginalFilename(), session.getMimeType(), session.getTotalSize(),
+                        session.getDescription(), email, appConfig.getUpload().getMaxTotalSize());
+            } else {
+                result = fileService.registerUploadedFile(stagingFile, session.getOriginalFilename(),
+                        session.getMimeType(), session.getTotalSize(), session.getFileType(), email);
+            }
+
+            uploadSessionRepository.deleteById(uploadId);
+            log.info("Upload fragmenté finalisé: {} (sha256={})", uploadId, checksum);
+            return result;
+        } catch (IOException e) {
+            log.error("Erreur lors de la finalisation de l'upload {}", uploadId, e);
+            throw new RuntimeException("Erreur lors de la finalisation de l'upload", e);
+        } finally {
+            if (!keepState) {
+                states.remove(uploadId, state);
+            }
+            state.lock.unlock();
+        }
+    }
+
+    public UploadSessionDto getStatus(String uploadId, String email) {
+        UploadSession session = getOwnedSession(uploadId, email);
+        return toDto(session, session.getReceivedBytes());
+    }
+
+    public void abortUpload(String uploadId, String email) {
+        getOwnedSession(uploadId, email);
+        UploadState state = states.computeIfAbsent(uploadId, id -> new UploadState());
+        state.lock.lock();
+        try {
+            UploadSession session = getOwnedSession(uploadId, email);
+            deleteSession(session);
+            log.info("Upload fragmenté annulé: {}", uploadId);
+        } finally {
+            states.remove(uploadId, state);
+            state.lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelay = 3600000) // Toutes les heures
+    public void cleanupExpiredSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(appConfig.getUpload().getSessionTtlHours());
+        List<UploadSession> expired = uploadSessionRepository.findByUpdatedAtBefore(cutoff);
+        for (UploadSession session : expired) {
+            deleteSession(session);
+            states.remove(session.getId());
+        }
+        if (!expired.isEmpty()) {
+            log.info("{} uploads fragmentés expirés supprimés", expired.size());
+        }
+    }
+
+    private void deleteSession(UploadSession session) {
+        try {
+            Files.deleteIfExists(stagingFile(session));
+        } catch (IOException e) {
+            log.warn("Impossible de supprimer le fichier de staging de l'upload {}: {}", session.getId(), e.getMessage());
+        }
+        uploadSessionRepository.deleteById(session.getId());
+    }
+
+    private UploadSession getOwnedSession(String uploadId, String email) {
+        return uploadSessionRepository.findById(uploadId)
+                .filter(session -> session.getUploadedBy().equals(email))
+                .orElseThrow(() -> new RuntimeException("Upload non trouvé"));
+    }
+
+    /**
+     * Le staging est placé sous le répertoire de destination pour que le déplacement
+     * final reste un simple renommage sur le même système de fichiers.
+     */
+    private Path stagingFile(UploadSession session) {
+        String baseDir = session.getTarget() == UploadTarget.DOCUMENT ? baseDocumentsDir : uploadDir;
+        return Paths.get(baseDir, STAGING_DIR, session.getId() + ".upload");
+    }
+
+    private UploadTarget parseTarget(String target) {
+        try {
+            return UploadTarget.valueOf(target.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cible d'upload invalide: " + target);
+        }
+    }
+
+    private UploadSessionDto toDto(UploadSession session, long receivedBytes) {
+        return UploadSessionDto.builder()
+                .uploadId(session.getId())
+                .target(session.getTarget().name())
+                .filename(session.getOriginalFilename())
+                .totalSize(session.getTotalSize())
+                .receivedBytes(receivedBytes)
+                .maxChunkSize(appConfig.getUpload().getMaxChunkSize())
+                .expiresAt(LocalDateTime.now().plusHours(appConfig.getUpload().getSessionTtlHours()))
+                .build();
+    }
+
+    private static final class UploadState {
+        private final ReentrantLock lock = new ReentrantLock();
+        private MessageDigest digest;
+        private long digestOffset = -1;
+
+        /**
+         * Garantit que le condensat couvre exactement les {@code length} premiers octets du staging.
+         */
+        private void ensureDigest(Path stagingFile, long length) throws IOException {
+            if (digest != null && digestOffset == length) {
+                return;
+            }
+            MessageDigest rebuilt = newDigest();
+            try (InputStream in = Files.newInputStream(stagingFile)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long remaining = length;
+                int read;
+                while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                    rebuilt.update(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+            digest = rebuilt;
+            digestOffset = length;
+        }
+
+        /**
+         * Ajoute le bloc au condensat. Un fragment renvoyé qui recouvre des octets déjà comptés
+         * a pu les modifier : le condensat est alors abandonné et sera recalculé depuis le
+         * fichier de staging au prochain {@link #ensureDigest}.
+         */
+        private void update(byte[] bytes, long position, int length) {
+            if (digest == null) {
+                return;
+            }
+            if (position < digestOffset) {
+                digest = null;
+                digestOffset = -1;
+                return;
+            }
+            digest.update(bytes, 0, length);
+            digestOffset = position + length;
+        }
+
+        private static MessageDigest newDigest() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    }
+}
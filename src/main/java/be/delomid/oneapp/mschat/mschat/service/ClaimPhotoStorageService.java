@@ -0,0 +1,207 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.exception.StorageQuotaExceededException;
+import be.delomid.oneapp.mschat.mschat.model.Claim;
+import be.delomid.oneapp.mschat.mschat.model.ClaimPhoto;
+import be.delomid.oneapp.mschat.mschat.repository.ClaimPhotoRepository;
+import be.delomid.oneapp.mschat.mschat.util.FileStorageUtil;
+import be.delomid.oneapp.mschat.mschat.util.ImageResizeUtil;
+import be.delomid.oneapp.mschat.mschat.util.TransactionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Stockage des photos de sinistre : les fichiers sont écrits en parallèle sur un pool
+ * d'E/S borné avant l'ouverture de la transaction, les lignes sont insérées ensuite en
+ * un seul lot, et les vignettes sont générées en arrière-plan après le commit. Les vignettes
+ * sont inscrites au registre des fichiers et comptées dans le quota du sinistre, comme l'original.
+ */
+@Service
+@Slf4j
+public class ClaimPhotoStorageService {
+
+    private static final String THUMBNAIL_SUFFIX = "_thumb.jpg";
+
+    private final FileService fileService;
+    private final StorageQuotaService storageQuotaService;
+    private final ClaimPhotoRepository claimPhotoRepository;
+    private final ThreadPoolTaskExecutor fileIoExecutor;
+    private final ThreadPoolTaskExecutor previewExecutor;
+
+    @Value("${app.claims.thumbnail-max-dimension:320}")
+    private int thumbnailMaxDimension;
+
+    @Value("${app.documents.preview.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    public ClaimPhotoStorageService(FileService fileService,
+                                    StorageQuotaService storageQuotaService,
+                                    ClaimPhotoRepository claimPhotoRepository,
+                                    @Qualifier("fileIoExecutor") ThreadPoolTaskExecutor fileIoExecutor,
+                                    @Qualifier("previewExecutor") ThreadPoolTaskExecutor previewExecutor) {
+        this.fileService = fileService;
+        this.storageQuotaService = storageQuotaService;
+        this.claimPhotoRepository = claimPhotoRepository;
+        this.fileIoExecutor = fileIoExecutor;
+        this.previewExecutor = previewExecutor;
+    }
+
+    /**
+     * Écrit toutes les photos en parallèle et retourne leurs URLs dans l'ordre reçu.
+     * Si une seule échoue, les fichiers déjà écrits sont supprimés (et leur quota libéré).
+     * À appeler hors transaction : aucune connexion n'est retenue pendant les écritures.
+     */
+    public List<String> storePhotos(List<MultipartFile> photos, String residentId, StorageScope scope) {
+        if (photos == null || photos.isEmpty()) {
+            return List.of();
+        }
+
+        List<CompletableFuture<String>> uploads = new ArrayList<>(photos.size());
+        for (int i = 0; i < photos.size(); i++) {
+            MultipartFile photo = photos.get(i);
+            int number = i + 1;
+            uploads.add(CompletableFuture.supplyAsync(() -> upload(photo, number, residentId, scope), fileIoExecutor));
+        }
+
+        try {
+            CompletableFuture.allOf(uploads.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            discard(uploads.stream()
+                    .filter(upload -> !upload.isCompletedExceptionally())
+                    .map(CompletableFuture::join)
+                    .toList());
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return uploads.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Insère les lignes des photos en un lot, puis planifie les vignettes après le commit.
+     */
+    public List<ClaimPhoto> savePhotos(Claim claim, List<String> photoUrls) {
+        if (photoUrls.isEmpty()) {
+            return List.of();
+        }
+
+        List<ClaimPhoto> photos = new ArrayList<>(photoUrls.size());
+        for (int i = 0; i < photoUrls.size(); i++) {
+            ClaimPhoto photo = new ClaimPhoto();
+            photo.setClaim(claim);
+            photo.setPhotoUrl(photoUrls.get(i));
+            photo.setPhotoOrder(i);
+            photos.add(photo);
+        }
+        photos = claimPhotoRepository.saveAll(photos);
+
+        StorageScope scope = new StorageScope(claim.getBuilding().getBuildingId(),
+                claim.getApartment() != null ? claim.getApartment().getIdApartment() : null);
+        List<ThumbnailSource> sources = photos.stream()
+                .map(photo -> new ThumbnailSource(photo.getId(), fileService.fileIdFromUrl(photo.getPhotoUrl()), scope))
+                .toList();
+        TransactionUtil.afterCommit(() -> sources.forEach(this::requestThumbnail));
+        return photos;
+    }
+
+    /**
+     * Supprime des fichiers déjà écrits dont la transaction n'a pas abouti.
+     */
+    public void discard(List<String> photoUrls) {
+        for (String photoUrl : photoUrls) {
+            try {
+                fileService.deleteFileByUrl(photoUrl, null);
+            } catch (Exception e) {
+                log.warn("Impossible de supprimer la photo orpheline {}: {}", photoUrl, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Supprime les fichiers d'une photo (original et vignette).
+     */
+    public void deleteFiles(ClaimPhoto photo) {
+        fileService.deleteFileByUrl(photo.getPhotoUrl(), null);
+        fileService.deleteFileByUrl(photo.getThumbnailUrl(), null);
+    }
+
+    private String upload(MultipartFile photo, int number, String residentId, StorageScope scope) {
+        try {
+            return fileService.uploadFile(photo, "IMAGE", residentId, scope).get("url").toString();
+        } catch (StorageQuotaExceededException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to upload photo " + number + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void requestThumbnail(ThumbnailSource source) {
+        try {
+            previewExecutor.execute(() -> {
+                try {
+                    generateThumbnail(source);
+                } catch (Exception e) {
+                    log.warn("Vignette impossible pour la photo {}: {}", source.photoId(), e.getMessage());
+                }
+            });
+        } catch (TaskRejectedException e) {
+            // La photo reste affichée en taille réelle
+            log.debug("Pool saturé, vignette ignorée pour la photo {}", source.photoId());
+        }
+    }
+
+    private void generateThumbnail(ThumbnailSource source) throws IOException {
+        BufferedImage image = ImageResizeUtil.readImage(fileService.filePath(source.fileId()), thumbnailMaxDimension);
+        if (image == null) {
+            return;
+        }
+
+        String baseName = source.fileId().contains(".")
+                ? source.fileId().substring(0, source.fileId().lastIndexOf('.'))
+                : source.fileId();
+        String thumbnailId = baseName + THUMBNAIL_SUFFIX;
+        Path target = fileService.filePath(thumbnailId);
+        Path temp = target.resolveSibling(thumbnailId + ".tmp");
+        ImageResizeUtil.writeJpeg(ImageResizeUtil.scale(image, thumbnailMaxDimension), temp, jpegQuality);
+
+        long size = Files.size(temp);
+        try {
+            storageQuotaService.reserveStoredFile(thumbnailId, source.scope(), null, size);
+        } catch (StorageQuotaExceededException e) {
+            // Quota atteint : la photo reste affichée en taille réelle
+            Files.deleteIfExists(temp);
+            log.debug("Quota atteint, vignette ignorée pour la photo {}", source.photoId());
+            return;
+        }
+        try {
+            FileStorageUtil.moveAtomically(temp, target);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            storageQuotaService.cancelStoredFile(thumbnailId, source.scope(), size);
+            throw e;
+        }
+
+        if (claimPhotoRepository.updateThumbnailUrl(source.photoId(), fileService.fileUrl(thumbnailId)) == 0) {
+            // Sinistre supprimé entre-temps
+            fileService.deleteFile(thumbnailId, null);
+        }
+    }
+
+    private record ThumbnailSource(Long photoId, String fileId, StorageScope scope) {
+    }
+}
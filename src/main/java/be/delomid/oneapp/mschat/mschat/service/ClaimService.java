@@ -6,14 +6,21 @@ import be.delomid.oneapp.mschat.mschat.repository.*;
 import be.delomid.oneapp.mschat.mschat.util.PictureUrlUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -23,6 +30,10 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ClaimService {
 
+    // Bornes par défaut des filtres de date : la requête reste une plage simple sur l'index, sans "IS NULL OR"
+    private static final LocalDateTime MIN_CREATED_AT = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_CREATED_AT = LocalDateTime.of(9999, 12, 31, 0, 0);
+
      private final ClaimRepository claimRepository;
 
      private final ClaimAffectedApartmentRepository claimAffectedApartmentRepository;
@@ -37,7 +48,9 @@ public class ClaimService {
 
      private final ResidentBuildingRepository residentBuildingRepository;
 
-     private final FileService fileService;
+     private final ClaimPhotoStorageService claimPhotoStorageService;
+
+     private final PlatformTransactionManager transactionManager;
 
      private final NotificationService notificationService;
 
@@ -47,9 +60,32 @@ public class ClaimService {
 
      private final FolderRepository folderRepository;
 
-    @Transactional
+     private final FolderHierarchyService folderHierarchyService;
+
+     private final ClaimStatsService claimStatsService;
+
+    /**
+     * Les photos sont écrites sur disque (en parallèle) avant l'ouverture de la transaction :
+     * la connexion n'est retenue que pour les insertions.
+     */
     public ClaimDto createClaim(String residentId, CreateClaimRequest request, List<MultipartFile> photos) {
-        Resident reporter = residentRepository.findById(residentId)
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        StorageScope scope = readOnlyTransaction.execute(status -> validateReporter(residentId, request));
+
+        List<String> photoUrls = claimPhotoStorageService.storePhotos(photos, residentId, scope);
+
+        try {
+            return new TransactionTemplate(transactionManager)
+                    .execute(status -> createClaimRecords(residentId, request, photoUrls));
+        } catch (RuntimeException e) {
+            claimPhotoStorageService.discard(photoUrls);
+            throw e;
+        }
+    }
+
+    private StorageScope validateReporter(String residentId, CreateClaimRequest request) {
+        residentRepository.findById(residentId)
                 .orElseThrow(() -> new RuntimeException("Reporter not found"));
 
         Apartment apartment = apartmentRepository.findById(request.getApartmentId())
@@ -66,6 +102,17 @@ public class ClaimService {
         if (!isResident) {
             throw new RuntimeException("You can only create claims for your own apartment");
         }
+        return new StorageScope(building.getBuildingId(), apartment.getIdApartment());
+    }
+
+    private ClaimDto createClaimRecords(String residentId, CreateClaimRequest request, List<String> photoUrls) {
+        Resident reporter = residentRepository.findById(residentId)
+                .orElseThrow(() -> new RuntimeException("Reporter not found"));
+
+        Apartment apartment = apartmentRepository.findById(request.getApartmentId())
+                .orElseThrow(() -> new RuntimeException("Apartment not found"));
+
+        Building building = apartment.getBuilding();
 
         Claim claim = new Claim();
         claim.setApartment(apartment);
@@ -79,6 +126,7 @@ public class ClaimService {
         claim.setStatus(ClaimStatus.PENDING);
 
         claim = claimRepository.save(claim);
+        claimStatsService.claimCreated(claim);
 
         // Create emergency channel
         Channel emergencyChannel = createEmergencyChannel(claim, reporter);
@@ -103,29 +151,17 @@ public class ClaimService {
             }
         }
 
-        // Upload photos
-        if (photos != null && !photos.isEmpty()) {
-            for (int i = 0; i < photos.size(); i++) {
-                try {
-                    Map<String, Object> uploadResult = fileService.uploadFile(photos.get(i), "IMAGE", residentId);
-                    String photoUrl = uploadResult.get("url").toString();
-
-                    ClaimPhoto photo = new ClaimPhoto();
-                    photo.setClaim(claim);
-                    photo.setPhotoUrl(photoUrl);
-                    photo.setPhotoOrder(i);
-                    claimPhotoRepository.save(photo);
-                } catch (Exception e) {
-                    throw new RuntimeException("Failed to upload photo " + (i + 1) + ": " + e.getMessage(), e);
-                }
-            }
-        }
+        // Photos already written to disk: insert their rows in one batch
+        claimPhotoStorageService.savePhotos(claim, photoUrls);
+
+        // Resolve admins and affected residents once for both membership and notifications
+        List<ResidentBuilding> recipients = findClaimRecipients(claim, request.getAffectedApartmentIds());
 
         // Add channel members: admin, reporter, affected apartment residents
-        addEmergencyChannelMembers(emergencyChannel, claim, request.getAffectedApartmentIds());
+        addEmergencyChannelMembers(emergencyChannel, claim, recipients);
 
-        // Send notifications to building admins
-        sendClaimNotifications(claim);
+        // Send notifications to building admins and affected residents
+        sendClaimNotifications(claim, recipients, request.getAffectedApartmentIds());
 
         return convertToDto(claim);
     }
@@ -164,97 +200,76 @@ public class ClaimService {
                 .claim(claim)
                 .build();
 
-        return folderRepository.save(folder);
+        folder = folderRepository.save(folder);
+        folderHierarchyService.registerFolder(folder);
+        return folder;
     }
 
-    private void addEmergencyChannelMembers(Channel channel, Claim claim, List<String> affectedApartmentIds) {
-        Set<String> addedUserIds = new HashSet<>();
-
-        // Add reporter as member
-        String reporterId = claim.getReporter().getIdUsers();
-        addChannelMemberIfNotExists(channel, reporterId, MemberRole.MEMBER);
-        addedUserIds.add(reporterId);
-
-        // Add building admins (skip if already added as reporter)
-        List<ResidentBuilding> admins = residentBuildingRepository
-                .findByBuildingIdAndRole(claim.getBuilding().getBuildingId(), UserRole.BUILDING_ADMIN);
-        for (ResidentBuilding admin : admins) {
-            String adminId = admin.getResident().getIdUsers();
-            if (!addedUserIds.contains(adminId)) {
-                addChannelMemberIfNotExists(channel, adminId, MemberRole.ADMIN);
-                addedUserIds.add(adminId);
-            }
+    /**
+     * Résout en une requête tous les destinataires d'un sinistre : admins de l'immeuble et
+     * résidents des appartements touchés, avec leur profil.
+     */
+    private List<ResidentBuilding> findClaimRecipients(Claim claim, List<String> affectedApartmentIds) {
+        String buildingId = claim.getBuilding().getBuildingId();
+        if (affectedApartmentIds == null || affectedApartmentIds.isEmpty()) {
+            return residentBuildingRepository.findByBuildingIdAndRoleWithResident(buildingId, UserRole.BUILDING_ADMIN);
         }
+        return residentBuildingRepository.findByBuildingIdAndRoleOrApartmentIds(
+                buildingId, UserRole.BUILDING_ADMIN, affectedApartmentIds);
+    }
 
-        // Add affected apartment residents (skip if already added)
-        if (affectedApartmentIds != null && !affectedApartmentIds.isEmpty()) {
-            for (String affectedApartmentId : affectedApartmentIds) {
-                List<ResidentBuilding> residents = residentBuildingRepository
-                        .findByBuildingIdAndApartmentId(claim.getBuilding().getBuildingId(), affectedApartmentId);
-                for (ResidentBuilding resident : residents) {
-                    String residentId = resident.getResident().getIdUsers();
-                    if (!addedUserIds.contains(residentId)) {
-                        addChannelMemberIfNotExists(channel, residentId, MemberRole.MEMBER);
-                        addedUserIds.add(residentId);
-                    }
-                }
+    private void addEmergencyChannelMembers(Channel channel, Claim claim, List<ResidentBuilding> recipients) {
+        String reporterId = claim.getReporter().getIdUsers();
+        Set<String> adminIds = new HashSet<>();
+        Set<String> memberIds = new HashSet<>();
+        for (ResidentBuilding recipient : recipients) {
+            String residentId = recipient.getResident().getIdUsers();
+            if (recipient.getRoleInBuilding() == UserRole.BUILDING_ADMIN) {
+                adminIds.add(residentId);
+            } else {
+                memberIds.add(residentId);
             }
         }
-    }
-
-    private void addChannelMemberIfNotExists(Channel channel, String userId, MemberRole role) {
-        // Check if member already exists
-        java.util.Optional<ChannelMember> existingMember = channelMemberRepository
-                .findByChannelIdAndUserId(channel.getId(), userId);
-
-        if (existingMember.isEmpty()) {
-            ChannelMember member = ChannelMember.builder()
-                    .channel(channel)
-                    .userId(userId)
-                    .role(role)
-                    .canWrite(true)
-                    .build();
-            channelMemberRepository.save(member);
+        adminIds.remove(reporterId);
+        memberIds.removeAll(adminIds);
+        memberIds.add(reporterId);
+
+        // Reporter and residents as members, building admins as channel admins; existing members are skipped
+        channelMemberRepository.insertMembers(channel.getId(), memberIds, MemberRole.MEMBER.name());
+        if (!adminIds.isEmpty()) {
+            channelMemberRepository.insertMembers(channel.getId(), adminIds, MemberRole.ADMIN.name());
         }
     }
 
-    private void sendClaimNotifications(Claim claim) {
-        // Get all admins of the building
-        List<ResidentBuilding> admins = residentBuildingRepository
-                .findByBuildingIdAndRole(claim.getBuilding().getBuildingId(), UserRole.BUILDING_ADMIN);
-
-        for (ResidentBuilding admin : admins) {
-            NotificationDto notification = new NotificationDto();
-            notification.setResidentId(admin.getResident().getIdUsers());
-            notification.setTitle("Nouveau sinistre déclaré");
-            notification.setBody(String.format("Un sinistre a été déclaré pour l'appartement %s",
-                    claim.getApartment().getApartmentNumber()));
-            notification.setType("CLAIM_NEW");
-            notification.setBuildingId(claim.getBuilding().getBuildingId());
-            notification.setRelatedId(claim.getId());
-            notificationService.sendNotification(notification);
-        }
-
-        // Send notifications to residents of affected apartments
-        List<ClaimAffectedApartment> affectedApartments = claimAffectedApartmentRepository.findByClaimId(claim.getId());
-        for (ClaimAffectedApartment affectedApt : affectedApartments) {
-            List<ResidentBuilding> residents = residentBuildingRepository
-                    .findByBuildingIdAndApartmentId(claim.getBuilding().getBuildingId(), affectedApt.getApartment().getIdApartment());
-
-            for (ResidentBuilding resident : residents) {
-                if (!resident.getResident().getIdUsers().equals(claim.getReporter().getIdUsers())) {
-                    NotificationDto notification = new NotificationDto();
-                    notification.setResidentId(resident.getResident().getIdUsers());
-                    notification.setTitle("Votre appartement est concerné par un sinistre");
-                    notification.setBody(String.format("Un sinistre déclaré par l'appartement %s concerne votre logement",
-                            claim.getApartment().getApartmentNumber()));
-                    notification.setType("CLAIM_AFFECTED");
-                    notification.setRelatedId(claim.getId());
-                    notification.setBuildingId(claim.getBuilding().getBuildingId());
-                    notificationService.sendNotification(notification);
-                }
+    private void sendClaimNotifications(Claim claim, List<ResidentBuilding> recipients, List<String> affectedApartmentIds) {
+        String buildingId = claim.getBuilding().getBuildingId();
+        String reporterId = claim.getReporter().getIdUsers();
+        Set<String> affected = affectedApartmentIds != null ? new HashSet<>(affectedApartmentIds) : Set.of();
+
+        Map<String, Resident> admins = new LinkedHashMap<>();
+        Map<String, Resident> affectedResidents = new LinkedHashMap<>();
+        for (ResidentBuilding recipient : recipients) {
+            Resident resident = recipient.getResident();
+            if (recipient.getRoleInBuilding() == UserRole.BUILDING_ADMIN) {
+                admins.put(resident.getIdUsers(), resident);
+            }
+            if (recipient.getApartment() != null && affected.contains(recipient.getApartment().getIdApartment())
+                    && !resident.getIdUsers().equals(reporterId)) {
+                affectedResidents.put(resident.getIdUsers(), resident);
             }
         }
+
+        // Emergency alerts use the priority lane of the push pipeline
+        notificationService.sendNotifications(admins.values(), buildingId,
+                "Nouveau sinistre déclaré",
+                String.format("Un sinistre a été déclaré pour l'appartement %s", claim.getApartment().getApartmentNumber()),
+                "CLAIM_NEW", claim.getId(), OutboxEvent.PRIORITY_HIGH);
+
+        notificationService.sendNotifications(affectedResidents.values(), buildingId,
+                "Votre appartement est concerné par un sinistre",
+                String.format("Un sinistre déclaré par l'appartement %s concerne votre logement",
+                        claim.getApartment().getApartmentNumber()),
+                "CLAIM_AFFECTED", claim.getId(), OutboxEvent.PRIORITY_HIGH);
     }
 
     public List<ClaimDto> getClaimsByBuilding(String buildingId, String residentId, boolean isAdmin) {
@@ -266,9 +281,31 @@ public class ClaimService {
             claims = claimRepository.findClaimsByBuildingAndResident(buildingId, residentId);
         }
 
-        return claims.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return convertToDtos(claims);
+    }
+
+    /**
+     * Page de sinistres d'un immeuble, éventuellement filtrée par statut et par période
+     * de création [from, to). Photos et appartements touchés sont chargés en une requête
+     * chacun pour toute la page.
+     */
+    @Transactional(readOnly = true)
+    public Page<ClaimDto> getClaimsByBuilding(String buildingId, String residentId, boolean isAdmin,
+                                              ClaimStatus status, LocalDateTime from, LocalDateTime to,
+                                              Pageable pageable) {
+        List<ClaimStatus> statuses = status != null ? List.of(status) : Arrays.asList(ClaimStatus.values());
+        LocalDateTime fromDate = from != null ? from : MIN_CREATED_AT;
+        LocalDateTime toDate = to != null ? to : MAX_CREATED_AT;
+
+        Page<Claim> claims = isAdmin
+                ? claimRepository.findPageByBuilding(buildingId, statuses, fromDate, toDate, pageable)
+                : claimRepository.findPageByBuildingAndResident(buildingId, residentId, statuses, fromDate, toDate, pageable);
+
+        return new PageImpl<>(convertToDtos(claims.getContent()), pageable, claims.getTotalElements());
+    }
+
+    public ClaimStatsDto getClaimStats(String buildingId, LocalDate from, LocalDate to) {
+        return claimStatsService.getStats(buildingId, from, to);
     }
 
     public ClaimDto getClaimById(Long claimId) {
@@ -282,8 +319,10 @@ public class ClaimService {
         Claim claim = claimRepository.findById(claimId)
                 .orElseThrow(() -> new RuntimeException("Claim not found"));
 
+        ClaimStatus previousStatus = claim.getStatus();
         ClaimStatus newStatus = ClaimStatus.valueOf(status);
         claim.setStatus(newStatus);
+        claimStatsService.statusChanged(claim, previousStatus);
 
         // If claim is closed, close the emergency channel
         if (newStatus == ClaimStatus.CLOSED && claim.getEmergencyChannel() != null) {
@@ -312,10 +351,43 @@ public class ClaimService {
     public void deleteClaim(Long claimId) {
         Claim claim = claimRepository.findById(claimId)
                 .orElseThrow(() -> new RuntimeException("Claim not found"));
+        List<ClaimPhoto> photos = claimPhotoRepository.findByClaimIdOrderByPhotoOrderAsc(claimId);
+        claimStatsService.claimDeleted(claim);
         claimRepository.delete(claim);
+        photos.forEach(claimPhotoStorageService::deleteFiles);
     }
 
     private ClaimDto convertToDto(Claim claim) {
+        List<String> affectedApartmentIds = claimAffectedApartmentRepository.findByClaimId(claim.getId()).stream()
+                .map(aa -> aa.getApartment().getIdApartment())
+                .collect(Collectors.toList());
+        return convertToDto(claim, affectedApartmentIds,
+                claimPhotoRepository.findByClaimIdOrderByPhotoOrderAsc(claim.getId()));
+    }
+
+    // Conversion d'une liste : une requête pour les appartements touchés et une pour les photos
+    private List<ClaimDto> convertToDtos(List<Claim> claims) {
+        if (claims.isEmpty()) {
+            return List.of();
+        }
+        List<Long> claimIds = claims.stream().map(Claim::getId).collect(Collectors.toList());
+
+        Map<Long, List<String>> affectedByClaim = claimAffectedApartmentRepository.findApartmentIdsByClaimIds(claimIds)
+                .stream()
+                .collect(Collectors.groupingBy(ClaimAffectedApartmentRepository.AffectedApartmentView::getClaimId,
+                        Collectors.mapping(ClaimAffectedApartmentRepository.AffectedApartmentView::getApartmentId,
+                                Collectors.toList())));
+        Map<Long, List<ClaimPhoto>> photosByClaim = claimPhotoRepository.findByClaimIds(claimIds).stream()
+                .collect(Collectors.groupingBy(photo -> photo.getClaim().getId()));
+
+        return claims.stream()
+                .map(claim -> convertToDto(claim,
+                        affectedByClaim.getOrDefault(claim.getId(), List.of()),
+                        photosByClaim.getOrDefault(claim.getId(), List.of())))
+                .collect(Collectors.toList());
+    }
+
+    private ClaimDto convertToDto(Claim claim, List<String> affectedApartmentIds, List<ClaimPhoto> photos) {
         ClaimDto dto = new ClaimDto();
         dto.setId(claim.getId());
         dto.setApartmentId(claim.getApartment().getIdApartment());
@@ -336,14 +408,7 @@ public class ClaimService {
         dto.setEmergencyChannelId(claim.getEmergencyChannel() != null ? claim.getEmergencyChannel().getId() : null);
         dto.setEmergencyFolderId(claim.getEmergencyFolder() != null ? claim.getEmergencyFolder().getId() : null);
 
-        // Get affected apartments
-        List<ClaimAffectedApartment> affectedApts = claimAffectedApartmentRepository.findByClaimId(claim.getId());
-        dto.setAffectedApartmentIds(affectedApts.stream()
-                .map(aa -> aa.getApartment().getIdApartment())
-                .collect(Collectors.toList()));
-
-        // Get photos
-        List<ClaimPhoto> photos = claimPhotoRepository.findByClaimIdOrderByPhotoOrderAsc(claim.getId());
+        dto.setAffectedApartmentIds(new ArrayList<>(affectedApartmentIds));
         dto.setPhotos(photos.stream()
                 .map(this::convertPhotoToDto)
                 .collect(Collectors.toList()));
@@ -355,6 +420,7 @@ public class ClaimService {
         ClaimPhotoDto dto = new ClaimPhotoDto();
         dto.setId(photo.getId());
         dto.setPhotoUrl(PictureUrlUtil.normalizePictureUrl(photo.getPhotoUrl()));
+        dto.setThumbnailUrl(PictureUrlUtil.normalizePictureUrl(photo.getThumbnailUrl()));
         dto.setPhotoOrder(photo.getPhotoOrder());
         dto.setCreatedAt(photo.getCreatedAt());
         return dto;
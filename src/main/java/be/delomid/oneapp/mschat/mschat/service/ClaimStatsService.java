@@ -0,0 +1,388 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.dto.ClaimStatsDto;
+import be.delomid.oneapp.mschat.mschat.model.Claim;
+import be.delomid.oneapp.mschat.mschat.model.ClaimResolutionBucket;
+import be.delomid.oneapp.mschat.mschat.model.ClaimStatsCounter;
+import be.delomid.oneapp.mschat.mschat.model.ClaimStatsState;
+import be.delomid.oneapp.mschat.mschat.model.ClaimStatus;
+import be.delomid.oneapp.mschat.mschat.repository.ClaimRepository;
+import be.delomid.oneapp.mschat.mschat.repository.ClaimResolutionBucketRepository;
+import be.delomid.oneapp.mschat.mschat.repository.ClaimStatsCounterRepository;
+import be.delomid.oneapp.mschat.mschat.repository.ClaimStatsStateRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintient les agrégats des sinistres : compteurs par (immeuble, mois, statut, type) et
+ * histogramme des délais de résolution. Les mises à jour sont des upserts atomiques
+ * exécutés dans la transaction de l'appelant, si bien que le tableau de bord se lit en
+ * O(tranches) sans jamais charger les sinistres.
+ *
+ * Au démarrage, tant que l'initialisation n'est pas marquée terminée, les agrégats sont
+ * vidés puis reconstruits à partir des sinistres existants, relus par lots. La progression
+ * (claim_stats_state) est partagée par toutes les instances : un sinistre pas encore relu
+ * n'est pas mis à jour incrémentalement, le lot comptera son état final.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ClaimStatsService implements CommandLineRunner {
+
+    // Bornes supérieures (exclues) des tranches de l'histogramme ; la dernière tranche est ouverte
+    private static final long[] RESOLUTION_BUCKET_HOURS = {1, 4, 24, 72, 168, 336, 720};
+
+    private static final List<ClaimStatus> RESOLVED_STATUSES = List.of(ClaimStatus.RESOLVED, ClaimStatus.CLOSED);
+
+    // Clé du verrou consultatif Postgres de l'initialisation (une seule instance reconstruit)
+    private static final long BACKFILL_LOCK_KEY = 0x436c61696d537473L;
+    // Clé du verrou qui sépare les lots d'initialisation (exclusif) des mises à jour incrémentales (partagé)
+    private static final long ROLLUP_LOCK_KEY = 0x436c61696d526f6cL;
+
+    private final ClaimStatsCounterRepository claimStatsCounterRepository;
+    private final ClaimResolutionBucketRepository claimResolutionBucketRepository;
+    private final ClaimStatsStateRepository claimStatsStateRepository;
+    private final ClaimRepository claimRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.claims.stats.backfill-batch-size:500}")
+    private int backfillBatchSize;
+
+    // Une fois l'initialisation terminée (observé en base), plus aucun verrou n'est pris
+    private volatile boolean backfillCompleted;
+
+    public void claimCreated(Claim claim) {
+        if (isPendingBackfill(claim.getId())) {
+            return;
+        }
+        addClaim(claim.getBuilding().getBuildingId(), monthOf(claim.getCreatedAt()),
+                claim.getStatus(), claim.getClaimTypes(), 1);
+    }
+
+    /**
+     * À appeler après le changement de statut, avant l'enregistrement : met aussi à jour
+     * la date de résolution du sinistre.
+     */
+    public void statusChanged(Claim claim, ClaimStatus previousStatus) {
+        ClaimStatus status = claim.getStatus();
+        if (status == previousStatus) {
+            return;
+        }
+        boolean wasResolved = claim.getResolvedAt() != null;
+        boolean resolved = RESOLVED_STATUSES.contains(status);
+        LocalDateTime previousResolvedAt = claim.getResolvedAt();
+        if (resolved && !wasResolved) {
+            claim.setResolvedAt(LocalDateTime.now());
+        } else if (!resolved && wasResolved) {
+            // Sinistre rouvert : il sortira de l'histogramme jusqu'à sa prochaine résolution
+            claim.setResolvedAt(null);
+        }
+
+        if (isPendingBackfill(claim.getId())) {
+            return;
+        }
+        String buildingId = claim.getBuilding().getBuildingId();
+        LocalDate month = monthOf(claim.getCreatedAt());
+        addClaim(buildingId, month, previousStatus, claim.getClaimTypes(), -1);
+        addClaim(buildingId, month, status, claim.getClaimTypes(), 1);
+
+        if (resolved && !wasResolved) {
+            addResolution(buildingId, claim.getCreatedAt(), claim.getResolvedAt(), 1);
+        } else if (!resolved && wasResolved) {
+            addResolution(buildingId, claim.getCreatedAt(), previousResolvedAt, -1);
+        }
+    }
+
+    public void claimDeleted(Claim claim) {
+        if (isPendingBackfill(claim.getId())) {
+            return;
+        }
+        String buildingId = claim.getBuilding().getBuildingId();
+        addClaim(buildingId, monthOf(claim.getCreatedAt()), claim.getStatus(), claim.getClaimTypes(), -1);
+        if (claim.getResolvedAt() != null) {
+            addResolution(buildingId, claim.getCreatedAt(), claim.getResolvedAt(), -1);
+        }
+    }
+
+    /**
+     * Statistiques d'un immeuble sur les mois de création [from, to] (bornes facultatives).
+     * L'histogramme des résolutions porte sur tous les sinistres résolus de l'immeuble.
+     */
+    @Transactional(readOnly = true)
+    public ClaimStatsDto getStats(String buildingId, LocalDate from, LocalDate to) {
+        List<ClaimStatsCounter> counters = claimStatsCounterRepository.findByBuildingIdAndMonthBetween(buildingId,
+                from != null ? monthOf(from) : LocalDate.of(1970, 1, 1),
+                to != null ? monthOf(to) : LocalDate.of(9999, 12, 1));
+
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        Map<String, Long> byType = new LinkedHashMap<>();
+        Map<LocalDate, ClaimStatsDto.MonthStats> byMonth = new LinkedHashMap<>();
+        long total = 0;
+        for (ClaimStatsCounter counter : counters) {
+            long count = counter.getClaimCount();
+            if (!ClaimStatsCounter.ALL_TYPES.equals(counter.getClaimType())) {
+                byType.merge(counter.getClaimType(), count, Long::sum);
+                continue;
+            }
+            total += count;
+            byStatus.merge(counter.getStatus(), count, Long::sum);
+            ClaimStatsDto.MonthStats month = byMonth.computeIfAbsent(counter.getMonth(), m -> ClaimStatsDto.MonthStats.builder()
+                    .month(m)
+                    .total(0L)
+                    .byStatus(new LinkedHashMap<>())
+                    .build());
+            month.setTotal(month.getTotal() + count);
+            month.getByStatus().merge(counter.getStatus(), count, Long::sum);
+        }
+
+        Map<Integer, ClaimResolutionBucket> buckets = new HashMap<>();
+        claimResolutionBucketRepository.findByBuildingIdOrderByBucketAsc(buildingId)
+                .forEach(bucket -> buckets.put(bucket.getBucket(), bucket));
+        List<ClaimStatsDto.ResolutionBucket> histogram = new ArrayList<>();
+        long resolved = 0;
+        long totalSeconds = 0;
+        for (int i = 0; i <= RESOLUTION_BUCKET_HOURS.length; i++) {
+            ClaimResolutionBucket bucket = buckets.get(i);
+            long count = bucket != null ? bucket.getClaimCount() : 0;
+            resolved += count;
+            totalSeconds += bucket != null ? bucket.getTotalSeconds() : 0;
+            histogram.add(ClaimStatsDto.ResolutionBucket.builder()
+                    .upToHours(i < RESOLUTION_BUCKET_HOURS.length ? RESOLUTION_BUCKET_HOURS[i] : null)
+                    .count(count)
+                    .build());
+        }
+
+        return ClaimStatsDto.builder()
+                .buildingId(buildingId)
+                .totalClaims(total)
+                .byStatus(byStatus)
+                .byType(byType)
+                .byMonth(new ArrayList<>(byMonth.values()))
+                .resolvedClaims(resolved)
+                .averageResolutionHours(resolved > 0 ? totalSeconds / 3600.0 / resolved : null)
+                .resolutionHistogram(histogram)
+                .build();
+    }
+
+    /**
+     * Reconstruit les agrégats à partir des sinistres existants, par lots d'ids croissants,
+     * une transaction par lot. Une transaction englobante détient le verrou consultatif :
+     * une seule instance reconstruit, les autres démarrent sans attendre. Le curseur est
+     * persisté avec chaque lot : une initialisation interrompue reprend au dernier lot validé.
+     * Le marqueur de fin n'est écrit qu'après le dernier lot.
+     */
+    @Override
+    public void run(String... args) {
+        if (isBackfillCompleted()) {
+            backfillCompleted = true;
+            return;
+        }
+
+        TransactionTemplate batchTransaction = new TransactionTemplate(transactionManager);
+        batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        new TransactionTemplate(transactionManager).executeWithoutResult(lockStatus -> {
+            if (!claimStatsStateRepository.tryAdvisoryXactLock(BACKFILL_LOCK_KEY)) {
+                log.info("Statistiques des sinistres en cours d'initialisation par une autre instance");
+                return;
+            }
+            // Relu sous verrou : une autre instance a pu terminer entre-temps
+            if (isBackfillCompleted()) {
+                backfillCompleted = true;
+                return;
+            }
+            rebuild(batchTransaction);
+        });
+    }
+
+    private void rebuild(TransactionTemplate batchTransaction) {
+        long processed = 0;
+        try {
+            batchTransaction.executeWithoutResult(status -> startBackfill());
+
+            while (true) {
+                Integer batchSize = batchTransaction.execute(status -> backfillBatch());
+                if (batchSize == null || batchSize == 0) {
+                    break;
+                }
+                processed += batchSize;
+            }
+
+            batchTransaction.executeWithoutResult(status -> {
+                claimStatsStateRepository.advisoryXactLock(ROLLUP_LOCK_KEY);
+                ClaimStatsState state = loadState();
+                state.setBackfillCompletedAt(LocalDateTime.now());
+                claimStatsStateRepository.save(state);
+            });
+            backfillCompleted = true;
+            log.info("Statistiques des sinistres initialisées ({} sinistres relus)", processed);
+        } catch (Exception e) {
+            log.error("Erreur lors de l'initialisation des statistiques des sinistres, reprise au prochain démarrage", e);
+        }
+    }
+
+    private boolean isBackfillCompleted() {
+        return claimStatsStateRepository.findById(ClaimStatsState.SINGLETON_ID)
+                .map(ClaimStatsState::getBackfillCompletedAt)
+                .isPresent();
+    }
+
+    /**
+     * Vide les agrégats et fixe la borne de l'initialisation, sauf reprise d'une initialisation
+     * interrompue (curseur déjà persisté). Sous verrou exclusif : les mises à jour incrémentales
+     * en cours sont validées avant le vidage, les suivantes voient la borne.
+     */
+    private void startBackfill() {
+        claimStatsStateRepository.advisoryXactLock(ROLLUP_LOCK_KEY);
+        ClaimStatsState state = claimStatsStateRepository.findById(ClaimStatsState.SINGLETON_ID)
+                .orElseGet(() -> new ClaimStatsState(ClaimStatsState.SINGLETON_ID, null, null, null));
+        if (state.getBackfillCursor() != null) {
+            log.info("Reprise de l'initialisation des statistiques des sinistres après l'id {}", state.getBackfillCursor());
+            return;
+        }
+
+        claimStatsStateRepository.truncateRollups();
+        int resolvedAt = claimRepository.backfillResolvedAt(RESOLVED_STATUSES);
+        if (resolvedAt > 0) {
+            log.info("Date de résolution initialisée pour {} sinistres", resolvedAt);
+        }
+        Long maxId = claimRepository.findMaxId();
+        state.setBackfillCursor(0L);
+        state.setBackfillMaxId(maxId != null ? maxId : 0L);
+        claimStatsStateRepository.save(state);
+    }
+
+    /**
+     * Relit le lot suivant et avance le curseur dans la même transaction, sous verrou exclusif :
+     * aucune mise à jour incrémentale d'un sinistre du lot n'est en cours pendant sa lecture.
+     */
+    private int backfillBatch() {
+        claimStatsStateRepository.advisoryXactLock(ROLLUP_LOCK_KEY);
+        ClaimStatsState state = loadState();
+        List<ClaimRepository.StatsView> batch = claimRepository.findStatsBatch(state.getBackfillCursor(),
+                state.getBackfillMaxId(), PageRequest.of(0, backfillBatchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // Agrège le lot en mémoire : un upsert par clé plutôt qu'un par sinistre
+        Map<CounterKey, Long> counters = new HashMap<>();
+        Map<ResolutionKey, long[]> resolutions = new HashMap<>();
+        for (ClaimRepository.StatsView claim : batch) {
+            LocalDate month = monthOf(claim.getCreatedAt());
+            for (String type : typesOf(claim.getClaimTypes())) {
+                counters.merge(new CounterKey(claim.getBuildingId(), month, claim.getStatus().name(), type), 1L, Long::sum);
+            }
+            if (claim.getResolvedAt() != null) {
+                long seconds = resolutionSeconds(claim.getCreatedAt(), claim.getResolvedAt());
+                long[] bucket = resolutions.computeIfAbsent(
+                        new ResolutionKey(claim.getBuildingId(), bucketOf(seconds)), key -> new long[2]);
+                bucket[0]++;
+                bucket[1] += seconds;
+            }
+        }
+        counters.forEach((key, count) ->
+                claimStatsCounterRepository.add(key.buildingId(), key.month(), key.status(), key.claimType(), count));
+        resolutions.forEach((key, bucket) ->
+                claimResolutionBucketRepository.add(key.buildingId(), key.bucket(), bucket[0], bucket[1]));
+
+        state.setBackfillCursor(batch.get(batch.size() - 1).getId());
+        claimStatsStateRepository.save(state);
+        return batch.size();
+    }
+
+    private ClaimStatsState loadState() {
+        return claimStatsStateRepository.findById(ClaimStatsState.SINGLETON_ID)
+                .orElseThrow(() -> new IllegalStateException("État de l'initialisation des statistiques introuvable"));
+    }
+
+    private void addClaim(String buildingId, LocalDate month, ClaimStatus status, String[] claimTypes, long delta) {
+        for (String type : typesOf(claimTypes)) {
+            claimStatsCounterRepository.add(buildingId, month, status.name(), type, delta);
+        }
+    }
+
+    private void addResolution(String buildingId, LocalDateTime createdAt, LocalDateTime resolvedAt, long delta) {
+        long seconds = resolutionSeconds(createdAt, resolvedAt);
+        claimResolutionBucketRepository.add(buildingId, bucketOf(seconds), delta, delta * seconds);
+    }
+
+    /**
+     * Le sinistre sera-t-il relu par l'initialisation ? Le verrou partagé, tenu jusqu'à la fin de la
+     * transaction de l'appelant, exclut les lots d'initialisation : soit le lot a déjà relu le sinistre
+     * dans son état précédent et le delta s'applique, soit il le relira après le commit de l'appelant,
+     * dans son nouvel état, et le delta est ignoré. Vaut pour toutes les instances (état en base).
+     */
+    private boolean isPendingBackfill(Long claimId) {
+        if (backfillCompleted) {
+            return false;
+        }
+        claimStatsStateRepository.advisoryXactLockShared(ROLLUP_LOCK_KEY);
+        ClaimStatsStateRepository.StateView state = claimStatsStateRepository.findState().orElse(null);
+        if (state != null && Boolean.TRUE.equals(state.getCompleted())) {
+            backfillCompleted = true;
+            return false;
+        }
+        if (state == null || state.getBackfillCursor() == null) {
+            // Initialisation pas encore commencée : le vidage effacera ce delta
+            return false;
+        }
+        return claimId > state.getBackfillCursor() && claimId <= state.getBackfillMaxId();
+    }
+
+    // Types distincts du sinistre, plus la ligne tous types confondus
+    private static Set<String> typesOf(String[] claimTypes) {
+        Set<String> types = new LinkedHashSet<>();
+        if (claimTypes != null) {
+            types.addAll(Arrays.asList(claimTypes));
+        }
+        types.add(ClaimStatsCounter.ALL_TYPES);
+        return types;
+    }
+
+    private static LocalDate monthOf(LocalDateTime dateTime) {
+        return monthOf(dateTime.toLocalDate());
+    }
+
+    private static LocalDate monthOf(LocalDate date) {
+        return date.withDayOfMonth(1);
+    }
+
+    private static long resolutionSeconds(LocalDateTime createdAt, LocalDateTime resolvedAt) {
+        return Math.max(Duration.between(createdAt, resolvedAt).getSeconds(), 0);
+    }
+
+    private static int bucketOf(long seconds) {
+        for (int i = 0; i < RESOLUTION_BUCKET_HOURS.length; i++) {
+            if (seconds < RESOLUTION_BUCKET_HOURS[i] * 3600) {
+                return i;
+            }
+        }
+        return RESOLUTION_BUCKET_HOURS.length;
+    }
+
+    private record CounterKey(String buildingId, LocalDate month, String status, String claimType) {
+    }
+
+    private record ResolutionKey(String buildingId, int bucket) {
+    }
+}
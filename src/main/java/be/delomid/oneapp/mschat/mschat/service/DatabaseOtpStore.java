@@ -0,0 +1,79 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.model.OtpToken;
+import be.delomid.oneapp.mschat.mschat.model.OtpType;
+import be.delomid.oneapp.mschat.mschat.repository.OtpTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Stockage des OTP dans la table otp_tokens, partagé entre plusieurs instances de l'application.
+ */
+@Service
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "database")
+@RequiredArgsConstructor
+@Slf4j
+public class DatabaseOtpStore implements OtpStore {
+
+    private final OtpTokenRepository otpTokenRepository;
+
+    @Override
+    @Transactional
+    public void save(String email, OtpType otpType, String otpCode, Duration ttl) {
+        // Supprimer les anciens OTP pour cet email et ce type
+        otpTokenRepository.deleteByEmailAndOtpType(email, otpType);
+
+        OtpToken otpToken = OtpToken.builder()
+                .email(email)
+                .otpCode(OtpStore.hash(otpCode))
+                .otpType(otpType)
+                .expiresAt(LocalDateTime.now().plus(ttl))
+                .build();
+
+        otpTokenRepository.save(otpToken);
+    }
+
+    @Override
+    @Transactional
+    public VerificationResult verify(String email, OtpType otpType, String otpCode, int maxAttempts) {
+        Optional<OtpToken> found = otpTokenRepository.findFirstByEmailAndOtpTypeAndIsUsedFalseOrderByCreatedAtDesc(email, otpType);
+        if (found.isEmpty()) {
+            return VerificationResult.INVALID;
+        }
+
+        OtpToken otpToken = found.get();
+        if (!otpToken.getExpiresAt().isAfter(LocalDateTime.now())) {
+            return VerificationResult.EXPIRED;
+        }
+
+        // Incrément atomique : deux vérifications concurrentes ne peuvent pas dépasser la limite
+        if (otpTokenRepository.incrementAttempts(otpToken.getId(), maxAttempts) == 0) {
+            otpTokenRepository.markUsed(otpToken.getId());
+            return VerificationResult.TOO_MANY_ATTEMPTS;
+        }
+
+        if (!OtpStore.matches(otpToken.getOtpCode(), otpCode)) {
+            return VerificationResult.INVALID;
+        }
+
+        return otpTokenRepository.markUsed(otpToken.getId()) == 1
+                ? VerificationResult.VALID
+                : VerificationResult.INVALID;
+    }
+
+    // Nettoyer les OTP expirés toutes les heures
+    @Scheduled(fixedRate = 3600000)
+    @Transactional
+    public void cleanupExpiredOtps() {
+        otpTokenRepository.deleteByExpiresAtBefore(LocalDateTime.now());
+        log.debug("Expired OTPs cleaned up");
+    }
+}
@@ -0,0 +1,323 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.model.Document;
+import be.delomid.oneapp.mschat.mschat.util.FileStorageUtil;
+import be.delomid.oneapp.mschat.mschat.util.ImageResizeUtil;
+import be.delomid.oneapp.mschat.mschat.util.TransactionUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Aperçus JPEG des documents : première page des PDF, version réduite des photos.
+ *
+ * Chaque aperçu est rendu une seule fois, sur un pool dédié, puis conservé dans
+ * {@code <documents>/.previews}. Le cache disque est borné en taille et évince les
+ * aperçus les moins récemment servis.
+ */
+@Service
+@Slf4j
+public class DocumentPreviewService {
+
+    public enum Status { READY, PENDING, UNSUPPORTED }
+
+    public record Preview(Status status, Path file, long lastModified) {
+    }
+
+    private static final String PREVIEW_DIR = ".previews";
+    private static final String PREVIEW_EXTENSION = ".jpg";
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of(".jpg", ".jpeg", ".png", ".gif", ".bmp");
+    private static final int MAX_FAILURES = 10_000;
+
+    private final ThreadPoolTaskExecutor previewExecutor;
+
+    private final Map<Long, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    // Échecs de rendu : id du document -> instant (ms) à partir duquel un nouvel essai est permis.
+    // Borné : au-delà de MAX_FAILURES, les échecs les plus anciens sont oubliés.
+    private final Map<Long, Long> failedUntil = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > MAX_FAILURES;
+        }
+    });
+    // Ordre d'accès : le premier élément est le moins récemment servi
+    private final LinkedHashMap<Long, Long> cacheIndex = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    @Value("${app.documents.base-dir:documents}")
+    private String baseDocumentsDir;
+
+    @Value("${app.documents.preview.max-dimension:512}")
+    private int maxDimension;
+
+    @Value("${app.documents.preview.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    @Value("${app.documents.preview.cache-max-bytes:536870912}")
+    private long cacheMaxBytes;
+
+    @Value("${app.documents.preview.wait-millis:3000}")
+    private long waitMillis;
+
+    @Value("${app.documents.preview.failure-retry-minutes:60}")
+    private long failureRetryMinutes;
+
+    public DocumentPreviewService(@Qualifier("previewExecutor") ThreadPoolTaskExecutor previewExecutor) {
+        this.previewExecutor = previewExecutor;
+    }
+
+    /**
+     * Reconstruit l'index LRU à partir des aperçus déjà présents (du plus ancien au plus récent).
+     */
+    @PostConstruct
+    void loadCacheIndex() {
+        Path previewDir = previewDir();
+        if (!Files.isDirectory(previewDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(previewDir)) {
+            files.filter(file -> file.getFileName().toString().endsWith(PREVIEW_EXTENSION))
+                    .sorted(Comparator.comparingLong(this::lastModified))
+                    .forEach(file -> {
+                        String name = file.getFileName().toString();
+                        try {
+                            Long documentId = Long.valueOf(name.substring(0, name.length() - PREVIEW_EXTENSION.length()));
+                            register(documentId, Files.size(file));
+                        } catch (NumberFormatException | IOException e) {
+                            log.debug("Fichier ignoré dans le cache d'aperçus: {}", name);
+                        }
+                    });
+        } catch (IOException e) {
+            log.warn("Impossible de lire le cache d'aperçus: {}", e.getMessage());
+        }
+        log.info("Cache d'aperçus chargé: {} aperçus, {} octets", cacheIndex.size(), cachedBytes);
+    }
+
+    public boolean supports(Document document) {
+        return isPdf(document) || isImage(document);
+    }
+
+    /**
+     * Lance le rendu en arrière-plan une fois l'upload validé.
+     */
+    public void renderAfterCommit(Document document) {
+        if (!supports(document)) {
+            return;
+        }
+        Source source = Source.of(document, baseDocumentsDir);
+        TransactionUtil.afterCommit(() -> requestRender(source));
+    }
+
+    /**
+     * Retourne l'aperçu s'il est en cache, sinon lance le rendu et l'attend brièvement.
+     */
+    public Preview getPreview(Document document) {
+        if (!supports(document) || hasRecentFailure(document.getId())) {
+            return new Preview(Status.UNSUPPORTED, null, 0);
+        }
+
+        Path cached = previewFile(document.getId());
+        if (Files.exists(cached)) {
+            touch(document.getId());
+            return new Preview(Status.READY, cached, lastModified(cached));
+        }
+
+        try {
+            Path rendered = requestRender(Source.of(document, baseDocumentsDir)).get(waitMillis, TimeUnit.MILLISECONDS);
+            return new Preview(Status.READY, rendered, lastModified(rendered));
+        } catch (TimeoutException e) {
+            return new Preview(Status.PENDING, null, 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Preview(Status.PENDING, null, 0);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TaskRejectedException) {
+                return new Preview(Status.PENDING, null, 0);
+            }
+            return new Preview(Status.UNSUPPORTED, null, 0);
+        }
+    }
+
+    public void deletePreviewsAfterCommit(List<Long> documentIds) {
+        if (documentIds.isEmpty()) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> documentIds.forEach(this::deletePreview));
+    }
+
+    private CompletableFuture<Path> requestRender(Source source) {
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(source.documentId(), future);
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            previewExecutor.execute(() -> {
+                try {
+                    future.complete(render(source));
+                } catch (Exception e) {
+                    failedUntil.put(source.documentId(),
+                            System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(failureRetryMinutes));
+                    log.warn("Rendu de l'aperçu impossible pour le document {}: {}", source.documentId(), e.getMessage());
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(source.documentId(), future);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            inFlight.remove(source.documentId(), future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private Path render(Source source) throws IOException {
+        Path target = previewFile(source.documentId());
+        if (Files.exists(target)) {
+            return target;
+        }
+
+        BufferedImage image = source.pdf()
+                ? renderPdfFirstPage(source.file())
+                : ImageResizeUtil.readImage(source.file(), maxDimension);
+        if (image == null) {
+            throw new IOException("Format d'image non lisible");
+        }
+
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(source.documentId() + ".tmp");
+        ImageResizeUtil.writeJpeg(ImageResizeUtil.scale(image, maxDimension), temp, jpegQuality);
+        FileStorageUtil.moveAtomically(temp, target);
+
+        register(source.documentId(), Files.size(target));
+        log.debug("Aperçu généré pour le document {}", source.documentId());
+        return target;
+    }
+
+    private BufferedImage renderPdfFirstPage(Path file) throws IOException {
+        try (PDDocument pdf = Loader.loadPDF(file.toFile())) {
+            if (pdf.getNumberOfPages() == 0) {
+                return null;
+            }
+            PDRectangle box = pdf.getPage(0).getCropBox();
+            float scale = maxDimension / Math.max(box.getWidth(), box.getHeight());
+            return new PDFRenderer(pdf).renderImage(0, scale, ImageType.RGB);
+        }
+    }
+
+    private synchronized void register(Long documentId, long size) {
+        Long previous = cacheIndex.put(documentId, size);
+        cachedBytes += size - (previous != null ? previous : 0);
+
+        Iterator<Map.Entry<Long, Long>> eldest = cacheIndex.entrySet().iterator();
+        while (cachedBytes > cacheMaxBytes && eldest.hasNext()) {
+            Map.Entry<Long, Long> entry = eldest.next();
+            if (entry.getKey().equals(documentId)) {
+                break;
+            }
+            eldest.remove();
+            cachedBytes -= entry.getValue();
+            deleteQuietly(previewFile(entry.getKey()));
+        }
+    }
+
+    private boolean hasRecentFailure(Long documentId) {
+        Long until = failedUntil.get(documentId);
+        if (until == null) {
+            return false;
+        }
+        if (until <= System.currentTimeMillis()) {
+            failedUntil.remove(documentId, until);
+            return false;
+        }
+        return true;
+    }
+
+    private synchronized void touch(Long documentId) {
+        cacheIndex.get(documentId);
+    }
+
+    private synchronized void deletePreview(Long documentId) {
+        failedUntil.remove(documentId);
+        Long size = cacheIndex.remove(documentId);
+        if (size != null) {
+            cachedBytes -= size;
+        }
+        deleteQuietly(previewFile(documentId));
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Impossible de supprimer l'aperçu {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Path previewDir() {
+        return Paths.get(baseDocumentsDir, PREVIEW_DIR);
+    }
+
+    private Path previewFile(Long documentId) {
+        return previewDir().resolve(documentId + PREVIEW_EXTENSION);
+    }
+
+    private long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static boolean isPdf(Document document) {
+        return ".pdf".equals(extension(document)) || "application/pdf".equals(document.getMimeType());
+    }
+
+    private static boolean isImage(Document document) {
+        return IMAGE_EXTENSIONS.contains(extension(document));
+    }
+
+    private static String extension(Document document) {
+        return document.getFileExtension() != null ? document.getFileExtension().toLowerCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * Données nécessaires au rendu, extraites de l'entité avant de quitter le thread de la requête.
+     */
+    private record Source(Long documentId, Path file, boolean pdf) {
+        static Source of(Document document, String baseDocumentsDir) {
+            return new Source(document.getId(), Paths.get(baseDocumentsDir, document.getFilePath()), isPdf(document));
+        }
+    }
+}
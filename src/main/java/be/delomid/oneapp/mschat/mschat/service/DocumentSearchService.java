@@ -0,0 +1,190 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.model.Document;
+import be.delomid.oneapp.mschat.mschat.repository.DocumentRepository;
+import be.delomid.oneapp.mschat.mschat.repository.DocumentSearchRepository;
+import be.delomid.oneapp.mschat.mschat.util.TransactionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Index plein texte des documents (tsvector Postgres) : mis à jour après l'upload et à la suppression,
+ * interrogé avec le filtre de permissions directement dans la requête SQL.
+ */
+@Service
+@Slf4j
+public class DocumentSearchService {
+
+    private static final int BACKFILL_BATCH_SIZE = 100;
+    private static final int MAX_QUERY_TERMS = 8;
+
+    private final DocumentSearchRepository documentSearchRepository;
+    private final DocumentRepository documentRepository;
+    private final DocumentTextExtractor documentTextExtractor;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor searchIndexExecutor;
+
+    @Value("${app.documents.base-dir:documents}")
+    private String baseDocumentsDir;
+
+    public DocumentSearchService(DocumentSearchRepository documentSearchRepository,
+                                 DocumentRepository documentRepository,
+                                 DocumentTextExtractor documentTextExtractor,
+                                 PlatformTransactionManager transactionManager,
+                                 @Qualifier("searchIndexExecutor") ThreadPoolTaskExecutor searchIndexExecutor) {
+        this.documentSearchRepository = documentSearchRepository;
+        this.documentRepository = documentRepository;
+        this.documentTextExtractor = documentTextExtractor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.searchIndexExecutor = searchIndexExecutor;
+    }
+
+    /**
+     * Indexe (ou réindexe) un document une fois la transaction qui l'enregistre validée :
+     * l'extraction du texte tourne sur le pool d'indexation, sans connexion ouverte, et seul
+     * l'upsert prend une courte transaction. Si le pool est saturé, le document sera indexé
+     * au prochain démarrage.
+     */
+    public void indexAfterCommit(Document document) {
+        Source source = Source.of(document, baseDocumentsDir);
+        TransactionUtil.afterCommit(() -> {
+            try {
+                searchIndexExecutor.execute(() -> index(source));
+            } catch (TaskRejectedException e) {
+                log.warn("Pool d'indexation saturé, document {} indexé au prochain démarrage", source.documentId());
+            }
+        });
+    }
+
+    private boolean index(Source source) {
+        try {
+            String content = documentTextExtractor.extract(source.file(), source.mimeType(), source.fileExtension());
+            transactionTemplate.executeWithoutResult(status -> documentSearchRepository.upsert(
+                    source.documentId(),
+                    normalize(source.name()),
+                    normalize(source.description()),
+                    normalize(content)));
+            return true;
+        } catch (Exception e) {
+            // Document supprimé entre-temps, fichier illisible... : rattrapé au prochain démarrage
+            log.warn("Indexation impossible pour le document {}: {}", source.documentId(), e.getMessage());
+            return false;
+        }
+    }
+
+    public void removeDocument(Long documentId) {
+        documentSearchRepository.deleteByDocumentId(documentId);
+    }
+
+    /**
+     * Retourne les ids des documents accessibles correspondant à la requête, par pertinence décroissante.
+     */
+    public List<Long> search(String buildingId, String residentId, String apartmentId, String query, int page, int size) {
+        String tsQuery = toTsQuery(query);
+        if (tsQuery.isEmpty()) {
+            return List.of();
+        }
+        return documentSearchRepository.searchAccessibleDocumentIds(
+                buildingId, residentId, apartmentId, tsQuery, size, page * size);
+    }
+
+    /**
+     * Charge les documents en conservant l'ordre de pertinence.
+     */
+    public List<Document> loadInOrder(List<Long> ids) {
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            positions.put(ids.get(i), i);
+        }
+        return documentRepository.findAllById(ids).stream()
+                .sorted(Comparator.comparing(document -> positions.get(document.getId())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Indexe en arrière-plan les documents antérieurs à l'index (ou dont l'indexation a échoué).
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexMissingDocuments() {
+        documentSearchRepository.createVectorIndexIfMissing();
+
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransaction.setReadOnly(true);
+        int total = 0;
+        while (true) {
+            List<Source> sources = readOnlyTransaction.execute(status -> {
+                List<Long> ids = documentSearchRepository.findUnindexedDocumentIds(BACKFILL_BATCH_SIZE);
+                return documentRepository.findAllById(ids).stream()
+                        .map(document -> Source.of(document, baseDocumentsDir))
+                        .collect(Collectors.toList());
+            });
+            if (sources == null || sources.isEmpty()) {
+                break;
+            }
+            long indexed = sources.stream().filter(this::index).count();
+            total += indexed;
+            // Les documents en échec restent non indexés : ne pas les relire en boucle
+            if (indexed < sources.size()) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("{} documents ajoutés à l'index de recherche", total);
+        }
+    }
+
+    private String toTsQuery(String query) {
+        return Arrays.stream(normalize(query).split(" "))
+                .filter(term -> !term.isEmpty())
+                .limit(MAX_QUERY_TERMS)
+                // Recherche par préfixe : "factu" trouve "facture"
+                .map(term -> term + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+
+    /**
+     * Minuscules, sans accents, ponctuation remplacée par des espaces ("Procès-verbal_2024.pdf" → "proces verbal 2024 pdf").
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String withoutAccents = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return withoutAccents.toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .trim();
+    }
+
+    /**
+     * Données nécessaires à l'indexation, extraites de l'entité avant de quitter le thread de la requête.
+     */
+    private record Source(Long documentId, String name, String description, Path file,
+                          String mimeType, String fileExtension) {
+        static Source of(Document document, String baseDocumentsDir) {
+            return new Source(document.getId(), document.getOriginalFilename(), document.getDescription(),
+                    Paths.get(baseDocumentsDir, document.getFilePath()),
+                    document.getMimeType(), document.getFileExtension());
+        }
+    }
+}
@@ -5,11 +5,15 @@ import be.delomid.oneapp.mschat.mschat.dto.BuildingMembersDto.ApartmentSummaryDt
 import be.delomid.oneapp.mschat.mschat.dto.BuildingMembersDto.ResidentSummaryDto;
 import be.delomid.oneapp.mschat.mschat.model.*;
 import be.delomid.oneapp.mschat.mschat.repository.*;
+import be.delomid.oneapp.mschat.mschat.util.FileStorageUtil;
+import be.delomid.oneapp.mschat.mschat.util.TransactionUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -17,7 +21,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -33,6 +43,13 @@ public class DocumentService {
     private final BuildingRepository buildingRepository;
     private final ResidentBuildingRepository residentBuildingRepository;
     private final FolderPermissionRepository folderPermissionRepository;
+    private final DocumentSearchService documentSearchService;
+    private final FolderAclIndex folderAclIndex;
+    private final FolderHierarchyService folderHierarchyService;
+    private final StorageQuotaService storageQuotaService;
+    private final DocumentPreviewService documentPreviewService;
+
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
 
     @Value("${app.documents.base-dir:documents}")
     private String baseDocumentsDir;
@@ -144,6 +161,7 @@ public class DocumentService {
                 .build();
 
         folder = folderRepository.save(folder);
+        folderHierarchyService.registerFolder(folder);
 
         if (shareType == ShareType.SPECIFIC_APARTMENTS) {
             boolean allowUpload = request.getAllowUpload() != null ? request.getAllowUpload() : false;
@@ -160,6 +178,7 @@ public class DocumentService {
                                 .canUpload(allowUpload)
                                 .build();
                         folderPermissionRepository.save(permission);
+                        folder.getPermissions().add(permission);
                     }
                 }
             }
@@ -176,6 +195,7 @@ public class DocumentService {
                                 .canUpload(allowUpload)
                                 .build();
                         folderPermissionRepository.save(permission);
+                        folder.getPermissions().add(permission);
                     }
                 }
             }
@@ -184,7 +204,10 @@ public class DocumentService {
         log.info("Dossier créé: {} (ID: {}) - Type: {} - Immeuble: {}",
                 folder.getName(), folder.getId(), shareType, buildingId);
 
-        return mapToFolderDto(folder, resident.getIdUsers(), apartment != null ? apartment.getIdApartment() : null);
+        FolderAcl acl = FolderAcl.of(folder, 0L);
+        folderAclIndex.putAfterCommit(buildingId, folder.getId(), acl);
+
+        return mapToFolderDto(folder, acl, resident.getIdUsers(), apartment != null ? apartment.getIdApartment() : null);
     }
 
     @Transactional
@@ -256,6 +279,11 @@ public class DocumentService {
         }
 
         folder = folderRepository.save(folder);
+        folderRepository.incrementAclVersion(folder.getId());
+        long aclVersion = folderRepository.findAclVersionById(folder.getId()).orElse(0L);
+
+        FolderAcl acl = FolderAcl.of(folder, aclVersion);
+        folderAclIndex.putAfterCommit(buildingId, folder.getId(), acl);
 
         log.info("Permissions du dossier {} (ID: {}) mises à jour - Type: {} - Immeuble: {}",
                 folder.getName(), folder.getId(), shareType, buildingId);
@@ -269,7 +297,7 @@ public class DocumentService {
             apartmentId = residentBuilding.getApartment().getIdApartment();
         }
 
-        return mapToFolderDto(folder, resident.getIdUsers(), apartmentId);
+        return mapToFolderDto(folder, acl, resident.getIdUsers(), apartmentId);
     }
 
     @Transactional(readOnly = true)
@@ -379,13 +407,14 @@ public class DocumentService {
             }
         }
 
+        List<Folder> subFolders = folderRepository.findByParentFolderId(folderId);
         log.debug("Récupération de {} sous-dossiers pour le dossier {} (ID: {})",
-                folder.getSubFolders().size(), folder.getName(), folderId);
+                subFolders.size(), folder.getName(), folderId);
 
         String finalApartmentId = apartmentId;
         String residentId = resident.getIdUsers();
 
-        return folder.getSubFolders().stream()
+        return subFolders.stream()
                 .filter(subFolder -> hasAccessToFolder(subFolder, residentId, finalApartmentId))
                 .map(f -> mapToFolderDto(f, residentId, finalApartmentId))
                 .collect(Collectors.toList());
@@ -428,6 +457,74 @@ public class DocumentService {
 
     @Transactional
     public DocumentDto uploadDocument(Long folderId, MultipartFile file, String description, String email) {
+        if (file == null) {
+            throw new IllegalArgumentException("Le fichier est vide");
+        }
+        return storeDocument(folderId, file.getOriginalFilename(), file.getContentType(), file.getSize(),
+                description, email, maxFileSize,
+                target -> Files.copy(file.getInputStream(), target, StandardCopyOption.REPLACE_EXISTING));
+    }
+
+    /**
+     * Enregistre un document reçu par upload fragmenté : le fichier de staging complet est
+     * déplacé atomiquement dans le dossier de destination. Si la transaction est annulée, le
+     * fichier est remis en staging : la session reste complète et la finalisation peut être relancée.
+     */
+    @Transactional
+    public DocumentDto registerUploadedDocument(Long folderId, Path stagedFile, String originalFilename, String mimeType,
+                                               long size, String description, String email, long maxSize) {
+        return storeDocument(folderId, originalFilename, mimeType, size, description, email, maxSize,
+                target -> {
+                    FileStorageUtil.moveAtomically(stagedFile, target);
+                    restoreStagingOnRollback(target, stagedFile);
+                });
+    }
+
+    private void restoreStagingOnRollback(Path target, Path stagedFile) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    FileStorageUtil.moveAtomically(target, stagedFile);
+                } catch (IOException e) {
+                    log.error("Impossible de remettre en staging le fichier {}: {}", target, e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Vérifie, avant l'envoi des données, que l'utilisateur peut uploader dans ce dossier.
+     */
+    @Transactional(readOnly = true)
+    public void checkUploadAllowed(Long folderId, String email) {
+        Resident resident = residentRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("Résident non trouvé"));
+
+        String buildingId = be.delomid.oneapp.mschat.mschat.util.SecurityContextUtil.getCurrentBuildingId();
+        if (buildingId == null) {
+            throw new RuntimeException("Aucun immeuble sélectionné");
+        }
+
+        String apartmentId = residentBuildingRepository
+                .findByResidentIdAndBuildingId(resident.getIdUsers(), buildingId)
+                .map(ResidentBuilding::getApartment)
+                .map(Apartment::getIdApartment)
+                .orElse(null);
+
+        Folder folder = folderRepository.findByIdAndBuildingId(folderId, buildingId)
+                .orElseThrow(() -> new RuntimeException("Dossier non trouvé"));
+
+        if (!checkFolderUploadPermission(folder, resident.getIdUsers(), apartmentId)) {
+            throw new RuntimeException("Vous n'avez pas la permission d'uploader des fichiers dans ce dossier");
+        }
+    }
+
+    private DocumentDto storeDocument(Long folderId, String originalFilename, String mimeType, long size,
+                                      String description, String email, long maxSize, ContentWriter contentWriter) {
         Resident resident = residentRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Résident non trouvé"));
 
@@ -455,16 +552,15 @@ public class DocumentService {
             throw new RuntimeException("Vous n'avez pas la permission d'uploader des fichiers dans ce dossier");
         }
 
-        if (file == null || file.isEmpty()) {
+        if (size <= 0) {
             throw new IllegalArgumentException("Le fichier est vide");
         }
 
-        if (file.getSize() > maxFileSize) {
-            throw new IllegalArgumentException("La taille du fichier dépasse la limite autorisée (" + (maxFileSize / 1024 / 1024) + " MB)");
+        if (size > maxSize) {
+            throw new IllegalArgumentException("La taille du fichier dépasse la limite autorisée (" + (maxSize / 1024 / 1024) + " MB)");
         }
 
         try {
-            String originalFilename = file.getOriginalFilename();
             if (originalFilename == null || originalFilename.trim().isEmpty()) {
                 throw new IllegalArgumentException("Le nom du fichier est invalide");
             }
@@ -472,11 +568,15 @@ public class DocumentService {
             String fileExtension = getFileExtension(originalFilename);
             String storedFilename = UUID.randomUUID().toString() + fileExtension;
 
+            // Réservé avant l'écriture ; annulé avec la transaction si l'upload échoue
+            storageQuotaService.reserve(
+                    new StorageScope(buildingId, apartment != null ? apartment.getIdApartment() : null), size);
+
             Path folderPhysicalPath = Paths.get(baseDocumentsDir, folder.getFolderPath());
             Files.createDirectories(folderPhysicalPath);
 
             Path filePath = folderPhysicalPath.resolve(storedFilename);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            contentWriter.writeTo(filePath);
             log.info("Fichier physique sauvegardé: {}", filePath.toAbsolutePath());
 
             String relativePath = Paths.get(folder.getFolderPath(), storedFilename).toString();
@@ -485,8 +585,8 @@ public class DocumentService {
                     .originalFilename(originalFilename)
                     .storedFilename(storedFilename)
                     .filePath(relativePath)
-                    .fileSize(file.getSize())
-                    .mimeType(file.getContentType())
+                    .fileSize(size)
+                    .mimeType(mimeType)
                     .fileExtension(fileExtension)
                     .folder(folder)
                     .apartment(apartment)
@@ -496,6 +596,9 @@ public class DocumentService {
                     .build();
 
             document = documentRepository.save(document);
+            folderHierarchyService.documentAdded(folder, size);
+            documentSearchService.indexAfterCommit(document);
+            documentPreviewService.renderAfterCommit(document);
             log.info("Document uploadé: {} (ID: {}) dans le dossier: {} pour appartement: {} (immeuble: {})",
                     originalFilename, document.getId(), folder.getName(),
                     apartment != null ? apartment.getIdApartment() : "aucun", buildingId);
@@ -525,20 +628,16 @@ public class DocumentService {
             throw new RuntimeException("Seul le créateur du dossier peut le supprimer");
         }
 
-        try {
-            Path folderPath = Paths.get(baseDocumentsDir, folder.getFolderPath());
-            if (Files.exists(folderPath)) {
-                deleteDirectoryRecursively(folderPath);
-                log.info("Dossier physique supprimé: {}", folderPath.toAbsolutePath());
-            }
-
-            folderRepository.delete(folder);
-            log.info("Dossier supprimé: {} (ID: {}) pour immeuble: {}", folder.getName(), folderId, buildingId);
-
-        } catch (IOException e) {
-            log.error("Erreur lors de la suppression du dossier: {}", e.getMessage(), e);
-            throw new RuntimeException("Échec de la suppression du dossier: " + e.getMessage());
+        for (DocumentRepository.StorageView usage : documentRepository.sumStorageByFolderTreePathPrefix(folder.getTreePath() + "%")) {
+            storageQuotaService.release(new StorageScope(buildingId, usage.getApartmentId()),
+                    usage.getBytes(), usage.getFiles());
         }
+        documentPreviewService.deletePreviewsAfterCommit(
+                documentRepository.findIdsByFolderTreePathPrefix(folder.getTreePath() + "%"));
+        folderHierarchyService.deleteSubtree(folder);
+        folderAclIndex.evictAfterCommit(buildingId);
+        deletePhysicalAfterCommit(Paths.get(baseDocumentsDir, folder.getFolderPath()));
+        log.info("Dossier supprimé: {} (ID: {}) pour immeuble: {}", folder.getName(), folderId, buildingId);
     }
 
     @Transactional
@@ -558,23 +657,43 @@ public class DocumentService {
             throw new RuntimeException("Seul le créateur du document peut le supprimer");
         }
 
-        try {
-            Path filePath = Paths.get(baseDocumentsDir, document.getFilePath());
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
-                log.info("Fichier physique supprimé: {}", filePath.toAbsolutePath());
-            }
+        long fileSize = document.getFileSize() != null ? document.getFileSize() : 0;
+        documentSearchService.removeDocument(document.getId());
+        documentPreviewService.deletePreviewsAfterCommit(List.of(document.getId()));
+        folderHierarchyService.documentRemoved(document.getFolder(), fileSize);
+        storageQuotaService.release(new StorageScope(buildingId,
+                document.getApartment() != null ? document.getApartment().getIdApartment() : null), fileSize);
+        documentRepository.delete(document);
+        deletePhysicalAfterCommit(Paths.get(baseDocumentsDir, document.getFilePath()));
+        log.info("Document supprimé: {} (ID: {}) pour immeuble: {}", document.getOriginalFilename(), documentId, buildingId);
+    }
 
-            documentRepository.delete(document);
-            log.info("Document supprimé: {} (ID: {}) pour immeuble: {}", document.getOriginalFilename(), documentId, buildingId);
+    /**
+     * Vérifie l'accès et retourne le chemin du fichier : le contenu est streamé par le contrôleur,
+     * sans être chargé en mémoire (les documents peuvent atteindre la taille maximale d'upload).
+     */
+    public Path downloadDocument(Long documentId, String email) {
+        Document document = findReadableDocument(documentId, email);
 
-        } catch (IOException e) {
-            log.error("Erreur lors de la suppression du document: {}", e.getMessage(), e);
-            throw new RuntimeException("Échec de la suppression du document: " + e.getMessage());
+        Path filePath = Paths.get(baseDocumentsDir, document.getFilePath());
+        if (!Files.exists(filePath)) {
+            log.error("Fichier physique non trouvé: {}", filePath.toAbsolutePath());
+            throw new RuntimeException("Fichier non trouvé sur le système de fichiers");
         }
+
+        log.info("Téléchargement du document: {} (ID: {}) pour immeuble: {}",
+                document.getOriginalFilename(), documentId, document.getBuilding().getBuildingId());
+        return filePath;
+    }
+
+    /**
+     * Aperçu léger du document (image réduite), rendu et mis en cache par {@link DocumentPreviewService}.
+     */
+    public DocumentPreviewService.Preview getDocumentPreview(Long documentId, String email) {
+        return documentPreviewService.getPreview(findReadableDocument(documentId, email));
     }
 
-    public byte[] downloadDocument(Long documentId, String email) throws IOException {
+    private Document findReadableDocument(Long documentId, String email) {
         Resident resident = residentRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Résident non trouvé"));
 
@@ -599,20 +718,70 @@ public class DocumentService {
         if (!hasAccessToFolder(folder, resident.getIdUsers(), apartmentId)) {
             throw new RuntimeException("Accès non autorisé à ce document");
         }
+        return document;
+    }
 
-        Path filePath = Paths.get(baseDocumentsDir, document.getFilePath());
-        if (!Files.exists(filePath)) {
-            log.error("Fichier physique non trouvé: {}", filePath.toAbsolutePath());
-            throw new RuntimeException("Fichier non trouvé sur le système de fichiers");
+    /**
+     * Résout le contenu téléchargeable d'un dossier et de ses sous-dossiers lisibles.
+     * Les permissions sont vérifiées ici, avant le streaming de l'archive.
+     */
+    @Transactional(readOnly = true)
+    public FolderArchive prepareFolderArchive(Long folderId, String email) {
+        Resident resident = residentRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("Résident non trouvé"));
+
+        String buildingId = be.delomid.oneapp.mschat.mschat.util.SecurityContextUtil.getCurrentBuildingId();
+        if (buildingId == null) {
+            throw new RuntimeException("Aucun immeuble sélectionné");
         }
 
-        log.info("Téléchargement du document: {} (ID: {}) pour immeuble: {}",
-                document.getOriginalFilename(), documentId, buildingId);
-        return Files.readAllBytes(filePath);
+        ResidentBuilding residentBuilding = residentBuildingRepository
+                .findByResidentIdAndBuildingId(resident.getIdUsers(), buildingId)
+                .orElse(null);
+
+        String apartmentId = null;
+        if (residentBuilding != null && residentBuilding.getApartment() != null) {
+            apartmentId = residentBuilding.getApartment().getIdApartment();
+        }
+
+        Folder root = folderRepository.findByIdAndBuildingId(folderId, buildingId)
+                .orElseThrow(() -> new RuntimeException("Dossier non trouvé"));
+
+        if (!checkFolderReadPermission(root, resident.getIdUsers(), apartmentId)) {
+            throw new RuntimeException("Accès non autorisé à ce dossier");
+        }
+
+        List<FolderArchive.Entry> entries = new ArrayList<>();
+        Set<String> usedPaths = new HashSet<>();
+        Deque<Map.Entry<Folder, String>> toVisit = new ArrayDeque<>();
+        toVisit.push(Map.entry(root, sanitizeZipName(root.getName())));
+
+        while (!toVisit.isEmpty()) {
+            Map.Entry<Folder, String> current = toVisit.pop();
+            Folder folder = current.getKey();
+            String zipDirectory = current.getValue();
+
+            for (Document document : documentRepository.findByFolderIdOrderByCreatedAtDesc(folder.getId())) {
+                String zipPath = uniqueZipPath(zipDirectory, sanitizeZipName(document.getOriginalFilename()), usedPaths);
+                entries.add(new FolderArchive.Entry(zipPath, Paths.get(baseDocumentsDir, document.getFilePath())));
+            }
+
+            for (Folder subFolder : folderRepository.findByParentFolderId(folder.getId())) {
+                // Les sous-dossiers non lisibles sont ignorés avec tout leur contenu
+                if (checkFolderReadPermission(subFolder, resident.getIdUsers(), apartmentId)) {
+                    toVisit.push(Map.entry(subFolder, zipDirectory + "/" + sanitizeZipName(subFolder.getName())));
+                }
+            }
+        }
+
+        log.info("Archive du dossier {} (ID: {}) préparée: {} fichiers pour immeuble: {}",
+                root.getName(), folderId, entries.size(), buildingId);
+
+        return new FolderArchive(sanitizeZipName(root.getName()) + ".zip", entries);
     }
 
     @Transactional(readOnly = true)
-    public List<DocumentDto> searchDocuments(String query, String email) {
+    public List<DocumentDto> searchDocuments(String query, String email, int page, int size) {
         Resident resident = residentRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Résident non trouvé"));
 
@@ -634,17 +803,14 @@ public class DocumentService {
             apartmentId = residentBuilding.getApartment().getIdApartment();
         }
 
-        List<Document> allDocuments = documentRepository.searchByBuildingIdAndOriginalFilenameContaining(buildingId, query.trim());
-
-        String finalApartmentId = apartmentId;
-        List<Document> accessibleDocuments = allDocuments.stream()
-                .filter(doc -> hasAccessToFolder(doc.getFolder(), resident.getIdUsers(), finalApartmentId))
-                .collect(Collectors.toList());
+        int pageSize = Math.min(Math.max(size, 1), MAX_SEARCH_PAGE_SIZE);
+        List<Long> documentIds = documentSearchService.search(
+                buildingId, resident.getIdUsers(), apartmentId, query.trim(), Math.max(page, 0), pageSize);
 
         log.debug("Recherche '{}' a retourné {} documents accessibles pour immeuble {}",
-                query, accessibleDocuments.size(), buildingId);
+                query, documentIds.size(), buildingId);
 
-        return accessibleDocuments.stream()
+        return documentSearchService.loadInOrder(documentIds).stream()
                 .map(this::mapToDocumentDto)
                 .collect(Collectors.toList());
     }
@@ -658,6 +824,39 @@ public class DocumentService {
         return Paths.get("apartment_" + apartmentId, folderName).toString();
     }
 
+    private String sanitizeZipName(String name) {
+        String cleaned = name.replace('/', '_').replace('\\', '_').trim();
+        return cleaned.isEmpty() || cleaned.equals(".") || cleaned.equals("..") ? "_" : cleaned;
+    }
+
+    private String uniqueZipPath(String directory, String filename, Set<String> usedPaths) {
+        String candidate = directory + "/" + filename;
+        int dot = filename.lastIndexOf('.');
+        String base = dot > 0 ? filename.substring(0, dot) : filename;
+        String extension = dot > 0 ? filename.substring(dot) : "";
+        for (int i = 1; !usedPaths.add(candidate); i++) {
+            candidate = directory + "/" + base + " (" + i + ")" + extension;
+        }
+        return candidate;
+    }
+
+    /**
+     * Supprime le fichier ou le dossier physique une fois la suppression en base validée :
+     * un rollback laisse les fichiers intacts (le quota est libéré dans la transaction).
+     */
+    private void deletePhysicalAfterCommit(Path path) {
+        TransactionUtil.afterCommit(() -> {
+            try {
+                if (Files.exists(path)) {
+                    deleteDirectoryRecursively(path);
+                    log.info("Fichier physique supprimé: {}", path.toAbsolutePath());
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Impossible de supprimer {}: {}", path.toAbsolutePath(), e.getMessage());
+            }
+        });
+    }
+
     private void deleteDirectoryRecursively(Path path) throws IOException {
         if (Files.isDirectory(path)) {
             try (var stream = Files.list(path)) {
@@ -685,18 +884,13 @@ public class DocumentService {
     }
 
     private FolderDto mapToFolderDto(Folder folder, String residentId, String apartmentId) {
-        boolean canRead = checkFolderReadPermission(folder, residentId, apartmentId);
-        boolean canUpload = checkFolderUploadPermission(folder, residentId, apartmentId);
-
-        List<FolderPermissionDto> permissionDtos = folder.getPermissions().stream()
-                .map(p -> FolderPermissionDto.builder()
-                        .id(p.getId())
-                        .apartmentId(p.getApartment() != null ? p.getApartment().getIdApartment() : null)
-                        .residentId(p.getResident() != null ? p.getResident().getIdUsers() : null)
-                        .canRead(p.getCanRead())
-                        .canUpload(p.getCanUpload())
-                        .build())
-                .collect(Collectors.toList());
+        FolderAcl acl = folderAclIndex.get(folder);
+        return mapToFolderDto(folder, acl, residentId, apartmentId);
+    }
+
+    private FolderDto mapToFolderDto(Folder folder, FolderAcl acl, String residentId, String apartmentId) {
+        boolean canRead = acl != null && acl.canRead(residentId, apartmentId);
+        boolean canUpload = acl != null && acl.canUpload(residentId, apartmentId);
 
         return FolderDto.builder()
                 .id(folder.getId())
@@ -709,79 +903,27 @@ public class DocumentService {
                 .isShared(folder.getIsShared())
                 .shareType(folder.getShareType().name())
                 .createdAt(folder.getCreatedAt())
-                .subFolderCount(folder.getSubFolders() != null ? folder.getSubFolders().size() : 0)
-                .documentCount(folder.getDocuments() != null ? folder.getDocuments().size() : 0)
-                .permissions(permissionDtos)
+                .subFolderCount(folder.getSubFolderCount() != null ? folder.getSubFolderCount() : 0)
+                .documentCount(folder.getDocumentCount() != null ? folder.getDocumentCount() : 0)
+                .totalBytes(folder.getTotalBytes() != null ? folder.getTotalBytes() : 0L)
+                .permissions(acl != null ? acl.getPermissions() : List.of())
                 .canRead(canRead)
                 .canUpload(canUpload)
                 .build();
     }
 
+    // Contrôles d'accès servis par l'index d'ACL (aucune requête une fois l'immeuble chargé, tant que
+    // la version de permissions lue avec le dossier correspond à celle de l'index)
     private boolean checkFolderReadPermission(Folder folder, String residentId, String apartmentId) {
-        if (folder.getCreatedBy().equals(residentId)) {
-            return true;
-        }
-
-        if (folder.getShareType() == ShareType.ALL_APARTMENTS) {
-            return true;
-        }
-
-        if (folder.getShareType() == ShareType.PRIVATE) {
-            return false;
-        }
-
-        if (folder.getShareType() == ShareType.SPECIFIC_APARTMENTS) {
-            return folder.getPermissions().stream()
-                    .anyMatch(p -> (p.getResident() != null && p.getResident().getIdUsers().equals(residentId)) ||
-                            (p.getApartment() != null && apartmentId != null && p.getApartment().getIdApartment().equals(apartmentId)));
-        }
-
-        return false;
+        return folderAclIndex.canRead(folder, residentId, apartmentId);
     }
 
     private boolean checkFolderUploadPermission(Folder folder, String residentId, String apartmentId) {
-        if (folder.getCreatedBy().equals(residentId)) {
-            return true;
-        }
-
-        if (folder.getShareType() == ShareType.ALL_APARTMENTS) {
-            return false;
-        }
-
-        if (folder.getShareType() == ShareType.PRIVATE) {
-            return false;
-        }
-
-        if (folder.getShareType() == ShareType.SPECIFIC_APARTMENTS) {
-            return folder.getPermissions().stream()
-                    .anyMatch(p -> p.getCanUpload() &&
-                            ((p.getResident() != null && p.getResident().getIdUsers().equals(residentId)) ||
-                                    (p.getApartment() != null && apartmentId != null && p.getApartment().getIdApartment().equals(apartmentId))));
-        }
-
-        return false;
+        return folderAclIndex.canUpload(folder, residentId, apartmentId);
     }
 
     private boolean hasAccessToFolder(Folder folder, String residentId, String apartmentId) {
-        if (folder.getCreatedBy().equals(residentId)) {
-            return true;
-        }
-
-        if (folder.getShareType() == ShareType.ALL_APARTMENTS) {
-            return true;
-        }
-
-        if (folder.getShareType() == ShareType.PRIVATE) {
-            return false;
-        }
-
-        if (folder.getShareType() == ShareType.SPECIFIC_APARTMENTS) {
-            return folder.getPermissions().stream()
-                    .anyMatch(p -> (p.getResident() != null && p.getResident().getIdUsers().equals(residentId)) ||
-                            (p.getApartment() != null && apartmentId != null && p.getApartment().getIdApartment().equals(apartmentId)));
-        }
-
-        return false;
+        return checkFolderReadPermission(folder, residentId, apartmentId);
     }
 
     private DocumentDto mapToDocumentDto(Document document) {
@@ -805,4 +947,9 @@ public class DocumentService {
                 .previewUrl(baseUrl + "/" + document.getId() + "/preview")
                 .build();
     }
+
+    @FunctionalInterface
+    private interface ContentWriter {
+        void writeTo(Path target) throws IOException;
+    }
 }
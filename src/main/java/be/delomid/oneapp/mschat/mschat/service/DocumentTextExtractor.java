@@ -0,0 +1,68 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Extrait le texte indexable des PDF et des fichiers texte, avec une taille bornée.
+ */
+@Component
+@Slf4j
+public class DocumentTextExtractor {
+
+    private static final Set<String> TEXT_EXTENSIONS = Set.of(".txt", ".csv", ".md", ".json", ".xml", ".log");
+
+    @Value("${app.documents.search.max-content-chars:100000}")
+    private int maxContentChars;
+
+    @Value("${app.documents.search.max-pdf-pages:50}")
+    private int maxPdfPages;
+
+    public String extract(Path file, String mimeType, String fileExtension) {
+        String extension = fileExtension != null ? fileExtension.toLowerCase(Locale.ROOT) : "";
+        try {
+            if (".pdf".equals(extension) || "application/pdf".equals(mimeType)) {
+                return extractPdf(file);
+            }
+            if (TEXT_EXTENSIONS.contains(extension) || (mimeType != null && mimeType.startsWith("text/"))) {
+                return extractText(file);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Un fichier illisible reste indexé par son nom et sa description
+            log.warn("Extraction de texte impossible pour {}: {}", file, e.getMessage());
+        }
+        return "";
+    }
+
+    private String extractPdf(Path file) throws IOException {
+        try (PDDocument pdf = Loader.loadPDF(file.toFile())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setEndPage(maxPdfPages);
+            return truncate(stripper.getText(pdf));
+        }
+    }
+
+    private String extractText(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            // Au plus 4 octets par caractère en UTF-8
+            byte[] bytes = in.readNBytes(maxContentChars * 4);
+            return truncate(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private String truncate(String text) {
+        return text.length() > maxContentChars ? text.substring(0, maxContentChars) : text;
+    }
+}
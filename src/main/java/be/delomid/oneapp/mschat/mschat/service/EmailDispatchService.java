@@ -0,0 +1,158 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.config.AppConfig;
+import be.delomid.oneapp.mschat.mschat.exception.TooManyRequestsException;
+import be.delomid.oneapp.mschat.mschat.util.TransactionUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * File d'envoi d'emails asynchrone : les requêtes HTTP déposent le message et repartent
+ * immédiatement, un petit pool de workers envoie les messages par lots sur une même
+ * connexion SMTP.
+ */
+@Service
+@Slf4j
+public class EmailDispatchService {
+
+    private static final long SUBMIT_TIMEOUT_MILLIS = 2000;
+    private static final long RETRY_AFTER_SECONDS = 5;
+
+    private final EmailService emailService;
+    private final BlockingQueue<SimpleMailMessage> queue;
+    private final int workerThreads;
+    private final int batchSize;
+    private ExecutorService workers;
+    private volatile boolean running;
+
+    public EmailDispatchService(EmailService emailService, AppConfig appConfig) {
+        this(emailService,
+                appConfig.getEmail().getWorkerThreads(),
+                appConfig.getEmail().getQueueCapacity(),
+                appConfig.getEmail().getBatchSize());
+    }
+
+    EmailDispatchService(EmailService emailService, int workerThreads, int queueCapacity, int batchSize) {
+        this.emailService = emailService;
+        this.workerThreads = workerThreads;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "email-dispatch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerThreads; i++) {
+            workers.submit(this::drainLoop);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Dépose un email dans la file, en attendant brièvement qu'une place se libère.
+     * Lève TooManyRequestsException si la file reste pleine : l'email n'est jamais perdu en silence.
+     */
+    public void submit(SimpleMailMessage message) {
+        boolean accepted;
+        try {
+            accepted = queue.offer(message, SUBMIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            log.warn("Email queue full, rejecting email to: {}", Arrays.toString(message.getTo()));
+            throw new TooManyRequestsException("Service d'envoi d'emails saturé, veuillez réessayer", RETRY_AFTER_SECONDS);
+        }
+    }
+
+    /**
+     * Dépose l'email une fois la transaction courante validée (ou immédiatement hors transaction).
+     * Une file déjà pleine est refusée avant la validation, pour annuler la transaction de l'appelant ;
+     * si la file se remplit entre-temps, l'exception remonte à l'appelant du commit.
+     */
+    public void submitAfterCommit(SimpleMailMessage message) {
+        if (queue.remainingCapacity() == 0) {
+            log.warn("Email queue full, rejecting email to: {}", Arrays.toString(message.getTo()));
+            throw new TooManyRequestsException("Service d'envoi d'emails saturé, veuillez réessayer", RETRY_AFTER_SECONDS);
+        }
+        TransactionUtil.afterCommit(() -> submit(message));
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Envoie un lot puis retente une fois, sur une nouvelle connexion, les messages refusés.
+     * Retourne les messages définitivement abandonnés.
+     */
+    List<SimpleMailMessage> dispatchBatch(List<SimpleMailMessage> batch) {
+        List<SimpleMailMessage> failed = emailService.sendBatch(batch);
+        if (failed.isEmpty()) {
+            return failed;
+        }
+        log.warn("{} of {} queued emails failed, retrying", failed.size(), batch.size());
+        List<SimpleMailMessage> abandoned = emailService.sendBatch(failed);
+        for (SimpleMailMessage message : abandoned) {
+            log.error("Email to {} abandoned after retry", Arrays.toString(message.getTo()));
+        }
+        return abandoned;
+    }
+
+    private void drainLoop() {
+        List<SimpleMailMessage> batch = new ArrayList<>(batchSize);
+        // Continuer tant que la file n'est pas vide, même après l'arrêt
+        while (running || !queue.isEmpty()) {
+            try {
+                SimpleMailMessage first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                dispatchBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Unexpected error in email dispatch worker", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+}
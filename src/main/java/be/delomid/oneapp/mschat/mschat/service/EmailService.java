@@ -2,10 +2,15 @@ package be.delomid.oneapp.mschat.mschat.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -13,37 +18,58 @@ public class EmailService {
     
     private final JavaMailSender mailSender;
     
-    public void sendOtpEmail(String to, String otpCode, String purpose) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(to);
-            message.setSubject("Code de vérification - MSChat");
-            message.setText(buildOtpEmailContent(otpCode, purpose));
-            
-            mailSender.send(message);
-            log.debug("OTP email sent to: {}", to);
-            
-        } catch (Exception e) {
-            log.error("Failed to send OTP email to: {}", to, e);
-            throw new RuntimeException("Failed to send OTP email", e);
+    /**
+     * Envoie plusieurs emails sur une seule connexion SMTP.
+     * Retourne les messages qui n'ont pas pu être envoyés (liste vide si tout est parti).
+     */
+    public List<SimpleMailMessage> sendBatch(List<SimpleMailMessage> messages) {
+        if (messages.isEmpty()) {
+            return List.of();
         }
-    }
-    
-    public void sendAccountStatusEmail(String to, String status, String reason) {
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(to);
-            message.setSubject("Statut de votre compte - MSChat");
-            message.setText(buildAccountStatusEmailContent(status, reason));
-            
-            mailSender.send(message);
-            log.debug("Account status email sent to: {}", to);
-            
+            mailSender.send(messages.toArray(new SimpleMailMessage[0]));
+            log.debug("Batch of {} emails sent", messages.size());
+            return List.of();
+        } catch (MailSendException e) {
+            List<SimpleMailMessage> failed = new ArrayList<>();
+            e.getFailedMessages().forEach((original, cause) -> {
+                if (original instanceof SimpleMailMessage message) {
+                    failed.add(message);
+                    log.error("Failed to send email to: {}", Arrays.toString(message.getTo()), cause);
+                }
+            });
+            return failed;
         } catch (Exception e) {
-            log.error("Failed to send account status email to: {}", to, e);
+            log.error("Failed to send batch of {} emails", messages.size(), e);
+            return new ArrayList<>(messages);
         }
     }
-    
+
+    public SimpleMailMessage buildOtpMessage(String to, String otpCode, String purpose) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(to);
+        message.setSubject("Code de vérification - MSChat");
+        message.setText(buildOtpEmailContent(otpCode, purpose));
+        return message;
+    }
+
+    public SimpleMailMessage buildAccountStatusMessage(String to, String status, String reason) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(to);
+        message.setSubject("Statut de votre compte - MSChat");
+        message.setText(buildAccountStatusEmailContent(status, reason));
+        return message;
+    }
+
+    public SimpleMailMessage buildWelcomeMessage(String to, String fullName, String buildingName, String apartmentNumber,
+                                                 String email, String temporaryPassword) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(to);
+        message.setSubject("Bienvenue dans votre immeuble - MSChat");
+        message.setText(buildWelcomeEmailContent(fullName, buildingName, apartmentNumber, email, temporaryPassword));
+        return message;
+    }
+
     private String buildOtpEmailContent(String otpCode, String purpose) {
         return String.format("""
             Bonjour,
@@ -59,22 +85,6 @@ public class EmailService {
             """, purpose, otpCode);
     }
     
-    public void sendWelcomeEmail(String to, String fullName, String buildingName, String apartmentNumber, String email, String temporaryPassword) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(to);
-            message.setSubject("Bienvenue dans votre immeuble - MSChat");
-            message.setText(buildWelcomeEmailContent(fullName, buildingName, apartmentNumber, email, temporaryPassword));
-
-            mailSender.send(message);
-            log.debug("Welcome email sent to: {}", to);
-
-        } catch (Exception e) {
-            log.error("Failed to send welcome email to: {}", to, e);
-            throw new RuntimeException("Failed to send welcome email", e);
-        }
-    }
-
     private String buildAccountStatusEmailContent(String status, String reason) {
         String statusText = switch (status) {
             case "ACTIVE" -> "approuvé";
@@ -64,43 +64,67 @@ public class FCMService {
     }
 
     public void sendPushNotification(String fcmToken, String title, String body, String type, String channelId) {
+        sendPushNotification(fcmToken, title, body, type, channelId, null);
+    }
+
+    /**
+     * @param collapseKey si renseigné, une notification plus récente avec la même clé remplace
+     *                    la précédente sur l'appareil au lieu de s'empiler
+     */
+    public void sendPushNotification(String fcmToken, String title, String body, String type, String channelId,
+                                     String collapseKey) {
+        try {
+            deliverPushNotification(fcmToken, title, body, type, channelId, collapseKey);
+        } catch (Exception e) {
+            log.error("Error sending push notification to token {}: {}", fcmToken, e.getMessage());
+        }
+    }
+
+    /**
+     * Variante de {@link #sendPushNotification} qui propage les erreurs FCM, pour permettre
+     * à l'appelant (outbox) de réessayer.
+     */
+    public void deliverPushNotification(String fcmToken, String title, String body, String type, String channelId,
+                                        String collapseKey) throws FirebaseMessagingException {
         if (fcmToken == null || fcmToken.isEmpty()) {
             log.warn("FCM token is empty, skipping notification");
             return;
         }
 
-        try {
-            Message.Builder messageBuilder = Message.builder()
-                    .setToken(fcmToken)
-                    .setNotification(Notification.builder()
-                            .setTitle(title)
-                            .setBody(body)
-                            .build())
-                    .putData("type", type != null ? type : "MESSAGE")
-                    .setAndroidConfig(AndroidConfig.builder()
-                            .setPriority(AndroidConfig.Priority.HIGH)
-                            .setNotification(AndroidNotification.builder()
-                                    .setSound("default")
-                                    .setChannelId("high_importance_channel")
-                                    .build())
-                            .build())
-                    .setApnsConfig(ApnsConfig.builder()
-                            .setAps(Aps.builder()
-                                    .setSound("default")
-                                    .setBadge(1)
-                                    .build())
-                            .build());
-
-            if (channelId != null) {
-                messageBuilder.putData("channelId", channelId);
-            }
+        AndroidNotification.Builder androidNotification = AndroidNotification.builder()
+                .setSound("default")
+                .setChannelId("high_importance_channel");
+        AndroidConfig.Builder androidConfig = AndroidConfig.builder()
+                .setPriority(AndroidConfig.Priority.HIGH);
+        ApnsConfig.Builder apnsConfig = ApnsConfig.builder()
+                .setAps(Aps.builder()
+                        .setSound("default")
+                        .setBadge(1)
+                        .build());
+
+        if (collapseKey != null) {
+            androidConfig.setCollapseKey(collapseKey);
+            androidNotification.setTag(collapseKey);
+            apnsConfig.putHeader("apns-collapse-id", collapseKey);
+        }
 
-            Message message = messageBuilder.build();
-            String response = FirebaseMessaging.getInstance().send(message);
-            log.info("Successfully sent push notification: {}", response);
-        } catch (Exception e) {
-            log.error("Error sending push notification to token {}: {}", fcmToken, e.getMessage());
+        Message.Builder messageBuilder = Message.builder()
+                .setToken(fcmToken)
+                .setNotification(Notification.builder()
+                        .setTitle(title)
+                        .setBody(body)
+                        .build())
+                .putData("type", type != null ? type : "MESSAGE")
+                .setAndroidConfig(androidConfig.setNotification(androidNotification.build()).build())
+                .setApnsConfig(apnsConfig.build());
+
+        if (channelId != null) {
+            messageBuilder.putData("channelId", channelId);
         }
+
+        Message message = messageBuilder.build();
+        String response = FirebaseMessaging.getInstance().send(message);
+        log.info("Successfully sent push notification: {}", response);
     }
 
     public void sendIncomingCallNotification(String fcmToken, String callerId, String callerName, String callerAvatar, Long callId, Long channelId) {
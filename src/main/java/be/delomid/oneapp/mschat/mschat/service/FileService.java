@@ -1,12 +1,17 @@
 package be.delomid.oneapp.mschat.mschat.service;
 
+import be.delomid.oneapp.mschat.mschat.util.FileStorageUtil;
+import be.delomid.oneapp.mschat.mschat.util.TransactionUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -23,6 +28,10 @@ import java.util.UUID;
 @Slf4j
 public class FileService {
 
+    private static final String FILES_BASE_URL = "http://109.136.4.153:9090/api/v1/files/";
+
+    private final StorageQuotaService storageQuotaService;
+
     @Value("${app.file.upload-dir:uploads}")
     private String uploadDir;
 
@@ -30,50 +39,85 @@ public class FileService {
     private long maxFileSize;
 
     public Map<String, Object> uploadFile(MultipartFile file, String type, String userId) {
+        return uploadFile(file, type, userId, storageQuotaService.currentScope());
+    }
+
+    /**
+     * Upload imputé explicitement à un immeuble / appartement (photos d'appartement, de sinistre).
+     */
+    public Map<String, Object> uploadFile(MultipartFile file, String type, String userId, StorageScope scope) {
         validateFile(file, type);
 
         try {
-            // Créer le répertoire s'il n'existe pas
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
+            return storeFile(file.getOriginalFilename(), file.getContentType(), file.getSize(), type, userId, scope,
+                    target -> Files.copy(file.getInputStream(), target, StandardCopyOption.REPLACE_EXISTING));
+        } catch (IOException e) {
+            log.error("Error uploading file", e);
+            throw new RuntimeException("Failed to upload file", e);
+        }
+    }
 
-            // Générer un nom de fichier unique
-            String originalFilename = file.getOriginalFilename();
-            String extension = getFileExtension(originalFilename);
-            String filename = UUID.randomUUID().toString() + extension;
-
-            // Sauvegarder le fichier
-            Path filePath = uploadPath.resolve(filename);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-            // Construire l'URL complète pour l'accès au fichier
-            String baseUrl = "http://109.136.4.153:9090/api/v1/files/";
-            String fileUrl = baseUrl + filename;
-            String downloadUrl = baseUrl + "download/" + filename;
-
-            // Construire la réponse
-            Map<String, Object> response = new HashMap<>();
-            response.put("fileId", filename);
-            response.put("originalName", originalFilename);
-            response.put("size", file.getSize());
-            response.put("type", type);
-            response.put("mimeType", file.getContentType());
-            response.put("url", fileUrl);
-            response.put("downloadUrl", downloadUrl);
-            response.put("uploadedBy", userId);
-
-            log.info("File uploaded successfully: {} by user: {}", filename, userId);
-            return response;
+    /**
+     * Enregistre un fichier reçu par upload fragmenté (déplacement atomique du fichier de staging).
+     */
+    public Map<String, Object> registerUploadedFile(Path stagedFile, String originalFilename, String contentType,
+                                                    long size, String type, String userId) {
+        validateContentType(contentType, type);
 
+        try {
+            return storeFile(originalFilename, contentType, size, type, userId, storageQuotaService.currentScope(),
+                    target -> FileStorageUtil.moveAtomically(stagedFile, target));
         } catch (IOException e) {
-            log.error("Error uploading file", e);
+            log.error("Error storing uploaded file", e);
             throw new RuntimeException("Failed to upload file", e);
         }
     }
 
-    public ResponseEntity<byte[]> getFile(String fileId) {
+    private Map<String, Object> storeFile(String originalFilename, String contentType, long size, String type,
+                                          String userId, StorageScope scope, ContentWriter contentWriter) throws IOException {
+        // Créer le répertoire s'il n'existe pas
+        Path uploadPath = Paths.get(uploadDir);
+        if (!Files.exists(uploadPath)) {
+            Files.createDirectories(uploadPath);
+        }
+
+        // Générer un nom de fichier unique
+        String extension = getFileExtension(originalFilename);
+        String filename = UUID.randomUUID().toString() + extension;
+
+        // Réserver l'espace avant d'écrire le moindre octet
+        storageQuotaService.reserveStoredFile(filename, scope, userId, size);
+
+        // Sauvegarder le fichier
+        Path filePath = uploadPath.resolve(filename);
+        try {
+            contentWriter.writeTo(filePath);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(filePath);
+            storageQuotaService.cancelStoredFile(filename, scope, size);
+            throw e;
+        }
+
+        // Construire l'URL complète pour l'accès au fichier
+        String fileUrl = fileUrl(filename);
+        String downloadUrl = FILES_BASE_URL + "download/" + filename;
+
+        // Construire la réponse
+        Map<String, Object> response = new HashMap<>();
+        response.put("fileId", filename);
+        response.put("originalName", originalFilename);
+        response.put("size", size);
+        response.put("type", type);
+        response.put("mimeType", contentType);
+        response.put("url", fileUrl);
+        response.put("downloadUrl", downloadUrl);
+        response.put("uploadedBy", userId);
+
+        log.info("File uploaded successfully: {} by user: {}", filename, userId);
+        return response;
+    }
+
+    public ResponseEntity<Resource> getFile(String fileId) {
         try {
             Path filePath = Paths.get(uploadDir).resolve(fileId);
 
@@ -81,7 +125,6 @@ public class FileService {
                 return ResponseEntity.notFound().build();
             }
 
-            byte[] fileContent = Files.readAllBytes(filePath);
             String contentType = Files.probeContentType(filePath);
 
             if (contentType == null) {
@@ -91,7 +134,8 @@ public class FileService {
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileId + "\"")
                     .contentType(MediaType.parseMediaType(contentType))
-                    .body(fileContent);
+                    .contentLength(Files.size(filePath))
+                    .body(new FileSystemResource(filePath));
 
         } catch (IOException e) {
             log.error("Error retrieving file: {}", fileId, e);
@@ -99,7 +143,7 @@ public class FileService {
         }
     }
 
-    public ResponseEntity<byte[]> downloadFile(String fileId) {
+    public ResponseEntity<Resource> downloadFile(String fileId) {
         try {
             Path filePath = Paths.get(uploadDir).resolve(fileId);
 
@@ -107,7 +151,6 @@ public class FileService {
                 return ResponseEntity.notFound().build();
             }
 
-            byte[] fileContent = Files.readAllBytes(filePath);
             String contentType = Files.probeContentType(filePath);
 
             if (contentType == null) {
@@ -120,7 +163,8 @@ public class FileService {
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + originalFilename + "\"")
                     .contentType(MediaType.parseMediaType(contentType))
-                    .body(fileContent);
+                    .contentLength(Files.size(filePath))
+                    .body(new FileSystemResource(filePath));
 
         } catch (IOException e) {
             log.error("Error downloading file: {}", fileId, e);
@@ -128,7 +172,26 @@ public class FileService {
         }
     }
 
+    /**
+     * Supprime le fichier et libère son quota. Dans une transaction, la suppression est
+     * différée après le commit : un rollback laisse le fichier et le quota intacts.
+     */
     public void deleteFile(String fileId, String userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleteNow(fileId, userId);
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            try {
+                deleteNow(fileId, userId);
+            } catch (RuntimeException e) {
+                // La suppression en base est validée : le fichier restant sera signalé par la réconciliation
+                log.warn("File {} could not be deleted after commit: {}", fileId, e.getMessage());
+            }
+        });
+    }
+
+    private void deleteNow(String fileId, String userId) {
         try {
             Path filePath = Paths.get(uploadDir).resolve(fileId);
 
@@ -136,6 +199,7 @@ public class FileService {
                 Files.delete(filePath);
                 log.info("File deleted: {} by user: {}", fileId, userId);
             }
+            storageQuotaService.storedFileDeleted(fileId);
 
         } catch (IOException e) {
             log.error("Error deleting file: {}", fileId, e);
@@ -143,7 +207,29 @@ public class FileService {
         }
     }
 
-    public ResponseEntity<byte[]> getProfilePicture(String filename) {
+    /**
+     * Supprime le fichier désigné par son URL publique (".../files/{fileId}").
+     */
+    public void deleteFileByUrl(String fileUrl, String userId) {
+        if (fileUrl == null || fileUrl.isEmpty()) {
+            return;
+        }
+        deleteFile(fileIdFromUrl(fileUrl), userId);
+    }
+
+    public String fileUrl(String fileId) {
+        return FILES_BASE_URL + fileId;
+    }
+
+    public String fileIdFromUrl(String fileUrl) {
+        return fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
+    }
+
+    public Path filePath(String fileId) {
+        return Paths.get(uploadDir).resolve(fileId);
+    }
+
+    public ResponseEntity<Resource> getProfilePicture(String filename) {
         try {
             Path filePath = Paths.get("uploads/profiles").resolve(filename);
 
@@ -151,7 +237,6 @@ public class FileService {
                 return ResponseEntity.notFound().build();
             }
 
-            byte[] fileContent = Files.readAllBytes(filePath);
             String contentType = Files.probeContentType(filePath);
 
             if (contentType == null) {
@@ -161,7 +246,8 @@ public class FileService {
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
                     .contentType(MediaType.parseMediaType(contentType))
-                    .body(fileContent);
+                    .contentLength(Files.size(filePath))
+                    .body(new FileSystemResource(filePath));
 
         } catch (IOException e) {
             log.error("Error retrieving profile picture: {}", filename, e);
@@ -178,14 +264,17 @@ public class FileService {
             throw new IllegalArgumentException("File size exceeds maximum allowed size of " + (maxFileSize / 1024 / 1024) + "MB");
         }
 
-        String contentType = file.getContentType();
+        log.info("Validating file: name={}, size={}, contentType={}, type={}",
+                 file.getOriginalFilename(), file.getSize(), file.getContentType(), type);
+
+        validateContentType(file.getContentType(), type);
+    }
+
+    public void validateContentType(String contentType, String type) {
         if (contentType == null) {
             throw new IllegalArgumentException("Invalid file type - content type is null");
         }
 
-        log.info("Validating file: name={}, size={}, contentType={}, type={}",
-                 file.getOriginalFilename(), file.getSize(), contentType, type);
-
         switch (type.toUpperCase()) {
             case "IMAGE":
                 if (!contentType.startsWith("image/")) {
@@ -210,4 +299,9 @@ public class FileService {
         }
         return filename.substring(filename.lastIndexOf('.'));
     }
-}
\ No newline at end of file
+
+    @FunctionalInterface
+    private interface ContentWriter {
+        void writeTo(Path target) throws IOException;
+    }
+}
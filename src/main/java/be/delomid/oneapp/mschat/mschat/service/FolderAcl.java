@@ -0,0 +1,90 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.dto.FolderPermissionDto;
+import be.delomid.oneapp.mschat.mschat.model.Folder;
+import be.delomid.oneapp.mschat.mschat.model.ShareType;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Droits d'accès précalculés d'un dossier : ensembles d'appartements / résidents
+ * autorisés en lecture et en upload, plus la liste des permissions exposée dans FolderDto.
+ */
+public final class FolderAcl {
+
+    private final String createdBy;
+    private final ShareType shareType;
+    private final Set<String> readApartments = new HashSet<>();
+    private final Set<String> readResidents = new HashSet<>();
+    private final Set<String> uploadApartments = new HashSet<>();
+    private final Set<String> uploadResidents = new HashSet<>();
+    private final List<FolderPermissionDto> permissions;
+    private final long version;
+
+    FolderAcl(String createdBy, ShareType shareType, List<FolderPermissionDto> permissions, long version) {
+        this.version = version;
+        this.createdBy = createdBy;
+        this.shareType = shareType;
+        this.permissions = List.copyOf(permissions);
+        for (FolderPermissionDto permission : permissions) {
+            if (Boolean.TRUE.equals(permission.getCanRead())) {
+                addIfPresent(readApartments, permission.getApartmentId());
+                addIfPresent(readResidents, permission.getResidentId());
+            }
+            if (Boolean.TRUE.equals(permission.getCanUpload())) {
+                addIfPresent(uploadApartments, permission.getApartmentId());
+                addIfPresent(uploadResidents, permission.getResidentId());
+            }
+        }
+    }
+
+    /**
+     * Construit l'ACL à partir de l'entité (et de sa collection de permissions déjà en mémoire),
+     * pour la version de permissions donnée (folders.acl_version).
+     */
+    public static FolderAcl of(Folder folder, long version) {
+        List<FolderPermissionDto> permissions = folder.getPermissions().stream()
+                .map(p -> FolderPermissionDto.builder()
+                        .id(p.getId())
+                        .apartmentId(p.getApartment() != null ? p.getApartment().getIdApartment() : null)
+                        .residentId(p.getResident() != null ? p.getResident().getIdUsers() : null)
+                        .canRead(p.getCanRead())
+                        .canUpload(p.getCanUpload())
+                        .build())
+                .collect(Collectors.toList());
+        return new FolderAcl(folder.getCreatedBy(), folder.getShareType(), permissions, version);
+    }
+
+    public boolean canRead(String residentId, String apartmentId) {
+        if (createdBy.equals(residentId) || shareType == ShareType.ALL_APARTMENTS) {
+            return true;
+        }
+        return shareType == ShareType.SPECIFIC_APARTMENTS
+                && (readResidents.contains(residentId) || (apartmentId != null && readApartments.contains(apartmentId)));
+    }
+
+    public boolean canUpload(String residentId, String apartmentId) {
+        if (createdBy.equals(residentId)) {
+            return true;
+        }
+        return shareType == ShareType.SPECIFIC_APARTMENTS
+                && (uploadResidents.contains(residentId) || (apartmentId != null && uploadApartments.contains(apartmentId)));
+    }
+
+    public List<FolderPermissionDto> getPermissions() {
+        return permissions;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    private static void addIfPresent(Set<String> target, String id) {
+        if (id != null) {
+            target.add(id);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.dto.FolderPermissionDto;
+import be.delomid.oneapp.mschat.mschat.model.Folder;
+import be.delomid.oneapp.mschat.mschat.repository.FolderPermissionRepository;
+import be.delomid.oneapp.mschat.mschat.repository.FolderPermissionRepository.FolderPermissionView;
+import be.delomid.oneapp.mschat.mschat.repository.FolderRepository;
+import be.delomid.oneapp.mschat.mschat.repository.FolderRepository.FolderAclView;
+import be.delomid.oneapp.mschat.mschat.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Index en mémoire des ACL de dossiers, par immeuble. Un immeuble est chargé en deux requêtes
+ * (dossiers + permissions) puis chaque contrôle d'accès est une simple recherche dans un Set.
+ * Chaque ACL porte la version de permissions du dossier (folders.acl_version) : elle est comparée
+ * à la version lue avec l'entité Folder à chaque contrôle, ce qui recharge immédiatement une entrée
+ * modifiée sur une autre instance, et un rechargement ne remplace jamais une entrée plus récente.
+ * L'entrée d'un immeuble est rechargée après app.documents.acl-ttl-seconds.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FolderAclIndex {
+
+    private final FolderRepository folderRepository;
+    private final FolderPermissionRepository folderPermissionRepository;
+
+    @Value("${app.documents.acl-ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final Map<String, BuildingAcl> buildings = new ConcurrentHashMap<>();
+
+    /**
+     * ACL du dossier, rechargée si l'index est plus ancien que la version lue en base avec l'entité.
+     */
+    public FolderAcl get(Folder folder) {
+        String buildingId = folder.getBuilding().getBuildingId();
+        long currentVersion = folder.getAclVersion() != null ? folder.getAclVersion() : 0L;
+
+        BuildingAcl building = buildings.get(buildingId);
+        if (building == null || building.isExpired(ttlSeconds)) {
+            // Chargement hors verrou ; seule la fusion avec l'entrée existante est atomique
+            building = buildings.merge(buildingId, load(buildingId), FolderAclIndex::newest);
+        }
+
+        FolderAcl acl = building.folders.get(folder.getId());
+        if (acl == null || acl.getVersion() < currentVersion) {
+            // Dossier créé ou permissions modifiées depuis le chargement (par exemple sur une autre instance)
+            acl = loadFolder(folder.getId());
+            if (acl != null) {
+                acl = building.folders.merge(folder.getId(), acl, FolderAclIndex::newest);
+            }
+        }
+        return acl;
+    }
+
+    public boolean canRead(Folder folder, String residentId, String apartmentId) {
+        FolderAcl acl = get(folder);
+        return acl != null && acl.canRead(residentId, apartmentId);
+    }
+
+    public boolean canUpload(Folder folder, String residentId, String apartmentId) {
+        FolderAcl acl = get(folder);
+        return acl != null && acl.canUpload(residentId, apartmentId);
+    }
+
+    /**
+     * Enregistre l'ACL d'un dossier créé ou modifié, une fois la transaction validée.
+     */
+    public void putAfterCommit(String buildingId, Long folderId, FolderAcl acl) {
+        TransactionUtil.afterCommit(() -> buildings.computeIfPresent(buildingId, (id, building) -> {
+            building.folders.merge(folderId, acl, FolderAclIndex::newest);
+            return building;
+        }));
+    }
+
+    public void evictAfterCommit(String buildingId) {
+        TransactionUtil.afterCommit(() -> buildings.remove(buildingId));
+    }
+
+    /**
+     * Fusionne un immeuble rechargé avec l'entrée en place : pour chaque dossier, la version la
+     * plus récente l'emporte (une ACL mise à jour après commit pendant le chargement est conservée).
+     */
+    private static BuildingAcl newest(BuildingAcl current, BuildingAcl loaded) {
+        current.folders.forEach((folderId, acl) ->
+                loaded.folders.computeIfPresent(folderId, (id, loadedAcl) -> newest(acl, loadedAcl)));
+        return loaded;
+    }
+
+    private static FolderAcl newest(FolderAcl current, FolderAcl loaded) {
+        return loaded.getVersion() >= current.getVersion() ? loaded : current;
+    }
+
+    private BuildingAcl load(String buildingId) {
+        // Versions lues avant les permissions : une modification concurrente laisse au pire
+        // une version ancienne (rechargée au prochain contrôle), jamais une version trop récente
+        List<FolderAclView> folderViews = folderRepository.findAclViewsByBuildingId(buildingId);
+        Map<Long, List<FolderPermissionDto>> permissionsByFolder = folderPermissionRepository
+                .findViewsByBuildingId(buildingId).stream()
+                .collect(Collectors.groupingBy(FolderPermissionView::getFolderId,
+                        Collectors.mapping(this::toDto, Collectors.toList())));
+
+        Map<Long, FolderAcl> folders = new ConcurrentHashMap<>();
+        for (FolderAclView folder : folderViews) {
+            folders.put(folder.getId(), new FolderAcl(folder.getCreatedBy(), folder.getShareType(),
+                    permissionsByFolder.getOrDefault(folder.getId(), List.of()), folder.getAclVersion()));
+        }
+
+        log.debug("ACL de {} dossiers chargées pour l'immeuble {}", folders.size(), buildingId);
+        return new BuildingAcl(folders, System.currentTimeMillis());
+    }
+
+    private FolderAcl loadFolder(Long folderId) {
+        return folderRepository.findAclViewById(folderId)
+                .map(folder -> new FolderAcl(folder.getCreatedBy(), folder.getShareType(),
+                        folderPermissionRepository.findViewsByFolderId(folderId).stream()
+                                .map(this::toDto)
+                                .collect(Collectors.toList()),
+                        folder.getAclVersion()))
+                .orElse(null);
+    }
+
+    private FolderPermissionDto toDto(FolderPermissionView view) {
+        return FolderPermissionDto.builder()
+                .id(view.getId())
+                .apartmentId(view.getApartmentId())
+                .residentId(view.getResidentId())
+                .canRead(view.getCanRead())
+                .canUpload(view.getCanUpload())
+                .build();
+    }
+
+    private record BuildingAcl(Map<Long, FolderAcl> folders, long loadedAt) {
+        private boolean isExpired(long ttlSeconds) {
+            return System.currentTimeMillis() - loadedAt > ttlSeconds * 1000;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Contenu d'une archive de dossier, résolu (permissions comprises) avant le début du streaming.
+ */
+public record FolderArchive(String filename, List<Entry> entries) {
+
+    public record Entry(String zipPath, Path file) {
+    }
+}
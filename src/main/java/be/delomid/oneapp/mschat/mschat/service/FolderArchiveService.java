@@ -0,0 +1,103 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Écrit une archive ZIP directement dans le flux de réponse, fichier par fichier,
+ * avec un tampon de taille fixe : ni fichier temporaire ni chargement complet en mémoire.
+ */
+@Service
+@Slf4j
+public class FolderArchiveService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Formats déjà compressés : stockés tels quels, la compression ne ferait que consommer du CPU
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "zip", "gz", "7z", "rar", "jpg", "jpeg", "png", "gif", "webp", "heic",
+            "mp3", "m4a", "aac", "mp4", "mov", "avi", "mkv",
+            "docx", "xlsx", "pptx", "odt", "ods", "odp");
+
+    public void write(FolderArchive archive, OutputStream outputStream) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+
+        for (FolderArchive.Entry entry : archive.entries()) {
+            try {
+                if (isCompressed(entry.zipPath())) {
+                    writeStored(zip, entry, buffer);
+                } else {
+                    writeDeflated(zip, entry, buffer);
+                }
+            } catch (NoSuchFileException e) {
+                log.warn("Fichier physique absent, ignoré dans l'archive: {}", entry.file());
+            }
+        }
+
+        zip.finish();
+        zip.flush();
+        log.info("Archive {} envoyée ({} fichiers)", archive.filename(), archive.entries().size());
+    }
+
+    private void writeDeflated(ZipOutputStream zip, FolderArchive.Entry entry, byte[] buffer) throws IOException {
+        try (InputStream in = Files.newInputStream(entry.file())) {
+            ZipEntry zipEntry = new ZipEntry(entry.zipPath());
+            zipEntry.setMethod(ZipEntry.DEFLATED);
+            zip.putNextEntry(zipEntry);
+            copy(in, zip, buffer);
+            zip.closeEntry();
+        }
+    }
+
+    private void writeStored(ZipOutputStream zip, FolderArchive.Entry entry, byte[] buffer) throws IOException {
+        // Le mode STORED exige la taille et le CRC avant les données : premier passage pour le CRC
+        CRC32 crc = new CRC32();
+        long size = 0;
+        try (InputStream in = Files.newInputStream(entry.file())) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+                size += read;
+            }
+        }
+
+        ZipEntry zipEntry = new ZipEntry(entry.zipPath());
+        zipEntry.setMethod(ZipEntry.STORED);
+        zipEntry.setSize(size);
+        zipEntry.setCompressedSize(size);
+        zipEntry.setCrc(crc.getValue());
+
+        try (InputStream in = Files.newInputStream(entry.file())) {
+            zip.putNextEntry(zipEntry);
+            copy(in, zip, buffer);
+            zip.closeEntry();
+        }
+    }
+
+    private void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private boolean isCompressed(String filename) {
+        int dot = filename.lastIndexOf('.');
+        if (dot == -1) {
+            return false;
+        }
+        return COMPRESSED_EXTENSIONS.contains(filename.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,98 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.model.Folder;
+import be.delomid.oneapp.mschat.mschat.repository.DocumentRepository;
+import be.delomid.oneapp.mschat.mschat.repository.FolderPermissionRepository;
+import be.delomid.oneapp.mschat.mschat.repository.FolderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Maintient la hiérarchie des dossiers (chemin matérialisé) et leurs compteurs agrégés :
+ * nombre de sous-dossiers, nombre de documents et taille cumulée du sous-arbre.
+ * Toutes les mises à jour sont des requêtes atomiques ; les méthodes s'exécutent dans
+ * la transaction de l'appelant.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FolderHierarchyService implements CommandLineRunner {
+
+    private final FolderRepository folderRepository;
+    private final DocumentRepository documentRepository;
+    private final FolderPermissionRepository folderPermissionRepository;
+
+    /**
+     * À appeler juste après l'insertion d'un dossier (l'id doit être connu).
+     */
+    public void registerFolder(Folder folder) {
+        Folder parent = folder.getParentFolder();
+        String treePath = (parent != null ? parent.getTreePath() : "/") + folder.getId() + "/";
+        folderRepository.setTreePath(folder.getId(), treePath);
+        folder.setTreePath(treePath);
+
+        if (parent != null) {
+            folderRepository.addSubFolderCount(parent.getId(), 1);
+        }
+    }
+
+    public void documentAdded(Folder folder, long fileSize) {
+        folderRepository.addDocumentCount(folder.getId(), 1);
+        if (fileSize != 0) {
+            folderRepository.addTotalBytes(pathIds(folder.getTreePath()), fileSize);
+        }
+    }
+
+    public void documentRemoved(Folder folder, long fileSize) {
+        folderRepository.addDocumentCount(folder.getId(), -1);
+        if (fileSize != 0) {
+            folderRepository.addTotalBytes(pathIds(folder.getTreePath()), -fileSize);
+        }
+    }
+
+    /**
+     * Supprime le dossier et tout son sous-arbre en trois requêtes, sans charger les enfants.
+     */
+    public void deleteSubtree(Folder folder) {
+        Folder parent = folder.getParentFolder();
+        if (parent != null) {
+            folderRepository.addSubFolderCount(parent.getId(), -1);
+            long bytes = folder.getTotalBytes() != null ? folder.getTotalBytes() : 0;
+            if (bytes != 0) {
+                folderRepository.addTotalBytes(pathIds(parent.getTreePath()), -bytes);
+            }
+        }
+
+        String prefix = folder.getTreePath() + "%";
+        int documents = documentRepository.deleteByFolderTreePathPrefix(prefix);
+        folderPermissionRepository.deleteByFolderTreePathPrefix(prefix);
+        int folders = folderRepository.deleteByTreePathPrefix(prefix);
+        log.debug("Sous-arbre {} supprimé: {} dossiers, {} documents", folder.getTreePath(), folders, documents);
+    }
+
+    /**
+     * Complète les chemins et compteurs des dossiers créés avant l'introduction de la hiérarchie.
+     */
+    @Override
+    public void run(String... args) {
+        int paths = folderRepository.backfillTreePaths();
+        int counters = folderRepository.backfillCounters();
+        if (paths > 0 || counters > 0) {
+            log.info("Hiérarchie des dossiers initialisée: {} chemins, {} compteurs", paths, counters);
+        }
+    }
+
+    // "/12/45/78/" -> [12, 45, 78] : le dossier et tous ses ancêtres
+    private List<Long> pathIds(String treePath) {
+        return Arrays.stream(treePath.split("/"))
+                .filter(part -> !part.isEmpty())
+                .map(Long::valueOf)
+                .collect(Collectors.toList());
+    }
+}
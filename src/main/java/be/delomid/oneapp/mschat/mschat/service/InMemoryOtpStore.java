@@ -0,0 +1,93 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.model.OtpType;
+import be.delomid.oneapp.mschat.mschat.util.HierarchicalTimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stockage des OTP en mémoire : aucun accès base de données à la connexion.
+ * Seul le hash du code est conservé ; l'expiration est gérée par une roue temporelle
+ * (tick d'une seconde) plutôt que par un balayage de la table.
+ */
+@Service
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "memory", matchIfMissing = true)
+@Slf4j
+public class InMemoryOtpStore implements OtpStore {
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 3;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final HierarchicalTimingWheel<String> expirations =
+            new HierarchicalTimingWheel<>(TICK_MILLIS, WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+
+    @Override
+    public void save(String email, OtpType otpType, String otpCode, Duration ttl) {
+        String key = key(email, otpType);
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        entries.put(key, new Entry(OtpStore.hash(otpCode), expiresAt));
+        expirations.schedule(key, expiresAt);
+    }
+
+    @Override
+    public VerificationResult verify(String email, OtpType otpType, String otpCode, int maxAttempts) {
+        String key = key(email, otpType);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return VerificationResult.INVALID;
+        }
+
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return VerificationResult.EXPIRED;
+        }
+
+        if (entry.attempts.incrementAndGet() > maxAttempts) {
+            entries.remove(key, entry);
+            return VerificationResult.TOO_MANY_ATTEMPTS;
+        }
+
+        if (!OtpStore.matches(entry.codeHash, otpCode)) {
+            return VerificationResult.INVALID;
+        }
+
+        // Seul le premier appel concurrent consomme le code
+        return entries.remove(key, entry) ? VerificationResult.VALID : VerificationResult.INVALID;
+    }
+
+    @Scheduled(fixedRate = TICK_MILLIS)
+    public void expire() {
+        long now = System.currentTimeMillis();
+        List<String> expiredKeys = expirations.advance(now);
+        // La roue peut contenir des échéances d'anciens codes déjà remplacés
+        expiredKeys.forEach(key -> entries.computeIfPresent(key, (k, entry) -> entry.expiresAt <= now ? null : entry));
+        if (!expiredKeys.isEmpty()) {
+            log.debug("{} OTP expirations processed", expiredKeys.size());
+        }
+    }
+
+    private String key(String email, OtpType otpType) {
+        return otpType.name() + ":" + email;
+    }
+
+    private static final class Entry {
+        private final String codeHash;
+        private final long expiresAt;
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private Entry(String codeHash, long expiresAt) {
+            this.codeHash = codeHash;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -37,7 +37,7 @@ public class MessageService {
     private final ResidentBuildingRepository residentBuildingRepository;
     private final BuildingRepository buildingRepository;
     private final CallRepository callRepository;
-    private final NotificationService notificationService;
+    private final NotificationDigestService notificationDigestService;
 
     @Transactional
     public MessageDto sendMessage(SendMessageRequest request, String senderId) {
@@ -465,15 +465,12 @@ public class MessageService {
                         }
 
                         if (buildingId != null) {
-                            notificationService.createNotification(
-                                member.getUserId(),
+                            notificationDigestService.notifyMessage(
+                                recipient,
                                 buildingId,
-                                notificationTitle,
-                                notificationBody,
-                                "MESSAGE",
                                 channel.getId(),
-                                null,
-                                null
+                                notificationTitle,
+                                notificationBody
                             );
                             log.debug("Notification created for user {} in channel {}", member.getUserId(), channel.getId());
                         }
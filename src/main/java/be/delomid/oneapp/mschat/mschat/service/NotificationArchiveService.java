@@ -0,0 +1,35 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.config.AppConfig;
+import be.delomid.oneapp.mschat.mschat.repository.NotificationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationArchiveService {
+
+    private final NotificationRepository notificationRepository;
+    private final AppConfig appConfig;
+
+    // Archiver les notifications lues anciennes chaque nuit, par lots (une transaction par lot)
+    @Scheduled(cron = "${app.notification.archive-cron:0 30 3 * * *}")
+    public void archiveOldReadNotifications() {
+        AppConfig.Notification config = appConfig.getNotification();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(config.getArchiveAfterDays());
+
+        long total = 0;
+        int moved;
+        do {
+            moved = notificationRepository.archiveReadBefore(cutoff, config.getArchiveBatchSize());
+            total += moved;
+        } while (moved > 0);
+
+        log.info("Archived {} read notifications older than {}", total, cutoff);
+    }
+}
@@ -0,0 +1,117 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.model.NotificationUnreadCounter;
+import be.delomid.oneapp.mschat.mschat.repository.NotificationUnreadCounterRepository;
+import be.delomid.oneapp.mschat.mschat.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compteurs de notifications non lues maintenus de façon incrémentale.
+ * Chaque changement est poussé sur /user/queue/notifications/unread pour que
+ * les clients n'aient plus besoin d'interroger /notifications/unread-count.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationCounterService implements CommandLineRunner {
+
+    private final NotificationUnreadCounterRepository counterRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Override
+    @Transactional
+    public void run(String... args) {
+        int seeded = counterRepository.seedMissing();
+        log.info("Seeded {} notification unread counters", seeded);
+    }
+
+    public Long getUnreadCount(String residentId) {
+        return counterRepository.sumForResident(residentId);
+    }
+
+    public Long getUnreadCount(String residentId, String buildingId) {
+        return counterRepository.findCount(residentId, buildingId).orElse(0L);
+    }
+
+    @Transactional
+    public void increment(String residentId, String buildingId) {
+        counterRepository.add(residentId, buildingId, 1);
+        publishAfterCommit(residentId, buildingId);
+    }
+
+    /**
+     * Incrémente les compteurs de plusieurs résidents d'un immeuble en une requête ; les nouveaux
+     * totaux sont poussés après commit à partir d'une seule lecture.
+     */
+    @Transactional
+    public void incrementAll(Collection<String> residentIds, String buildingId) {
+        if (residentIds.isEmpty()) {
+            return;
+        }
+        counterRepository.addForResidents(residentIds, buildingId, 1);
+        List<String> recipients = List.copyOf(residentIds);
+        TransactionUtil.afterCommit(() -> publishAll(recipients, buildingId));
+    }
+
+    @Transactional
+    public void decrement(String residentId, String buildingId) {
+        counterRepository.add(residentId, buildingId, -1);
+        publishAfterCommit(residentId, buildingId);
+    }
+
+    @Transactional
+    public void reset(String residentId) {
+        counterRepository.resetForResident(residentId);
+        publishAfterCommit(residentId, null);
+    }
+
+    private void publishAfterCommit(String residentId, String buildingId) {
+        TransactionUtil.afterCommit(() -> publish(residentId, buildingId));
+    }
+
+    private void publishAll(List<String> residentIds, String buildingId) {
+        try {
+            Map<String, Long> totals = new HashMap<>();
+            Map<String, Long> buildingCounts = new HashMap<>();
+            for (NotificationUnreadCounter counter : counterRepository.findByResidentIds(residentIds)) {
+                totals.merge(counter.getResidentId(), counter.getUnreadCount(), Long::sum);
+                if (buildingId.equals(counter.getBuildingId())) {
+                    buildingCounts.put(counter.getResidentId(), counter.getUnreadCount());
+                }
+            }
+            for (String residentId : residentIds) {
+                Map<String, Object> payload = new HashMap<>();
+                payload.put("unreadCount", totals.getOrDefault(residentId, 0L));
+                payload.put("buildingId", buildingId);
+                payload.put("buildingUnreadCount", buildingCounts.getOrDefault(residentId, 0L));
+                messagingTemplate.convertAndSendToUser(residentId, "/queue/notifications/unread", payload);
+            }
+        } catch (Exception e) {
+            log.error("Error publishing unread counts to {} residents: {}", residentIds.size(), e.getMessage());
+        }
+    }
+
+    private void publish(String residentId, String buildingId) {
+        try {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("unreadCount", getUnreadCount(residentId));
+            if (buildingId != null) {
+                payload.put("buildingId", buildingId);
+                payload.put("buildingUnreadCount", getUnreadCount(residentId, buildingId));
+            }
+            messagingTemplate.convertAndSendToUser(residentId, "/queue/notifications/unread", payload);
+        } catch (Exception e) {
+            log.error("Error publishing unread count to resident {}: {}", residentId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.config.AppConfig;
+import be.delomid.oneapp.mschat.mschat.model.Notification;
+import be.delomid.oneapp.mschat.mschat.model.Resident;
+import be.delomid.oneapp.mschat.mschat.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Regroupe les notifications de messages par (destinataire, canal) sur une courte fenêtre.
+ * Le premier message d'une rafale est notifié immédiatement ; les suivants sont repliés
+ * dans la même notification et donnent lieu à un seul push récapitulatif en fin de fenêtre
+ * ("12 nouveaux messages"), avec une clé de regroupement FCM par canal.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationDigestService {
+
+    private final NotificationService notificationService;
+    private final OutboxService outboxService;
+    private final AppConfig appConfig;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public void notifyMessage(Resident recipient, String buildingId, Long channelId, String title, String body) {
+        String key = recipient.getIdUsers() + ":" + channelId;
+        String collapseKey = "channel-" + channelId;
+
+        // Seul l'état de la fenêtre est modifié sous le verrou : les écritures en base se font
+        // en dehors, dans la transaction de l'appelant, pour ne pas faire attendre les autres émetteurs
+        Window window = windows.get(key);
+        Long notificationId = null;
+        String digestBody = null;
+        if (window != null) {
+            synchronized (window) {
+                if (!window.closed) {
+                    window.pending++;
+                    window.title = title;
+                    notificationId = window.notificationId;
+                    digestBody = digestBody(window.pending + 1);
+                }
+            }
+        }
+
+        if (notificationId == null) {
+            Notification notification = notificationService.createNotification(
+                    recipient.getIdUsers(), buildingId, title, body, "MESSAGE", channelId,
+                    null, null, true, collapseKey);
+            // La fenêtre ne référence que des notifications validées
+            Window opened = new Window(System.currentTimeMillis(), notification.getId(),
+                    recipient.getIdUsers(), recipient.getFcmToken(), channelId, title);
+            TransactionUtil.afterCommit(() -> windows.putIfAbsent(key, opened));
+            return;
+        }
+
+        boolean folded = appConfig.getNotification().isCoalesceRows()
+                && notificationService.foldIntoNotification(notificationId, title, digestBody);
+        if (!folded) {
+            // La notification a été lue entre-temps (ou le regroupement est désactivé)
+            Notification notification = notificationService.createNotification(
+                    recipient.getIdUsers(), buildingId, title, body, "MESSAGE", channelId,
+                    null, null, false, null);
+            Long replacedId = notificationId;
+            TransactionUtil.afterCommit(() -> {
+                synchronized (window) {
+                    if (replacedId.equals(window.notificationId)) {
+                        window.notificationId = notification.getId();
+                    }
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelay = 1000)
+    public void flushExpiredWindows() {
+        long windowMillis = appConfig.getNotification().getCoalesceWindowSeconds() * 1000L;
+        long now = System.currentTimeMillis();
+
+        windows.forEach((key, window) -> {
+            if (now - window.openedAt < windowMillis) {
+                return;
+            }
+            String title;
+            int pending;
+            synchronized (window) {
+                window.closed = true;
+                title = window.title;
+                pending = window.pending;
+            }
+            windows.remove(key, window);
+            if (pending > 0) {
+                sendDigest(window, title, pending);
+            }
+        });
+    }
+
+    private void sendDigest(Window window, String title, int pending) {
+        if (window.fcmToken == null || window.fcmToken.isEmpty()) {
+            return;
+        }
+        try {
+            outboxService.enqueuePush(
+                    window.fcmToken,
+                    title,
+                    digestBody(pending + 1),
+                    "MESSAGE",
+                    window.channelId.toString(),
+                    "channel-" + window.channelId
+            );
+            log.debug("Digest push queued to resident {} for channel {} ({} messages)",
+                    window.recipientId, window.channelId, pending + 1);
+        } catch (Exception e) {
+            log.error("Error queuing digest push to resident {}: {}", window.recipientId, e.getMessage());
+        }
+    }
+
+    private String digestBody(int messageCount) {
+        return messageCount + " nouveaux messages";
+    }
+
+    private static class Window {
+        private final long openedAt;
+        private final String recipientId;
+        private final String fcmToken;
+        private final Long channelId;
+        private boolean closed;
+        private Long notificationId;
+        private String title;
+        private int pending;
+
+        private Window(long openedAt, Long notificationId, String recipientId, String fcmToken,
+                       Long channelId, String title) {
+            this.openedAt = openedAt;
+            this.notificationId = notificationId;
+            this.recipientId = recipientId;
+            this.fcmToken = fcmToken;
+            this.channelId = channelId;
+            this.title = title;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package be.delomid.oneapp.mschat.mschat.service;
 
+import be.delomid.oneapp.mschat.mschat.config.AppConfig;
 import be.delomid.oneapp.mschat.mschat.dto.NotificationDto;
+import be.delomid.oneapp.mschat.mschat.dto.NotificationPageDto;
 import be.delomid.oneapp.mschat.mschat.model.*;
 import be.delomid.oneapp.mschat.mschat.repository.NotificationRepository;
 import be.delomid.oneapp.mschat.mschat.repository.ResidentRepository;
@@ -8,10 +10,13 @@ import be.delomid.oneapp.mschat.mschat.repository.BuildingRepository;
 import be.delomid.oneapp.mschat.mschat.repository.ChannelRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,11 +29,20 @@ public class NotificationService {
     private final ResidentRepository residentRepository;
     private final BuildingRepository buildingRepository;
     private final ChannelRepository channelRepository;
-    private final FCMService fcmService;
+    private final OutboxService outboxService;
+    private final NotificationCounterService notificationCounterService;
+    private final AppConfig appConfig;
 
     @Transactional
     public Notification createNotification(String residentId, String buildingId, String title, String body,
                                            String type, Long channelId, Long voteId, Long documentId) {
+        return createNotification(residentId, buildingId, title, body, type, channelId, voteId, documentId, true, null);
+    }
+
+    @Transactional
+    public Notification createNotification(String residentId, String buildingId, String title, String body,
+                                           String type, Long channelId, Long voteId, Long documentId,
+                                           boolean sendPush, String collapseKey) {
         Resident resident = residentRepository.findById(residentId)
                 .orElseThrow(() -> new RuntimeException("Resident not found"));
 
@@ -54,56 +68,133 @@ public class NotificationService {
                 .build();
 
         Notification savedNotification = notificationRepository.save(notification);
-
-        if (resident.getFcmToken() != null && !resident.getFcmToken().isEmpty()) {
-            try {
-                fcmService.sendPushNotification(
-                        resident.getFcmToken(),
-                        title,
-                        body,
-                        type,
-                        channelId != null ? channelId.toString() : null
-                );
-                log.info("Push notification sent to resident: {}", residentId);
-            } catch (Exception e) {
-                log.error("Error sending push notification to resident {}: {}", residentId, e.getMessage());
-            }
+        notificationCounterService.increment(residentId, buildingId);
+
+        if (sendPush && resident.getFcmToken() != null && !resident.getFcmToken().isEmpty()) {
+            // Envoyé après commit par le relais outbox
+            outboxService.enqueuePush(
+                    resident.getFcmToken(),
+                    title,
+                    body,
+                    type,
+                    channelId != null ? channelId.toString() : null,
+                    collapseKey
+            );
         }
 
         return savedNotification;
     }
 
+    /**
+     * Première page de la boîte de réception ; les pages suivantes passent par getInbox.
+     */
     public List<NotificationDto> getNotificationsForResident(String residentId) {
-        List<Notification> notifications = notificationRepository.findByResidentIdUsersOrderByCreatedAtDesc(residentId);
-        return notifications.stream()
-                .map(this::toDto)
-                .collect(Collectors.toList());
+        return getInbox(residentId, null, null, null, null).getNotifications();
     }
 
     public List<NotificationDto> getNotificationsForResidentAndBuilding(String residentId, String buildingId) {
-        List<Notification> notifications = notificationRepository
-                .findByResidentIdUsersAndBuildingBuildingIdOrderByCreatedAtDesc(residentId, buildingId);
-        return notifications.stream()
-                .map(this::toDto)
-                .collect(Collectors.toList());
+        return getInbox(residentId, buildingId, null, null, null).getNotifications();
+    }
+
+    /**
+     * Remplace le contenu d'une notification encore non lue (regroupement de messages).
+     * La notification garde sa place dans la boîte de réception (date du premier message).
+     * Retourne false si la notification a été lue entre-temps.
+     */
+    @Transactional
+    public boolean foldIntoNotification(Long notificationId, String title, String body) {
+        return notificationRepository.updateUnreadContent(notificationId, title, body) > 0;
+    }
+
+    public NotificationPageDto getInbox(String residentId, String buildingId,
+                                        LocalDateTime before, Long beforeId, Integer size) {
+        AppConfig.Notification config = appConfig.getNotification();
+        int pageSize = size == null ? config.getInboxPageSize() : Math.max(1, Math.min(size, config.getInboxMaxPageSize()));
+        // Une ligne de plus pour savoir s'il reste une page suivante
+        Limit limit = Limit.of(pageSize + 1);
+        boolean hasCursor = before != null && beforeId != null;
+
+        List<NotificationDto> rows;
+        if (buildingId != null) {
+            rows = hasCursor
+                    ? notificationRepository.findInboxForBuildingBefore(residentId, buildingId, before, beforeId, limit)
+                    : notificationRepository.findInboxForBuilding(residentId, buildingId, limit);
+        } else {
+            rows = hasCursor
+                    ? notificationRepository.findInboxBefore(residentId, before, beforeId, limit)
+                    : notificationRepository.findInbox(residentId, limit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<NotificationDto> page = hasMore ? rows.subList(0, pageSize) : rows;
+        NotificationDto last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return NotificationPageDto.builder()
+                .notifications(page)
+                .hasMore(hasMore)
+                .nextBefore(hasMore ? last.getCreatedAt() : null)
+                .nextBeforeId(hasMore ? last.getId() : null)
+                .build();
     }
 
     public Long getUnreadCount(String residentId) {
-        return notificationRepository.countUnreadByResidentId(residentId);
+        return notificationCounterService.getUnreadCount(residentId);
     }
 
     public Long getUnreadCountForBuilding(String residentId, String buildingId) {
-        return notificationRepository.countUnreadByResidentIdAndBuildingId(residentId, buildingId);
+        return notificationCounterService.getUnreadCount(residentId, buildingId);
     }
 
     @Transactional
     public void markAsRead(Long notificationId) {
-        notificationRepository.markAsRead(notificationId);
+        NotificationRepository.NotificationRecipient recipient = notificationRepository.findRecipientById(notificationId)
+                .orElse(null);
+        // Ne décrémenter que si la notification n'était pas déjà lue
+        if (recipient != null && notificationRepository.markAsRead(notificationId) > 0) {
+            notificationCounterService.decrement(recipient.getResidentId(), recipient.getBuildingId());
+        }
     }
 
     @Transactional
     public void markAllAsRead(String residentId) {
-        notificationRepository.markAllAsReadForResident(residentId);
+        if (notificationRepository.markAllAsReadForResident(residentId) > 0) {
+            notificationCounterService.reset(residentId);
+        }
+    }
+
+    /**
+     * Envoie la même notification à plusieurs résidents déjà chargés : une insertion groupée,
+     * une mise à jour des compteurs et un lot de pushs dans l'outbox.
+     */
+    @Transactional
+    public void sendNotifications(Collection<Resident> recipients, String buildingId, String title, String body,
+                                  String type, Long relatedId, int pushPriority) {
+        if (recipients.isEmpty()) {
+            return;
+        }
+        Building building = buildingRepository.getReferenceById(buildingId);
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Notification> notifications = new ArrayList<>(recipients.size());
+        List<OutboxService.PushMessage> pushes = new ArrayList<>(recipients.size());
+        for (Resident resident : recipients) {
+            notifications.add(Notification.builder()
+                    .resident(resident)
+                    .building(building)
+                    .title(title)
+                    .body(body)
+                    .type(type)
+                    .isRead(false)
+                    .createdAt(now)
+                    .build());
+            pushes.add(new OutboxService.PushMessage(resident.getFcmToken(), title, body, type,
+                    relatedId != null ? relatedId.toString() : null, null));
+        }
+
+        notificationRepository.saveAll(notifications);
+        notificationCounterService.incrementAll(
+                recipients.stream().map(Resident::getIdUsers).collect(Collectors.toSet()), buildingId);
+        outboxService.enqueuePushes(pushes, pushPriority);
     }
 
     @Transactional
@@ -136,37 +227,19 @@ public class NotificationService {
                 .build();
 
         notificationRepository.save(notification);
+        if (building != null) {
+            notificationCounterService.increment(resident.getIdUsers(), building.getBuildingId());
+        }
 
         if (resident.getFcmToken() != null && !resident.getFcmToken().isEmpty()) {
-            try {
-                fcmService.sendPushNotification(
-                        resident.getFcmToken(),
-                        notificationDto.getTitle(),
-                        notificationDto.getBody(),
-                        notificationDto.getType(),
-                        notificationDto.getRelatedId() != null ? notificationDto.getRelatedId().toString() : null
-                );
-                log.info("Push notification sent to resident: {}", notificationDto.getResidentId());
-            } catch (Exception e) {
-                log.error("Error sending push notification to resident {}: {}", notificationDto.getResidentId(), e.getMessage());
-            }
+            outboxService.enqueuePush(
+                    resident.getFcmToken(),
+                    notificationDto.getTitle(),
+                    notificationDto.getBody(),
+                    notificationDto.getType(),
+                    notificationDto.getRelatedId() != null ? notificationDto.getRelatedId().toString() : null,
+                    null
+            );
         }
     }
-
-    private NotificationDto toDto(Notification notification) {
-        return NotificationDto.builder()
-                .id(notification.getId())
-                .residentId(notification.getResident().getIdUsers())
-                .buildingId(notification.getBuilding() != null ? notification.getBuilding().getBuildingId() : null)
-                .title(notification.getTitle())
-                .body(notification.getBody())
-                .type(notification.getType())
-                .channelId(notification.getChannel() != null ? notification.getChannel().getId() : null)
-                .voteId(notification.getVoteId())
-                .documentId(notification.getDocumentId())
-                .isRead(notification.getIsRead())
-                .createdAt(notification.getCreatedAt())
-                .readAt(notification.getReadAt())
-                .build();
-    }
 }
@@ -1,44 +1,29 @@
 package be.delomid.oneapp.mschat.mschat.service;
 
-import be.delomid.oneapp.mschat.mschat.model.OtpToken;
+import be.delomid.oneapp.mschat.mschat.config.AppConfig;
 import be.delomid.oneapp.mschat.mschat.model.OtpType;
-import be.delomid.oneapp.mschat.mschat.repository.OtpTokenRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.security.SecureRandom;
-import java.time.LocalDateTime;
-import java.util.Optional;
+import java.time.Duration;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OtpService {
     
-    private final OtpTokenRepository otpTokenRepository;
+    private final OtpStore otpStore;
     private final EmailService emailService;
+    private final EmailDispatchService emailDispatchService;
+    private final AppConfig appConfig;
     private final SecureRandom random = new SecureRandom();
     
-    @Transactional
     public void generateAndSendOtp(String email, OtpType otpType) {
-        // Supprimer les anciens OTP pour cet email et ce type
-        otpTokenRepository.deleteByEmailAndOtpType(email, otpType);
-        
-        // Générer un nouveau code OTP
+        // Générer un nouveau code OTP (remplace le précédent pour cet email et ce type)
         String otpCode = generateOtpCode();
-        
-        // Créer et sauvegarder le token OTP
-        OtpToken otpToken = OtpToken.builder()
-                .email(email)
-                .otpCode(otpCode)
-                .otpType(otpType)
-                .expiresAt(LocalDateTime.now().plusMinutes(10)) // Expire dans 10 minutes
-                .build();
-        
-        otpTokenRepository.save(otpToken);
+        otpStore.save(email, otpType, otpCode, Duration.ofMinutes(appConfig.getOtp().getExpirationMinutes()));
         
         // Envoyer l'email
         String purpose = switch (otpType) {
@@ -47,38 +32,26 @@ public class OtpService {
             case PASSWORD_RESET -> "la réinitialisation du mot de passe";
         };
         
-        emailService.sendOtpEmail(email, otpCode, purpose);
-        log.debug("OTP generated and sent for email: {} and type: {}", email, otpType);
+        // Envoi asynchrone après commit : la requête de connexion n'attend plus le serveur SMTP.
+        // File pleine : TooManyRequestsException (429), le client redemande un code
+        emailDispatchService.submitAfterCommit(emailService.buildOtpMessage(email, otpCode, purpose));
+        log.debug("OTP generated and queued for email: {} and type: {}", email, otpType);
     }
     
-    @Transactional
     public boolean verifyOtp(String email, String otpCode, OtpType otpType) {
-        Optional<OtpToken> otpToken = otpTokenRepository.findValidOtp(
-                email, otpCode, otpType, LocalDateTime.now()
-        );
+        OtpStore.VerificationResult result = otpStore.verify(
+                email, otpType, otpCode, appConfig.getOtp().getMaxAttempts());
         
-        if (otpToken.isPresent()) {
-            // Marquer l'OTP comme utilisé
-            otpToken.get().setIsUsed(true);
-            otpTokenRepository.save(otpToken.get());
-            
+        if (result == OtpStore.VerificationResult.VALID) {
             log.debug("OTP verified successfully for email: {}", email);
             return true;
         }
         
-        log.debug("OTP verification failed for email: {}", email);
+        log.debug("OTP verification failed for email: {} ({})", email, result);
         return false;
     }
     
     private String generateOtpCode() {
         return String.format("%06d", random.nextInt(1000000));
     }
-    
-    // Nettoyer les OTP expirés toutes les heures
-    @Scheduled(fixedRate = 3600000)
-    @Transactional
-    public void cleanupExpiredOtps() {
-        otpTokenRepository.deleteByExpiresAtBefore(LocalDateTime.now());
-        log.debug("Expired OTPs cleaned up");
-    }
-}
\ No newline at end of file
+}
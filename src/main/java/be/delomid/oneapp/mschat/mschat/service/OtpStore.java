@@ -0,0 +1,48 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.model.OtpType;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * Stockage des codes OTP. L'implémentation est choisie via app.otp.store :
+ * "memory" (par défaut, une seule instance) ou "database" (plusieurs instances).
+ */
+public interface OtpStore {
+
+    enum VerificationResult {
+        VALID,
+        INVALID,
+        EXPIRED,
+        TOO_MANY_ATTEMPTS
+    }
+
+    /**
+     * Enregistre un nouveau code et remplace le précédent pour cet email et ce type.
+     */
+    void save(String email, OtpType otpType, String otpCode, Duration ttl);
+
+    /**
+     * Vérifie le code, compte la tentative et consomme le code s'il est valide.
+     */
+    VerificationResult verify(String email, OtpType otpType, String otpCode, int maxAttempts);
+
+    static String hash(String otpCode) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(otpCode.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static boolean matches(String expectedHash, String otpCode) {
+        return MessageDigest.isEqual(
+                expectedHash.getBytes(StandardCharsets.US_ASCII),
+                hash(otpCode).getBytes(StandardCharsets.US_ASCII));
+    }
+}
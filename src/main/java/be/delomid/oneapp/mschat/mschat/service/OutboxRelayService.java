@@ -0,0 +1,244 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.config.AppConfig;
+import be.delomid.oneapp.mschat.mschat.model.OutboxEvent;
+import be.delomid.oneapp.mschat.mschat.model.OutboxStatus;
+import be.delomid.oneapp.mschat.mschat.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Délivre les événements de la table outbox_events par lots.
+ * Les lignes sont réservées dans une transaction courte (FOR UPDATE SKIP LOCKED + bail),
+ * puis les appels FCM / SMTP / WebSocket sont faits sans connexion base de données ouverte.
+ *
+ * Les événements prioritaires passent en tête de chaque lot et disposent d'une voie rapide :
+ * {@link #relayPriority()} est déclenché dès leur commit, sans attendre le prochain cycle.
+ */
+@Service
+@Slf4j
+public class OutboxRelayService {
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {};
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final FCMService fcmService;
+    private final EmailService emailService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final AppConfig appConfig;
+    private final OutboxSecretCipher outboxSecretCipher;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean priorityRelayRunning = new AtomicBoolean();
+    private final AtomicBoolean priorityRelayRequested = new AtomicBoolean();
+
+    public OutboxRelayService(OutboxEventRepository outboxEventRepository,
+                              FCMService fcmService,
+                              EmailService emailService,
+                              SimpMessagingTemplate messagingTemplate,
+                              ObjectMapper objectMapper,
+                              AppConfig appConfig,
+                              OutboxSecretCipher outboxSecretCipher,
+                              PlatformTransactionManager transactionManager) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.fcmService = fcmService;
+        this.emailService = emailService;
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.appConfig = appConfig;
+        this.outboxSecretCipher = outboxSecretCipher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:500}")
+    public void relay() {
+        relay(OutboxEvent.PRIORITY_NORMAL);
+    }
+
+    /**
+     * Voie rapide : délivre uniquement les événements prioritaires. Les demandes reçues pendant
+     * un passage sont regroupées en un seul passage supplémentaire.
+     */
+    @Async
+    public void relayPriority() {
+        priorityRelayRequested.set(true);
+        if (!priorityRelayRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            while (priorityRelayRequested.getAndSet(false)) {
+                relay(OutboxEvent.PRIORITY_HIGH);
+            }
+        } catch (Exception e) {
+            log.error("Error relaying priority outbox events: {}", e.getMessage());
+        } finally {
+            priorityRelayRunning.set(false);
+        }
+    }
+
+    private void relay(int minPriority) {
+        List<OutboxEvent> batch;
+        do {
+            batch = claimBatch(minPriority);
+            List<Long> delivered = new ArrayList<>();
+            Map<SimpleMailMessage, OutboxEvent> emails = new IdentityHashMap<>();
+            for (OutboxEvent event : batch) {
+                try {
+                    SimpleMailMessage email = buildEmail(event);
+                    if (email != null) {
+                        // Les emails du lot sont envoyés ensemble sur une seule connexion SMTP
+                        emails.put(email, event);
+                    } else {
+                        dispatch(event);
+                        delivered.add(event.getId());
+                    }
+                } catch (Exception e) {
+                    handleFailure(event, e);
+                }
+            }
+            if (!emails.isEmpty()) {
+                sendEmails(emails, delivered);
+            }
+            if (!delivered.isEmpty()) {
+                outboxEventRepository.deleteDelivered(delivered);
+            }
+        } while (batch.size() == appConfig.getOutbox().getBatchSize());
+    }
+
+    private List<OutboxEvent> claimBatch(int minPriority) {
+        AppConfig.Outbox config = appConfig.getOutbox();
+        List<OutboxEvent> events = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = outboxEventRepository.lockDueEventIds(now, minPriority, config.getBatchSize());
+            if (ids.isEmpty()) {
+                return Collections.<OutboxEvent>emptyList();
+            }
+            outboxEventRepository.markProcessing(ids, OutboxStatus.PROCESSING,
+                    now.plusSeconds(config.getLeaseSeconds()));
+            return outboxEventRepository.findAllById(ids);
+        });
+        return events != null ? events : Collections.emptyList();
+    }
+
+    private SimpleMailMessage buildEmail(OutboxEvent event) throws Exception {
+        return switch (event.getEventType()) {
+            case ACCOUNT_STATUS_EMAIL -> {
+                Map<String, Object> payload = readPayload(event);
+                yield emailService.buildAccountStatusMessage(
+                        (String) payload.get("to"),
+                        (String) payload.get("status"),
+                        (String) payload.get("reason"));
+            }
+            case WELCOME_EMAIL -> {
+                Map<String, Object> payload = readPayload(event);
+                yield emailService.buildWelcomeMessage(
+                        (String) payload.get("to"),
+                        (String) payload.get("fullName"),
+                        (String) payload.get("buildingName"),
+                        (String) payload.get("apartmentNumber"),
+                        (String) payload.get("email"),
+                        temporaryPassword(payload));
+            }
+            default -> null;
+        };
+    }
+
+    private void sendEmails(Map<SimpleMailMessage, OutboxEvent> emails, List<Long> delivered) {
+        List<SimpleMailMessage> failed = emailService.sendBatch(new ArrayList<>(emails.keySet()));
+        Set<SimpleMailMessage> failedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        failedSet.addAll(failed);
+
+        emails.forEach((email, event) -> {
+            if (failedSet.contains(email)) {
+                handleFailure(event, new IllegalStateException("SMTP delivery failed"));
+            } else {
+                delivered.add(event.getId());
+            }
+        });
+    }
+
+    private void dispatch(OutboxEvent event) throws Exception {
+        Map<String, Object> payload = readPayload(event);
+
+        switch (event.getEventType()) {
+            case PUSH_NOTIFICATION -> fcmService.deliverPushNotification(
+                    (String) payload.get("fcmToken"),
+                    (String) payload.get("title"),
+                    (String) payload.get("body"),
+                    (String) payload.get("type"),
+                    (String) payload.get("channelId"),
+                    (String) payload.get("collapseKey"));
+            case WEBSOCKET_TOPIC -> messagingTemplate.convertAndSend(
+                    (String) payload.get("destination"),
+                    payload.get("message"));
+            case WEBSOCKET_USER -> messagingTemplate.convertAndSendToUser(
+                    (String) payload.get("user"),
+                    (String) payload.get("destination"),
+                    payload.get("message"));
+            default -> throw new IllegalStateException("Unsupported outbox event type: " + event.getEventType());
+        }
+    }
+
+    private String temporaryPassword(Map<String, Object> payload) {
+        String encrypted = (String) payload.get(OutboxService.ENCRYPTED_PASSWORD);
+        // Événements enregistrés avant le chiffrement des secrets
+        return encrypted != null ? outboxSecretCipher.decrypt(encrypted) : (String) payload.get("temporaryPassword");
+    }
+
+    // Un événement abandonné ne garde aucun secret
+    private void redactSecrets(OutboxEvent event) {
+        try {
+            Map<String, Object> payload = readPayload(event);
+            if (payload.keySet().removeAll(OutboxService.SECRET_FIELDS)) {
+                outboxEventRepository.updatePayload(event.getId(), objectMapper.writeValueAsString(payload));
+            }
+        } catch (Exception e) {
+            log.error("Cannot redact secrets of outbox event {}: {}", event.getId(), e.getMessage());
+        }
+    }
+
+    private Map<String, Object> readPayload(OutboxEvent event) throws Exception {
+        return objectMapper.readValue(event.getPayload(), PAYLOAD_TYPE);
+    }
+
+    private void handleFailure(OutboxEvent event, Exception e) {
+        AppConfig.Outbox config = appConfig.getOutbox();
+        // attempts a déjà été incrémenté lors de la réservation
+        int attempts = event.getAttempts();
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+
+        if (attempts >= config.getMaxAttempts()) {
+            log.error("Outbox event {} ({}) failed permanently after {} attempts: {}",
+                    event.getId(), event.getEventType(), attempts, error);
+            outboxEventRepository.markFailedAttempt(event.getId(), OutboxStatus.FAILED, LocalDateTime.now(), error);
+            redactSecrets(event);
+            return;
+        }
+
+        // Backoff exponentiel plafonné
+        long delay = Math.min(config.getMaxBackoffSeconds(),
+                config.getInitialBackoffSeconds() * (1L << Math.min(attempts - 1, 20)));
+        log.warn("Outbox event {} ({}) failed (attempt {}), retrying in {}s: {}",
+                event.getId(), event.getEventType(), attempts, delay, error);
+        outboxEventRepository.markFailedAttempt(event.getId(), OutboxStatus.PENDING,
+                LocalDateTime.now().plusSeconds(delay), error);
+    }
+}
@@ -0,0 +1,141 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.model.OutboxEvent;
+import be.delomid.oneapp.mschat.mschat.model.OutboxEventType;
+import be.delomid.oneapp.mschat.mschat.repository.OutboxEventRepository;
+import be.delomid.oneapp.mschat.mschat.util.TransactionUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Enregistre les effets de bord dans la table outbox_events, dans la transaction de l'appelant.
+ * Ils ne sont délivrés qu'après commit, hors transaction, par OutboxRelayService.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxService {
+
+    // Champs chiffrés par OutboxSecretCipher, retirés du payload quand l'événement échoue définitivement
+    static final String ENCRYPTED_PASSWORD = "encryptedPassword";
+    static final List<String> SECRET_FIELDS = List.of(ENCRYPTED_PASSWORD, "temporaryPassword");
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxRelayService outboxRelayService;
+    private final OutboxSecretCipher outboxSecretCipher;
+    private final ObjectMapper objectMapper;
+
+    public record PushMessage(String fcmToken, String title, String body, String type, String channelId,
+                              String collapseKey) {
+    }
+
+    @Transactional
+    public void enqueuePush(String fcmToken, String title, String body, String type, String channelId, String collapseKey) {
+        if (fcmToken == null || fcmToken.isEmpty()) {
+            return;
+        }
+        enqueue(OutboxEventType.PUSH_NOTIFICATION, pushPayload(new PushMessage(fcmToken, title, body, type, channelId, collapseKey)));
+    }
+
+    /**
+     * Enregistre un lot de pushs en une seule sauvegarde. Les pushs prioritaires sont délivrés
+     * dès le commit par la voie rapide du relais.
+     */
+    @Transactional
+    public void enqueuePushes(List<PushMessage> pushes, int priority) {
+        List<OutboxEvent> events = new ArrayList<>(pushes.size());
+        for (PushMessage push : pushes) {
+            if (push.fcmToken() != null && !push.fcmToken().isEmpty()) {
+                events.add(buildEvent(OutboxEventType.PUSH_NOTIFICATION, pushPayload(push), priority));
+            }
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        outboxEventRepository.saveAll(events);
+        log.debug("{} push events enqueued with priority {}", events.size(), priority);
+
+        if (priority > OutboxEvent.PRIORITY_NORMAL) {
+            TransactionUtil.afterCommit(outboxRelayService::relayPriority);
+        }
+    }
+
+    @Transactional
+    public void enqueueTopicMessage(String destination, Object message) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("destination", destination);
+        payload.put("message", message);
+        enqueue(OutboxEventType.WEBSOCKET_TOPIC, payload);
+    }
+
+    @Transactional
+    public void enqueueUserMessage(String user, String destination, Object message) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("user", user);
+        payload.put("destination", destination);
+        payload.put("message", message);
+        enqueue(OutboxEventType.WEBSOCKET_USER, payload);
+    }
+
+    @Transactional
+    public void enqueueAccountStatusEmail(String to, String status, String reason) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("to", to);
+        payload.put("status", status);
+        payload.put("reason", reason);
+        enqueue(OutboxEventType.ACCOUNT_STATUS_EMAIL, payload);
+    }
+
+    @Transactional
+    public void enqueueWelcomeEmail(String to, String fullName, String buildingName, String apartmentNumber,
+                                    String email, String temporaryPassword) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("to", to);
+        payload.put("fullName", fullName);
+        payload.put("buildingName", buildingName);
+        payload.put("apartmentNumber", apartmentNumber);
+        payload.put("email", email);
+        payload.put(ENCRYPTED_PASSWORD, outboxSecretCipher.encrypt(temporaryPassword));
+        enqueue(OutboxEventType.WELCOME_EMAIL, payload);
+    }
+
+    private void enqueue(OutboxEventType type, Map<String, Object> payload) {
+        outboxEventRepository.save(buildEvent(type, payload, OutboxEvent.PRIORITY_NORMAL));
+        log.debug("Outbox event {} enqueued", type);
+    }
+
+    private OutboxEvent buildEvent(OutboxEventType type, Map<String, Object> payload, int priority) {
+        try {
+            return OutboxEvent.builder()
+                    .eventType(type)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .priority(priority)
+                    .nextAttemptAt(LocalDateTime.now())
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize outbox payload for " + type, e);
+        }
+    }
+
+    private Map<String, Object> pushPayload(PushMessage push) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("fcmToken", push.fcmToken());
+        payload.put("title", push.title());
+        payload.put("body", push.body());
+        payload.put("type", push.type());
+        payload.put("channelId", push.channelId());
+        payload.put("collapseKey", push.collapseKey());
+        return payload;
+    }
+
+}
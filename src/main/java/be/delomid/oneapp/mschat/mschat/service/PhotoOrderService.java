@@ -0,0 +1,46 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.repository.PhotoOrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Réordonnancement groupé des photos, partagé par les photos d'appartement et d'immeuble :
+ * une requête vérifie que toutes les photos appartiennent au propriétaire, une seule
+ * instruction UPDATE applique ensuite toutes les positions. S'exécute dans la transaction
+ * de l'appelant.
+ */
+@Service
+@Slf4j
+public class PhotoOrderService {
+
+    /**
+     * Range les photos dans l'ordre de la liste (position 0 pour la première).
+     */
+    public void reorder(PhotoOrderRepository repository, String ownerId, List<Long> photoIds) {
+        if (photoIds == null || photoIds.isEmpty()) {
+            return;
+        }
+        if (photoIds.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Photo ids must not be null");
+        }
+        Set<Long> orderedIds = new LinkedHashSet<>(photoIds);
+        if (orderedIds.size() != photoIds.size()) {
+            throw new IllegalArgumentException("Duplicate photo ids in reorder request");
+        }
+
+        if (repository.countPhotosOwnedBy(ownerId, orderedIds) != orderedIds.size()) {
+            throw new IllegalArgumentException("Some photos do not exist or do not belong to " + ownerId);
+        }
+
+        int updated = repository.applyPhotoOrder(ownerId, orderedIds,
+                orderedIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        log.debug("{} photos réordonnées pour {}", updated, ownerId);
+    }
+}
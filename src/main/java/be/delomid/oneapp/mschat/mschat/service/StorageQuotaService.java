@@ -0,0 +1,150 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.config.AppConfig;
+import be.delomid.oneapp.mschat.mschat.exception.StorageQuotaExceededException;
+import be.delomid.oneapp.mschat.mschat.model.Apartment;
+import be.delomid.oneapp.mschat.mschat.model.ResidentBuilding;
+import be.delomid.oneapp.mschat.mschat.model.StorageUsage;
+import be.delomid.oneapp.mschat.mschat.model.StoredFile;
+import be.delomid.oneapp.mschat.mschat.repository.ResidentBuildingRepository;
+import be.delomid.oneapp.mschat.mschat.repository.StorageUsageRepository;
+import be.delomid.oneapp.mschat.mschat.repository.StoredFileRepository;
+import be.delomid.oneapp.mschat.mschat.util.SecurityContextUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Comptabilise l'espace disque par immeuble et par appartement.
+ *
+ * Le quota est réservé avant l'écriture des octets, par une requête conditionnelle
+ * atomique. Les méthodes rejoignent la transaction de l'appelant : si l'upload échoue
+ * ensuite, la réservation est annulée avec le reste ; hors transaction, l'appelant
+ * libère explicitement avec {@link #release}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageQuotaService {
+
+    private final StorageUsageRepository storageUsageRepository;
+    private final StoredFileRepository storedFileRepository;
+    private final ResidentBuildingRepository residentBuildingRepository;
+    private final AppConfig appConfig;
+
+    /**
+     * Immeuble sélectionné et appartement de l'utilisateur courant dans cet immeuble.
+     */
+    public StorageScope currentScope() {
+        String buildingId = SecurityContextUtil.getCurrentBuildingId();
+        if (buildingId == null) {
+            return StorageScope.NONE;
+        }
+        String userId = SecurityContextUtil.getCurrentUserId();
+        String apartmentId = userId == null ? null : residentBuildingRepository
+                .findByResidentIdAndBuildingId(userId, buildingId)
+                .map(ResidentBuilding::getApartment)
+                .map(Apartment::getIdApartment)
+                .orElse(null);
+        return new StorageScope(buildingId, apartmentId);
+    }
+
+    /**
+     * Vérification sans réservation, pour refuser un upload fragmenté dès son initialisation.
+     * Les octets en attente (sessions d'upload ouvertes) s'ajoutent à l'espace déjà utilisé.
+     */
+    @Transactional(readOnly = true)
+    public void checkAvailable(StorageScope scope, long bytes, long pendingBuildingBytes, long pendingApartmentBytes) {
+        check(StorageUsage.BUILDING, scope.buildingId(), bytes + pendingBuildingBytes,
+                appConfig.getStorage().getBuildingQuotaBytes());
+        check(StorageUsage.APARTMENT, scope.apartmentId(), bytes + pendingApartmentBytes,
+                appConfig.getStorage().getApartmentQuotaBytes());
+    }
+
+    @Transactional
+    public void reserve(StorageScope scope, long bytes) {
+        // Une exception annule aussi la réservation sur l'immeuble (rollback)
+        reserve(StorageUsage.BUILDING, scope.buildingId(), bytes, appConfig.getStorage().getBuildingQuotaBytes());
+        reserve(StorageUsage.APARTMENT, scope.apartmentId(), bytes, appConfig.getStorage().getApartmentQuotaBytes());
+    }
+
+    @Transactional
+    public void release(StorageScope scope, long bytes) {
+        release(scope, bytes, 1);
+    }
+
+    @Transactional
+    public void release(StorageScope scope, long bytes, long files) {
+        if (scope.buildingId() != null) {
+            storageUsageRepository.subtract(StorageUsage.BUILDING, scope.buildingId(), bytes, files);
+        }
+        if (scope.apartmentId() != null) {
+            storageUsageRepository.subtract(StorageUsage.APARTMENT, scope.apartmentId(), bytes, files);
+        }
+    }
+
+    /**
+     * Réserve le quota et inscrit le fichier au registre des uploads.
+     */
+    @Transactional
+    public void reserveStoredFile(String fileId, StorageScope scope, String uploadedBy, long bytes) {
+        reserve(scope, bytes);
+        storedFileRepository.save(StoredFile.builder()
+                .fileId(fileId)
+                .buildingId(scope.buildingId())
+                .apartmentId(scope.apartmentId())
+                .uploadedBy(uploadedBy)
+                .sizeBytes(bytes)
+                .build());
+    }
+
+    /**
+     * Annule {@link #reserveStoredFile} quand l'écriture a échoué hors transaction.
+     */
+    @Transactional
+    public void cancelStoredFile(String fileId, StorageScope scope, long bytes) {
+        storedFileRepository.deleteById(fileId);
+        release(scope, bytes);
+    }
+
+    /**
+     * Libère l'espace d'un fichier du registre supprimé du disque. Sans effet pour les
+     * fichiers antérieurs au registre. Appelé après le commit de la suppression : s'exécute
+     * dans sa propre transaction.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void storedFileDeleted(String fileId) {
+        storedFileRepository.findById(fileId).ifPresent(storedFile -> {
+            release(new StorageScope(storedFile.getBuildingId(), storedFile.getApartmentId()), storedFile.getSizeBytes());
+            storedFileRepository.delete(storedFile);
+        });
+    }
+
+    private void reserve(String scopeType, String scopeId, long bytes, long quota) {
+        if (scopeId == null) {
+            return;
+        }
+        long limit = quota > 0 ? quota : Long.MAX_VALUE;
+        if (bytes > limit || storageUsageRepository.tryAdd(scopeType, scopeId, bytes, 1, limit) == 0) {
+            log.warn("Quota de stockage atteint pour {} {} ({} octets demandés)", scopeType, scopeId, bytes);
+            throw new StorageQuotaExceededException(quotaMessage(scopeType, quota));
+        }
+    }
+
+    private void check(String scopeType, String scopeId, long bytes, long quota) {
+        if (scopeId == null || quota <= 0) {
+            return;
+        }
+        long used = storageUsageRepository.findUsedBytes(scopeType, scopeId).orElse(0L);
+        if (used + bytes > quota) {
+            throw new StorageQuotaExceededException(quotaMessage(scopeType, quota));
+        }
+    }
+
+    private String quotaMessage(String scopeType, long quota) {
+        String owner = StorageUsage.BUILDING.equals(scopeType) ? "de l'immeuble" : "de l'appartement";
+        return "Espace de stockage " + owner + " insuffisant (quota de " + (quota / 1024 / 1024) + " MB)";
+    }
+}
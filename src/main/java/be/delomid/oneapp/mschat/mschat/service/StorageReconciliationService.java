@@ -0,0 +1,161 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.config.AppConfig;
+import be.delomid.oneapp.mschat.mschat.model.StoredFile;
+import be.delomid.oneapp.mschat.mschat.repository.StorageUsageRepository;
+import be.delomid.oneapp.mschat.mschat.repository.StoredFileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Recalcule l'occupation disque en arrière-plan : vérifie la taille réelle des fichiers
+ * du registre des uploads (au plus N fichiers par seconde pour ne pas saturer le disque),
+ * puis reconstruit les compteurs par immeuble et appartement à partir des registres.
+ * L'entrée du registre est créée avant l'écriture du fichier : les entrées plus récentes que
+ * app.storage.reconcile-grace-minutes ne sont pas confrontées au disque.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageReconciliationService {
+
+    private final StoredFileRepository storedFileRepository;
+    private final StorageUsageRepository storageUsageRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final AppConfig appConfig;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileAtStartup() {
+        reconcile();
+    }
+
+    @Async
+    @Scheduled(cron = "${app.storage.reconcile-cron:0 0 4 * * *}")
+    public void reconcileNightly() {
+        reconcile();
+    }
+
+    public void reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            log.debug("Réconciliation du stockage déjà en cours");
+            return;
+        }
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+            Integer seeded = transactionTemplate.execute(status -> storedFileRepository.seedFromPhotos());
+            if (seeded != null && seeded > 0) {
+                log.info("{} photos existantes ajoutées au registre des fichiers", seeded);
+            }
+
+            verifyStoredFiles(transactionTemplate);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                storageUsageRepository.lockAll();
+                storageUsageRepository.recomputeBuildings();
+                storageUsageRepository.recomputeApartments();
+                storageUsageRepository.resetEmptyScopes();
+            });
+            log.info("Compteurs de stockage recalculés");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Réconciliation du stockage interrompue");
+        } catch (Exception e) {
+            log.error("Erreur lors de la réconciliation du stockage", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void verifyStoredFiles(TransactionTemplate transactionTemplate) throws InterruptedException {
+        AppConfig.Storage config = appConfig.getStorage();
+        Path uploadPath = Paths.get(uploadDir);
+        long started = System.nanoTime();
+        long checked = 0;
+        int resized = 0;
+        int missing = 0;
+        String lastFileId = "";
+        LocalDateTime graceCutoff = LocalDateTime.now().minusMinutes(config.getReconcileGraceMinutes());
+
+        while (true) {
+            List<StoredFile> batch = storedFileRepository.findByFileIdGreaterThanOrderByFileIdAsc(
+                    lastFileId, PageRequest.of(0, config.getReconcileBatchSize()));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            Map<String, Long> sizes = new HashMap<>();
+            List<String> deleted = new ArrayList<>();
+            for (StoredFile storedFile : batch) {
+                if (storedFile.getCreatedAt() != null && storedFile.getCreatedAt().isAfter(graceCutoff)) {
+                    // Écriture peut-être en cours : le fichier absent ou partiel n'est pas une anomalie
+                    continue;
+                }
+                try {
+                    long size = Files.size(uploadPath.resolve(storedFile.getFileId()));
+                    if (size != storedFile.getSizeBytes()) {
+                        sizes.put(storedFile.getFileId(), size);
+                    }
+                } catch (NoSuchFileException e) {
+                    deleted.add(storedFile.getFileId());
+                } catch (IOException e) {
+                    log.warn("Impossible de lire la taille de {}: {}", storedFile.getFileId(), e.getMessage());
+                }
+                throttle(started, ++checked, config.getReconcileFilesPerSecond());
+            }
+
+            if (!sizes.isEmpty() || !deleted.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    sizes.forEach(storedFileRepository::updateSize);
+                    storedFileRepository.deleteAllById(deleted);
+                });
+                resized += sizes.size();
+                missing += deleted.size();
+            }
+            lastFileId = batch.get(batch.size() - 1).getFileId();
+        }
+
+        if (resized > 0 || missing > 0) {
+            log.info("Registre des fichiers corrigé: {} tailles mises à jour, {} fichiers absents du disque", resized, missing);
+        }
+    }
+
+    // Espace les accès disque pour ne pas dépasser le débit configuré
+    private void throttle(long startedNanos, long checked, int filesPerSecond) throws InterruptedException {
+        if (filesPerSecond <= 0) {
+            return;
+        }
+        long expectedMillis = checked * 1000L / filesPerSecond;
+        long elapsedMillis = (System.nanoTime() - startedNanos) / 1_000_000;
+        if (expectedMillis > elapsedMillis) {
+            Thread.sleep(expectedMillis - elapsedMillis);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+/**
+ * Immeuble et appartement auxquels imputer un fichier. L'appartement est absent pour
+ * les uploads d'administrateurs ; l'immeuble l'est hors contexte d'immeuble.
+ */
+public record StorageScope(String buildingId, String apartmentId) {
+
+    public static final StorageScope NONE = new StorageScope(null, null);
+}
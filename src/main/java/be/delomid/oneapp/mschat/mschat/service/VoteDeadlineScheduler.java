@@ -0,0 +1,149 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.repository.VoteRepository;
+import be.delomid.oneapp.mschat.mschat.util.TransactionUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clôture les votes à leur date de fin exacte : les échéances des votes actifs sont
+ * chargées au démarrage dans une file à délai, puis chaque vote créé avec une date de fin
+ * y est ajouté. Un thread dédié attend la prochaine échéance, clôt en une requête tous les
+ * votes arrivés à terme, fige leurs compteurs et diffuse les résultats finaux.
+ *
+ * Une vérification périodique rattrape les votes qu'aucune instance n'a planifiés
+ * (instance arrêtée, vote créé ailleurs).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VoteDeadlineScheduler {
+
+    private final VoteRepository voteRepository;
+    private final VoteTallyService voteTallyService;
+    private final PlatformTransactionManager transactionManager;
+
+    private final DelayQueue<Deadline> deadlines = new DelayQueue<>();
+    private Thread worker;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        voteRepository.findActiveDeadlines()
+                .forEach(deadline -> schedule(deadline.getId(), deadline.getEndDate()));
+        log.info("{} échéances de votes planifiées", deadlines.size());
+
+        worker = new Thread(this::runLoop, "vote-deadlines");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    public void schedule(Long voteId, LocalDateTime endDate) {
+        Instant dueAt = endDate.atZone(ZoneId.systemDefault()).toInstant();
+        // Arrondi à la milliseconde supérieure : ne jamais se réveiller avant end_date
+        long dueAtMillis = dueAt.toEpochMilli() + (dueAt.getNano() % 1_000_000 == 0 ? 0 : 1);
+        deadlines.put(new Deadline(voteId, dueAtMillis));
+    }
+
+    /**
+     * Planifie l'échéance une fois le vote validé en base (ou immédiatement hors transaction).
+     */
+    public void scheduleAfterCommit(Long voteId, LocalDateTime endDate) {
+        TransactionUtil.afterCommit(() -> schedule(voteId, endDate));
+    }
+
+    /**
+     * Filet de sécurité : clôt les votes expirés restés actifs.
+     */
+    @Scheduled(fixedDelayString = "${app.votes.expiry-reconcile-ms:300000}")
+    public void closeExpiredVotes() {
+        List<Long> expired = voteRepository.findExpiredActiveVoteIds(LocalDateTime.now());
+        if (!expired.isEmpty()) {
+            log.info("{} votes expirés clôturés par la vérification périodique", close(expired));
+        }
+    }
+
+    private void runLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                // Regrouper les votes arrivés à échéance au même moment
+                Set<Long> due = new LinkedHashSet<>();
+                due.add(deadlines.take().voteId);
+                List<Deadline> more = new ArrayList<>();
+                deadlines.drainTo(more);
+                more.forEach(deadline -> due.add(deadline.voteId));
+                close(new ArrayList<>(due));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Erreur lors de la clôture des votes échus", e);
+            }
+        }
+    }
+
+    private int close(List<Long> voteIds) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Integer closed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> expired = voteRepository.findExpiredActiveVoteIds(voteIds, now);
+            if (expired.isEmpty()) {
+                return 0;
+            }
+            int updated = voteRepository.closeExpired(expired, now);
+            // Fige les compteurs et diffuse les résultats finaux après le commit
+            voteTallyService.freeze(expired);
+            log.debug("Votes {} automatically closed due to expiration", expired);
+            return updated;
+        });
+        return closed != null ? closed : 0;
+    }
+
+    private static final class Deadline implements Delayed {
+
+        private final Long voteId;
+        private final long dueAtMillis;
+
+        private Deadline(Long voteId, long dueAtMillis) {
+            this.voteId = voteId;
+            this.dueAtMillis = dueAtMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        // Comparaison sur l'échéance fixe : deux appels à getDelay lisent l'horloge à des instants différents
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof Deadline deadline) {
+                return Long.compare(dueAtMillis, deadline.dueAtMillis);
+            }
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
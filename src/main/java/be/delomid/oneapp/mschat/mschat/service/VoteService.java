@@ -7,15 +7,20 @@ import be.delomid.oneapp.mschat.mschat.model.*;
 import be.delomid.oneapp.mschat.mschat.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,10 +31,13 @@ public class VoteService {
     private final VoteRepository voteRepository;
     private final VoteOptionRepository voteOptionRepository;
     private final UserVoteRepository userVoteRepository;
+    private final VoteBallotRepository voteBallotRepository;
     private final ChannelRepository channelRepository;
     private final ChannelMemberRepository channelMemberRepository;
     private final ResidentRepository residentRepository;
     private final ResidentBuildingRepository residentBuildingRepository;
+    private final VoteTallyService voteTallyService;
+    private final VoteDeadlineScheduler voteDeadlineScheduler;
 
     @Transactional
     public VoteDto createVote(CreateVoteRequest request, String createdBy) {
@@ -59,15 +67,20 @@ public class VoteService {
         vote = voteRepository.save(vote);
 
         // Créer les options
+        List<VoteOption> options = new ArrayList<>();
         for (String optionText : request.getOptions()) {
-            VoteOption option = VoteOption.builder()
+            options.add(VoteOption.builder()
                     .text(optionText)
                     .vote(vote)
-                    .build();
-            voteOptionRepository.save(option);
+                    .build());
         }
+        options = voteOptionRepository.saveAll(options);
 
-        return convertToDto(vote, createdBy);
+        if (vote.getEndDate() != null) {
+            voteDeadlineScheduler.scheduleAfterCommit(vote.getId(), vote.getEndDate());
+        }
+
+        return convertToDto(vote, options, false);
     }
 
     @Transactional
@@ -91,33 +104,30 @@ public class VoteService {
         // Vérifier que le canal appartient au bâtiment actuel
         validateChannelBuildingAccess(vote.getChannel(), userId);
 
-        // Vérifier que l'utilisateur n'a pas déjà voté
-        if (userVoteRepository.existsByVoteIdAndUserId(request.getVoteId(), userId)) {
-            throw new IllegalStateException("User has already voted");
-        }
+        // Une option sélectionnée deux fois ne compte qu'une voix
+        Set<Long> selectedOptionIds = new LinkedHashSet<>(request.getSelectedOptionIds());
 
         // Vérifier le nombre d'options selon le type de vote
-        if (vote.getVoteType() == VoteType.SINGLE_CHOICE && request.getSelectedOptionIds().size() > 1) {
+        if (vote.getVoteType() == VoteType.SINGLE_CHOICE && selectedOptionIds.size() > 1) {
             throw new IllegalArgumentException("Only one option can be selected for single choice vote");
         }
 
-        // Enregistrer les votes
-        for (Long optionId : request.getSelectedOptionIds()) {
-            VoteOption option = voteOptionRepository.findById(optionId)
-                    .orElseThrow(() -> new IllegalArgumentException("Vote option not found: " + optionId));
+        // Vérifier toutes les options en une requête
+        List<Long> validOptionIds = voteOptionRepository.findIdsByVoteIdAndIdIn(vote.getId(), selectedOptionIds);
+        if (validOptionIds.size() != selectedOptionIds.size()) {
+            throw new IllegalArgumentException("Vote option does not belong to this vote");
+        }
 
-            if (!option.getVote().getId().equals(request.getVoteId())) {
-                throw new IllegalArgumentException("Vote option does not belong to this vote");
-            }
+        // Réserver le bulletin : la contrainte unique arbitre les soumissions concurrentes
+        if (voteBallotRepository.insertIfAbsent(vote.getId(), userId) == 0) {
+            throw new IllegalStateException("User has already voted");
+        }
 
-            UserVote userVote = UserVote.builder()
-                    .vote(vote)
-                    .voteOption(option)
-                    .userId(userId)
-                    .build();
+        // Enregistrer les votes
+        userVoteRepository.insertSelections(vote.getId(), userId, selectedOptionIds);
 
-            userVoteRepository.save(userVote);
-        }
+        // Mettre à jour les compteurs (échoue si le vote vient d'être clos)
+        voteTallyService.recordVote(vote.getId(), selectedOptionIds);
 
         log.debug("User {} voted on vote {}", userId, request.getVoteId());
     }
@@ -131,14 +141,17 @@ public class VoteService {
                 .orElseThrow(() -> new IllegalArgumentException("Channel not found: " + channelId));
         validateChannelBuildingAccess(channel, userId);
 
-        List<Vote> votes = voteRepository.findByChannelIdOrderByCreatedAtDesc(channelId);
-        return votes.stream()
-                .map(vote -> convertToDto(vote, userId))
-                .collect(Collectors.toList());
+        List<Vote> votes = voteRepository.findByChannelIdWithOptions(channelId);
+        return convertToDtos(votes, userKeys(userId));
+    }
+
+    public List<VoteDto> getActiveVotesForUser(Resident user, String buildingId) {
+        List<Vote> votes = voteRepository.findActiveVotesForMemberInBuilding(user.getIdUsers(), buildingId);
+        return convertToDtos(votes, List.of(user.getEmail(), user.getIdUsers()));
     }
 
     public VoteDto getVoteById(Long voteId, String userId) {
-        Vote vote = voteRepository.findById(voteId)
+        Vote vote = voteRepository.findByIdWithOptions(voteId)
                 .orElseThrow(() -> new IllegalArgumentException("Vote not found: " + voteId));
 
         // Vérifier l'accès au canal
@@ -147,7 +160,7 @@ public class VoteService {
         // Vérifier que le canal appartient au bâtiment actuel
         validateChannelBuildingAccess(vote.getChannel(), userId);
 
-        return convertToDto(vote, userId);
+        return convertToDtos(List.of(vote), userKeys(userId)).get(0);
     }
 
     @Transactional
@@ -161,25 +174,15 @@ public class VoteService {
         }
 
         vote.setIsActive(false);
-        vote = voteRepository.save(vote);
-
-        log.debug("Vote {} closed by user {}", voteId, userId);
-        return convertToDto(vote, userId);
-    }
-
-
+        voteRepository.save(vote);
+        voteTallyService.freeze(List.of(voteId));
 
+        // Relire les compteurs figés
+        vote = voteRepository.findByIdWithOptions(voteId)
+                .orElseThrow(() -> new IllegalArgumentException("Vote not found: " + voteId));
 
-    // Fermer automatiquement les votes expirés
-    @Scheduled(fixedRate = 60000) // Toutes les minutes
-    @Transactional
-    public void closeExpiredVotes() {
-        List<Vote> expiredVotes = voteRepository.findExpiredActiveVotes(LocalDateTime.now());
-        for (Vote vote : expiredVotes) {
-            vote.setIsActive(false);
-            voteRepository.save(vote);
-            log.debug("Vote {} automatically closed due to expiration", vote.getId());
-        }
+        log.debug("Vote {} closed by user {}", voteId, userId);
+        return convertToDtos(List.of(vote), userKeys(userId)).get(0);
     }
 
     private void validateChannelAdminAccess(Long channelId, String userId) {
@@ -294,15 +297,39 @@ public class VoteService {
         return null;
     }
 
-    private VoteDto convertToDto(Vote vote, String userId) {
-        // Calculer les statistiques des options en évitant les références circulaires
-        List<VoteOption> options = voteOptionRepository.findByVoteId(vote.getId());
-        Long totalVotes = userVoteRepository.countByVoteId(vote.getId());
+    // Les bulletins sont enregistrés avec l'email (nom de l'authentification) ; les plus anciens avec l'id
+    private List<String> userKeys(String userId) {
+        List<String> keys = new ArrayList<>();
+        keys.add(userId);
+        residentRepository.findByEmail(userId)
+                .map(Resident::getIdUsers)
+                .filter(id -> !id.equals(userId))
+                .ifPresent(keys::add);
+        return keys;
+    }
+
+    private List<VoteDto> convertToDtos(List<Vote> votes, Collection<String> userKeys) {
+        if (votes.isEmpty()) {
+            return List.of();
+        }
+        // Une seule requête pour savoir à quels votes l'utilisateur a participé
+        Set<Long> votedIds = new HashSet<>(userVoteRepository.findVotedVoteIds(
+                votes.stream().map(Vote::getId).collect(Collectors.toList()), userKeys));
+
+        return votes.stream()
+                .map(vote -> convertToDto(vote, vote.getOptions(), votedIds.contains(vote.getId())))
+                .collect(Collectors.toList());
+    }
+
+    private VoteDto convertToDto(Vote vote, Collection<VoteOption> options, boolean hasVoted) {
+        // Les compteurs sont maintenus par VoteTallyService : aucun recomptage ici
+        long totalVotes = vote.getTotalVotes() != null ? vote.getTotalVotes() : 0L;
 
         List<VoteOptionDto> optionDtos = options.stream()
+                .sorted(Comparator.comparing(VoteOption::getId))
                 .map(option -> {
-                    Long voteCount = voteOptionRepository.countVotesByOptionId(option.getId());
-                    Double percentage = totalVotes > 0 ? (voteCount.doubleValue() / totalVotes.doubleValue()) * 100 : 0.0;
+                    long voteCount = option.getVoteCount() != null ? option.getVoteCount() : 0L;
+                    Double percentage = totalVotes > 0 ? ((double) voteCount / totalVotes) * 100 : 0.0;
 
                     return VoteOptionDto.builder()
                             .id(option.getId())
@@ -313,10 +340,6 @@ public class VoteService {
                 })
                 .collect(Collectors.toList());
 
-        // Vérifier si l'utilisateur a voté
-        Resident user = residentRepository.findByEmail(userId).orElse(null);
-        Boolean hasVoted = user != null && userVoteRepository.existsByVoteIdAndUserId(vote.getId(), user.getIdUsers());
-
         return VoteDto.builder()
                 .id(vote.getId())
                 .title(vote.getTitle())
@@ -332,6 +355,7 @@ public class VoteService {
                 .updatedAt(vote.getUpdatedAt())
                 .hasVoted(hasVoted)
                 .totalVotes(totalVotes)
+                .voterCount(vote.getVoterCount() != null ? vote.getVoterCount() : 0L)
                 .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,250 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.dto.VoteOptionDto;
+import be.delomid.oneapp.mschat.mschat.dto.VoteResultsDto;
+import be.delomid.oneapp.mschat.mschat.model.Vote;
+import be.delomid.oneapp.mschat.mschat.model.VoteOption;
+import be.delomid.oneapp.mschat.mschat.repository.VoteBallotRepository;
+import be.delomid.oneapp.mschat.mschat.repository.VoteOptionRepository;
+import be.delomid.oneapp.mschat.mschat.repository.VoteRepository;
+import be.delomid.oneapp.mschat.mschat.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Maintient les compteurs des votes (choix, votants, voix par option) au fil des
+ * participations, pour que la lecture d'un vote ne recompte jamais user_votes.
+ * Les mises à jour sont des incréments atomiques exécutés dans la transaction de l'appelant.
+ *
+ * Les votes en cours sont aussi comptés en mémoire et diffusés sur /topic/vote/{id} :
+ * au plus une trame par vote et par intervalle de diffusion, quel que soit le nombre de
+ * bulletins reçus, et sans aucune requête pour les clients abonnés.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VoteTallyService implements CommandLineRunner {
+
+    private static final String VOTE_TOPIC = "/topic/vote/";
+
+    private final VoteRepository voteRepository;
+    private final VoteOptionRepository voteOptionRepository;
+    private final VoteBallotRepository voteBallotRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final Map<Long, LiveTally> liveTallies = new ConcurrentHashMap<>();
+
+    @Value("${app.votes.live.resync-seconds:30}")
+    private long resyncSeconds;
+
+    @Value("${app.votes.live.idle-minutes:10}")
+    private long idleMinutes;
+
+    /**
+     * Comptabilise la participation d'un votant. Échoue si le vote a été clos entre la
+     * vérification et l'écriture : la transaction est alors annulée avec les bulletins.
+     */
+    public void recordVote(Long voteId, Collection<Long> optionIds) {
+        if (voteRepository.addTallies(voteId, optionIds.size()) == 0) {
+            throw new IllegalStateException("Vote is not active");
+        }
+        voteOptionRepository.incrementVoteCounts(optionIds);
+
+        List<Long> selected = List.copyOf(optionIds);
+        TransactionUtil.afterCommit(() -> applyBallot(voteId, selected));
+    }
+
+    /**
+     * Fige les compteurs à la clôture en les recalculant depuis les bulletins.
+     */
+    public void freeze(Collection<Long> voteIds) {
+        if (voteIds.isEmpty()) {
+            return;
+        }
+        voteRepository.recomputeTallies(voteIds);
+        voteOptionRepository.recomputeVoteCounts(voteIds);
+
+        List<Long> closed = List.copyOf(voteIds);
+        TransactionUtil.afterCommit(() -> closed.forEach(this::publishFinal));
+    }
+
+    /**
+     * Diffuse les votes modifiés depuis la dernière trame, puis libère les votes inactifs.
+     */
+    @Scheduled(fixedDelayString = "${app.votes.live.broadcast-interval-ms:250}")
+    public void broadcastPending() {
+        long now = System.currentTimeMillis();
+        for (LiveTally tally : liveTallies.values()) {
+            if (tally.dirty.compareAndSet(true, false)) {
+                publish(tally.toDto());
+            }
+            if (now - tally.loadedAt > resyncSeconds * 1000) {
+                resync(tally.voteId);
+            } else if (now - tally.lastBallotAt > idleMinutes * 60_000) {
+                liveTallies.remove(tally.voteId, tally);
+            }
+        }
+    }
+
+    /**
+     * Initialise les compteurs et le registre des bulletins pour les votes antérieurs.
+     */
+    @Override
+    public void run(String... args) {
+        int ballots = voteBallotRepository.backfillFromUserVotes();
+        if (ballots > 0) {
+            log.info("{} bulletins existants ajoutés au registre des votants", ballots);
+        }
+        int votes = voteRepository.backfillTallies();
+        int options = voteOptionRepository.backfillVoteCounts();
+        if (votes > 0 || options > 0) {
+            log.info("Compteurs de votes initialisés: {} votes, {} options", votes, options);
+        }
+    }
+
+    private void applyBallot(Long voteId, List<Long> optionIds) {
+        LiveTally tally = liveTallies.get(voteId);
+        if (tally != null) {
+            tally.apply(optionIds);
+            return;
+        }
+        // Premier bulletin depuis le démarrage : l'état en base inclut déjà ce bulletin
+        try {
+            voteRepository.findByIdWithOptions(voteId).ifPresent(vote -> {
+                LiveTally loaded = new LiveTally(vote);
+                LiveTally existing = liveTallies.putIfAbsent(voteId, loaded);
+                (existing != null ? existing : loaded).dirty.set(true);
+            });
+        } catch (Exception e) {
+            log.warn("Impossible de charger les compteurs du vote {}: {}", voteId, e.getMessage());
+        }
+    }
+
+    // Recharge périodiquement depuis la base pour corriger une éventuelle dérive (autres instances)
+    private void resync(Long voteId) {
+        try {
+            voteRepository.findByIdWithOptions(voteId).ifPresentOrElse(vote -> {
+                LiveTally reloaded = new LiveTally(vote);
+                LiveTally previous = liveTallies.replace(voteId, reloaded);
+                if (previous != null) {
+                    reloaded.lastBallotAt = previous.lastBallotAt;
+                    if (previous.differsFrom(reloaded)) {
+                        reloaded.dirty.set(true);
+                    }
+                }
+            }, () -> liveTallies.remove(voteId));
+        } catch (Exception e) {
+            log.warn("Impossible de resynchroniser les compteurs du vote {}: {}", voteId, e.getMessage());
+        }
+    }
+
+    private void publishFinal(Long voteId) {
+        liveTallies.remove(voteId);
+        try {
+            voteRepository.findByIdWithOptions(voteId)
+                    .ifPresent(vote -> publish(new LiveTally(vote).toDto()));
+        } catch (Exception e) {
+            log.warn("Impossible de diffuser les résultats finaux du vote {}: {}", voteId, e.getMessage());
+        }
+    }
+
+    private void publish(VoteResultsDto results) {
+        try {
+            messagingTemplate.convertAndSend(VOTE_TOPIC + results.getVoteId(), results);
+        } catch (Exception e) {
+            log.error("Error publishing results of vote {}: {}", results.getVoteId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Compteurs en mémoire d'un vote ouvert.
+     */
+    private static final class LiveTally {
+
+        private final Long voteId;
+        private final boolean active;
+        private final Map<Long, String> optionTexts;
+        private final Map<Long, AtomicLong> optionCounts = new ConcurrentHashMap<>();
+        private final AtomicLong totalVotes;
+        private final AtomicLong voterCount;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private final long loadedAt = System.currentTimeMillis();
+        private volatile long lastBallotAt = loadedAt;
+
+        private LiveTally(Vote vote) {
+            this.voteId = vote.getId();
+            this.active = Boolean.TRUE.equals(vote.getIsActive());
+            this.totalVotes = new AtomicLong(vote.getTotalVotes() != null ? vote.getTotalVotes() : 0L);
+            this.voterCount = new AtomicLong(vote.getVoterCount() != null ? vote.getVoterCount() : 0L);
+
+            List<VoteOption> options = vote.getOptions().stream()
+                    .sorted(Comparator.comparing(VoteOption::getId))
+                    .collect(Collectors.toList());
+            this.optionTexts = new LinkedHashMap<>();
+            for (VoteOption option : options) {
+                optionTexts.put(option.getId(), option.getText());
+                optionCounts.put(option.getId(), new AtomicLong(option.getVoteCount() != null ? option.getVoteCount() : 0L));
+            }
+        }
+
+        private void apply(List<Long> optionIds) {
+            for (Long optionId : optionIds) {
+                AtomicLong count = optionCounts.get(optionId);
+                if (count != null) {
+                    count.incrementAndGet();
+                }
+            }
+            totalVotes.addAndGet(optionIds.size());
+            voterCount.incrementAndGet();
+            lastBallotAt = System.currentTimeMillis();
+            dirty.set(true);
+        }
+
+        private boolean differsFrom(LiveTally other) {
+            if (totalVotes.get() != other.totalVotes.get() || voterCount.get() != other.voterCount.get()) {
+                return true;
+            }
+            return optionCounts.entrySet().stream().anyMatch(entry -> {
+                AtomicLong count = other.optionCounts.get(entry.getKey());
+                return count == null || count.get() != entry.getValue().get();
+            });
+        }
+
+        private VoteResultsDto toDto() {
+            long total = totalVotes.get();
+            List<VoteOptionDto> options = new ArrayList<>(optionTexts.size());
+            optionTexts.forEach((optionId, text) -> {
+                long count = optionCounts.get(optionId).get();
+                options.add(VoteOptionDto.builder()
+                        .id(optionId)
+                        .text(text)
+                        .voteCount(count)
+                        .percentage(total > 0 ? ((double) count / total) * 100 : 0.0)
+                        .build());
+            });
+            return VoteResultsDto.builder()
+                    .voteId(voteId)
+                    .isActive(active)
+                    .totalVotes(total)
+                    .voterCount(voterCount.get())
+                    .options(options)
+                    .build();
+        }
+    }
+}
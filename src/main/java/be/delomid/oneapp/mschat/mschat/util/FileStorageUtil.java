@@ -0,0 +1,26 @@
+package be.delomid.oneapp.mschat.mschat.util;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+public class FileStorageUtil {
+
+    /**
+     * Déplace un fichier complet vers sa destination finale : le fichier n'apparaît
+     * jamais partiellement écrit à l'emplacement cible.
+     */
+    public static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Systèmes de fichiers différents : copie vers un fichier temporaire voisin puis renommage
+            Path temp = target.resolveSibling(target.getFileName() + ".part");
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(source);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package be.delomid.oneapp.mschat.mschat.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Roue temporelle hiérarchique : planifier une échéance coûte O(1) et chaque tick ne
+ * parcourt que les entrées de la case courante. Les niveaux supérieurs couvrent des
+ * intervalles plus larges et redescendent leurs entrées vers les niveaux inférieurs
+ * quand leur case est atteinte.
+ *
+ * Les clés expirées sont retournées par {@link #advance(long)} ; l'appelant reste
+ * responsable de vérifier qu'elles n'ont pas été remplacées entre-temps.
+ */
+public class HierarchicalTimingWheel<K> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long[] spans;
+    private final List<List<List<Slot<K>>>> levels;
+    private long currentTick;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levelCount, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || levelCount < 1) {
+            throw new IllegalArgumentException("Invalid timing wheel configuration");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.spans = new long[levelCount];
+        this.levels = new ArrayList<>(levelCount);
+
+        long span = 1;
+        for (int level = 0; level < levelCount; level++) {
+            spans[level] = span;
+            List<List<Slot<K>>> slots = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                slots.add(new ArrayList<>());
+            }
+            levels.add(slots);
+            span *= wheelSize;
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Planifie l'expiration de la clé. Une échéance déjà passée sera retournée au prochain tick.
+     */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        place(new Slot<>(key, Math.max(ceilTick(deadlineMillis), currentTick + 1)), null);
+    }
+
+    /**
+     * Avance la roue jusqu'à l'instant donné et retourne les clés arrivées à échéance.
+     */
+    public synchronized List<K> advance(long nowMillis) {
+        List<K> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Redescendre d'abord les niveaux supérieurs dont la case commence à ce tick
+            for (int level = spans.length - 1; level > 0; level--) {
+                if (currentTick % spans[level] == 0) {
+                    List<Slot<K>> slot = levels.get(level).get(slotIndex(currentTick, level));
+                    List<Slot<K>> cascading = new ArrayList<>(slot);
+                    slot.clear();
+                    cascading.forEach(entry -> place(entry, expired));
+                }
+            }
+            List<Slot<K>> slot = levels.get(0).get(slotIndex(currentTick, 0));
+            slot.forEach(entry -> expired.add(entry.key));
+            slot.clear();
+        }
+        return expired;
+    }
+
+    private void place(Slot<K> entry, List<K> expired) {
+        long delta = entry.tick - currentTick;
+        if (delta <= 0) {
+            if (expired != null) {
+                expired.add(entry.key);
+            } else {
+                levels.get(0).get(slotIndex(currentTick + 1, 0)).add(entry);
+            }
+            return;
+        }
+
+        int top = spans.length - 1;
+        for (int level = 0; level <= top; level++) {
+            if (delta < spans[level] * wheelSize) {
+                levels.get(level).get(slotIndex(entry.tick, level)).add(entry);
+                return;
+            }
+        }
+        // Au-delà de l'horizon : la case la plus lointaine, l'entrée sera replacée en redescendant
+        long horizonTick = currentTick + spans[top] * wheelSize - 1;
+        levels.get(top).get(slotIndex(horizonTick, top)).add(entry);
+    }
+
+    private int slotIndex(long tick, int level) {
+        return (int) ((tick / spans[level]) % wheelSize);
+    }
+
+    private long ceilTick(long millis) {
+        return (millis + tickMillis - 1) / tickMillis;
+    }
+
+    private record Slot<K>(K key, long tick) {
+    }
+}
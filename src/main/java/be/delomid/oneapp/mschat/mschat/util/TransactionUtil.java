@@ -0,0 +1,25 @@
+package be.delomid.oneapp.mschat.mschat.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TransactionUtil {
+
+    /**
+     * Exécute l'action une fois la transaction courante validée (ou immédiatement hors transaction).
+     * La transaction d'origine est alors terminée : une action qui écrit en base doit ouvrir
+     * sa propre transaction (REQUIRES_NEW).
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
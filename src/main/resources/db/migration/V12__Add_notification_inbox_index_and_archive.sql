@@ -0,0 +1,33 @@
+/*
+  # Notification inbox index and archive table
+
+  1. Changes
+    - Add a composite index on `notifications(resident_id, building_id, created_at DESC, id DESC)`
+      used by the cursor-paginated inbox queries
+    - Create `notifications_archive` to hold read notifications moved out of the hot table
+
+  2. Purpose
+    - Inbox pages are answered by an index range scan instead of sorting every notification of the resident
+    - The nightly archive job keeps `notifications` small for active residents
+*/
+
+CREATE INDEX IF NOT EXISTS idx_notifications_inbox
+    ON notifications(resident_id, building_id, created_at DESC, id DESC);
+
+CREATE TABLE IF NOT EXISTS notifications_archive (
+    id BIGINT PRIMARY KEY,
+    resident_id VARCHAR(255) NOT NULL,
+    building_id VARCHAR(255) NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    body TEXT NOT NULL,
+    type VARCHAR(50) NOT NULL,
+    channel_id BIGINT,
+    vote_id BIGINT,
+    document_id BIGINT,
+    created_at TIMESTAMP NOT NULL,
+    read_at TIMESTAMP,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_notifications_archive_resident
+    ON notifications_archive(resident_id, created_at DESC);
@@ -0,0 +1,32 @@
+/*
+  # Notification unread counters
+
+  1. New Tables
+    - `notification_unread_counters`
+      - `id` (bigint, primary key)
+      - `resident_id` (varchar)
+      - `building_id` (varchar)
+      - `unread_count` (bigint) - number of unread notifications for this resident in this building
+      - `updated_at` (timestamp)
+
+  2. Purpose
+    - Badge counts are read from this table instead of a COUNT over `notifications`
+    - Counters are incremented on notification creation and decremented / reset when notifications are read
+    - Existing unread notifications are counted once to seed the table
+*/
+
+CREATE TABLE IF NOT EXISTS notification_unread_counters (
+    id BIGSERIAL PRIMARY KEY,
+    resident_id VARCHAR(255) NOT NULL,
+    building_id VARCHAR(255) NOT NULL,
+    unread_count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP,
+    CONSTRAINT uk_notification_unread_counter UNIQUE (resident_id, building_id)
+);
+
+INSERT INTO notification_unread_counters (resident_id, building_id, unread_count, updated_at)
+SELECT resident_id, building_id, COUNT(*), CURRENT_TIMESTAMP
+FROM notifications
+WHERE is_read = false
+GROUP BY resident_id, building_id
+ON CONFLICT (resident_id, building_id) DO NOTHING;
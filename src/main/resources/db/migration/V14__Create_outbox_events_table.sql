@@ -0,0 +1,34 @@
+/*
+  # Create outbox_events table
+
+  1. New Tables
+    - `outbox_events`
+      - `id` (bigint, primary key, auto increment)
+      - `event_type` (varchar) - PUSH_NOTIFICATION, WEBSOCKET_TOPIC, WEBSOCKET_USER, ACCOUNT_STATUS_EMAIL, WELCOME_EMAIL
+      - `payload` (text) - JSON payload of the side effect
+      - `status` (varchar) - PENDING, PROCESSING, FAILED
+      - `attempts` (int)
+      - `next_attempt_at` (timestamp) - retry backoff
+      - `locked_until` (timestamp) - lease of the relay node currently delivering the event
+      - `last_error` (text)
+      - `created_at` (timestamp)
+
+  2. Purpose
+    - Side effects are written in the same transaction as the business change
+    - A relay worker claims batches with FOR UPDATE SKIP LOCKED and delivers them outside any transaction
+    - Delivered events are deleted; events exceeding the retry limit stay as FAILED
+*/
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGSERIAL PRIMARY KEY,
+    event_type VARCHAR(50) NOT NULL,
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_until TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_due ON outbox_events(status, next_attempt_at);
@@ -0,0 +1,15 @@
+/*
+  # Add attempt tracking to otp_tokens
+
+  1. Modified Tables
+    - `otp_tokens`
+      - `attempts` (int) - number of verification attempts, capped by app.otp.max-attempts
+
+  2. Notes
+    - Only used when app.otp.store=database; the default in-memory store keeps the counter in memory
+    - otp_code now stores the SHA-256 hash of the code; pending plaintext codes are dropped
+*/
+
+ALTER TABLE otp_tokens ADD COLUMN IF NOT EXISTS attempts INTEGER NOT NULL DEFAULT 0;
+
+DELETE FROM otp_tokens;
@@ -0,0 +1,24 @@
+/*
+  # Create document_search_index table
+
+  1. New Tables
+    - `document_search_index`
+      - `document_id` (bigint, primary key, references documents, on delete cascade)
+      - `search_vector` (tsvector) - weighted filename (A), description (B) and extracted text (C)
+      - `indexed_at` (timestamp)
+
+  2. Indexes
+    - GIN index on `search_vector`
+
+  3. Notes
+    - Text is lower-cased and stripped of accents by the application before to_tsvector('simple', ...)
+    - Existing documents are indexed in the background at application startup
+*/
+
+CREATE TABLE IF NOT EXISTS document_search_index (
+    document_id BIGINT PRIMARY KEY REFERENCES documents(id) ON DELETE CASCADE,
+    search_vector TSVECTOR,
+    indexed_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_document_search_vector ON document_search_index USING GIN (search_vector);
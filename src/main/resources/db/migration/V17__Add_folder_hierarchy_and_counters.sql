@@ -0,0 +1,37 @@
+/*
+  # Add materialized path and aggregate counters to folders
+
+  1. Modified Tables
+    - `folders`
+      - `tree_path` (varchar) - ids from the root, e.g. "/12/45/78/"; subtree = tree_path LIKE '/12/%'
+      - `subfolder_count` (int) - direct subfolders
+      - `document_count` (int) - documents directly in the folder
+      - `total_bytes` (bigint) - size of all documents in the subtree
+
+  2. Indexes
+    - `idx_folders_tree_path` with varchar_pattern_ops so prefix LIKE queries use the index
+
+  3. Notes
+    - Existing rows are backfilled here and, when migrations are not run, at application startup
+*/
+
+ALTER TABLE folders ADD COLUMN IF NOT EXISTS tree_path VARCHAR(1024);
+ALTER TABLE folders ADD COLUMN IF NOT EXISTS subfolder_count INTEGER;
+ALTER TABLE folders ADD COLUMN IF NOT EXISTS document_count INTEGER;
+ALTER TABLE folders ADD COLUMN IF NOT EXISTS total_bytes BIGINT;
+
+WITH RECURSIVE tree AS (
+    SELECT id, '/' || id || '/' AS path FROM folders WHERE parent_folder_id IS NULL
+    UNION ALL
+    SELECT f.id, t.path || f.id || '/' FROM folders f JOIN tree t ON f.parent_folder_id = t.id
+)
+UPDATE folders f SET tree_path = tree.path FROM tree WHERE f.id = tree.id AND f.tree_path IS NULL;
+
+UPDATE folders f SET
+    subfolder_count = (SELECT COUNT(*) FROM folders c WHERE c.parent_folder_id = f.id),
+    document_count = (SELECT COUNT(*) FROM documents d WHERE d.folder_id = f.id),
+    total_bytes = (SELECT COALESCE(SUM(d.file_size), 0) FROM documents d
+                   JOIN folders s ON s.id = d.folder_id WHERE s.tree_path LIKE f.tree_path || '%');
+
+DROP INDEX IF EXISTS idx_folders_tree_path;
+CREATE INDEX idx_folders_tree_path ON folders (tree_path varchar_pattern_ops);
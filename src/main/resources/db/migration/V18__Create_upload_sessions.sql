@@ -0,0 +1,37 @@
+/*
+  # Create upload sessions for resumable chunked uploads
+
+  1. New Tables
+    - `upload_sessions`
+      - `id` (varchar) - upload id returned to the client
+      - `uploaded_by` (varchar) - owner of the session
+      - `target` (varchar) - DOCUMENT or ATTACHMENT
+      - `folder_id`, `building_id`, `description` - document destination
+      - `file_type` (varchar) - IMAGE, AUDIO or FILE for attachments
+      - `original_filename`, `mime_type`, `total_size`
+      - `received_bytes` (bigint) - contiguous bytes persisted in the staging file
+      - `expected_checksum` (varchar) - optional SHA-256 checked on completion
+      - `created_at`, `updated_at`
+
+  2. Indexes
+    - `idx_upload_sessions_updated_at` for the expiry sweep
+*/
+
+CREATE TABLE IF NOT EXISTS upload_sessions (
+    id VARCHAR(36) PRIMARY KEY,
+    uploaded_by VARCHAR(255) NOT NULL,
+    target VARCHAR(20) NOT NULL,
+    folder_id BIGINT,
+    building_id VARCHAR(255),
+    file_type VARCHAR(20),
+    original_filename VARCHAR(255) NOT NULL,
+    mime_type VARCHAR(255),
+    description TEXT,
+    total_size BIGINT NOT NULL,
+    received_bytes BIGINT NOT NULL DEFAULT 0,
+    expected_checksum VARCHAR(64),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_upload_sessions_updated_at ON upload_sessions(updated_at);
@@ -0,0 +1,43 @@
+/*
+  # Create storage usage accounting
+
+  1. New Tables
+    - `storage_usage`
+      - `scope_type` (varchar) - BUILDING or APARTMENT
+      - `scope_id` (varchar) - building or apartment id
+      - `used_bytes` (bigint) - bytes stored for this scope
+      - `file_count` (bigint) - number of files stored for this scope
+      - `updated_at` (timestamp)
+    - `stored_files`
+      - `file_id` (varchar, primary key) - file name in the uploads directory
+      - `building_id`, `apartment_id` - scope the file is charged to
+      - `uploaded_by` (varchar)
+      - `size_bytes` (bigint)
+      - `created_at` (timestamp)
+
+  2. Notes
+    - Documents are already recorded in `documents` (file_size, building_id, apartment_id)
+    - Counters are rebuilt from both ledgers by the reconciliation job, which also runs at startup
+*/
+
+CREATE TABLE IF NOT EXISTS storage_usage (
+    id BIGSERIAL PRIMARY KEY,
+    scope_type VARCHAR(20) NOT NULL,
+    scope_id VARCHAR(255) NOT NULL,
+    used_bytes BIGINT NOT NULL DEFAULT 0,
+    file_count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP,
+    CONSTRAINT uk_storage_usage_scope UNIQUE (scope_type, scope_id)
+);
+
+CREATE TABLE IF NOT EXISTS stored_files (
+    file_id VARCHAR(255) PRIMARY KEY,
+    building_id VARCHAR(255),
+    apartment_id VARCHAR(255),
+    uploaded_by VARCHAR(255),
+    size_bytes BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_stored_files_building ON stored_files(building_id);
+CREATE INDEX IF NOT EXISTS idx_stored_files_apartment ON stored_files(apartment_id);
@@ -0,0 +1,25 @@
+/*
+  # Add incrementally maintained vote tallies
+
+  1. Modified Tables
+    - `votes`
+      - `total_votes` (bigint) - number of selected options across all ballots
+      - `voter_count` (bigint) - number of distinct voters
+    - `vote_options`
+      - `vote_count` (bigint) - number of ballots for this option
+
+  2. Notes
+    - Counters are incremented on each submitted vote and recomputed from `user_votes` when a vote closes
+    - Existing rows are backfilled here and, when migrations are not applied, at application startup
+*/
+
+ALTER TABLE votes ADD COLUMN IF NOT EXISTS total_votes BIGINT DEFAULT 0;
+ALTER TABLE votes ADD COLUMN IF NOT EXISTS voter_count BIGINT DEFAULT 0;
+ALTER TABLE vote_options ADD COLUMN IF NOT EXISTS vote_count BIGINT DEFAULT 0;
+
+UPDATE votes v SET
+    total_votes = (SELECT COUNT(*) FROM user_votes uv WHERE uv.vote_id = v.id),
+    voter_count = (SELECT COUNT(DISTINCT uv.user_id) FROM user_votes uv WHERE uv.vote_id = v.id);
+
+UPDATE vote_options o SET
+    vote_count = (SELECT COUNT(*) FROM user_votes uv WHERE uv.vote_option_id = o.id);
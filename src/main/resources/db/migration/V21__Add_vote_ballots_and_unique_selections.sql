@@ -0,0 +1,48 @@
+/*
+  # Race-free vote submission
+
+  1. New Tables
+    - `vote_ballots`
+      - `vote_id` (bigint), `user_id` (varchar) - one row per voter and vote
+      - `voted_at` (timestamp)
+      - Unique constraint `uk_vote_ballots_vote_user` on (vote_id, user_id)
+
+  2. Modified Tables
+    - `user_votes`: unique constraint `uk_user_votes_vote_user_option` on (vote_id, user_id, vote_option_id)
+
+  3. Notes
+    - Duplicate selections are removed (oldest row kept) before adding the constraint
+    - Submissions insert the ballot with ON CONFLICT DO NOTHING: a concurrent double submission
+      waits on the unique index and is rejected once the first one commits
+*/
+
+DELETE FROM user_votes
+WHERE id NOT IN (
+    SELECT MIN(id)
+    FROM user_votes
+    GROUP BY vote_id, user_id, vote_option_id
+);
+
+DO $$
+BEGIN
+  IF NOT EXISTS (
+    SELECT 1 FROM information_schema.table_constraints
+    WHERE constraint_name = 'uk_user_votes_vote_user_option'
+  ) THEN
+    ALTER TABLE user_votes
+    ADD CONSTRAINT uk_user_votes_vote_user_option
+    UNIQUE (vote_id, user_id, vote_option_id);
+  END IF;
+END $$;
+
+CREATE TABLE IF NOT EXISTS vote_ballots (
+    id BIGSERIAL PRIMARY KEY,
+    vote_id BIGINT NOT NULL,
+    user_id VARCHAR(255) NOT NULL,
+    voted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_vote_ballots_vote_user UNIQUE (vote_id, user_id)
+);
+
+INSERT INTO vote_ballots (vote_id, user_id, voted_at)
+SELECT vote_id, user_id, MIN(voted_at) FROM user_votes GROUP BY vote_id, user_id
+ON CONFLICT (vote_id, user_id) DO NOTHING;
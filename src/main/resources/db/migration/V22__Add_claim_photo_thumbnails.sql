@@ -0,0 +1,12 @@
+/*
+  # Add thumbnails to claim photos
+
+  1. Modified Tables
+    - `claim_photos`
+      - `thumbnail_url` (text, nullable) - reduced JPEG generated in the background after the claim is saved
+
+  2. Notes
+    - Existing photos keep a null thumbnail; clients fall back to `photo_url`
+*/
+
+ALTER TABLE claim_photos ADD COLUMN IF NOT EXISTS thumbnail_url TEXT;
@@ -0,0 +1,15 @@
+/*
+  # Add a priority lane to the outbox
+
+  1. Modified Tables
+    - `outbox_events`
+      - `priority` (integer, default 0) - higher values are delivered first (10 = emergency claim alerts)
+
+  2. Notes
+    - Priority events are relayed as soon as their transaction commits, without waiting for the polling cycle
+*/
+
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS priority INTEGER NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_priority_due
+    ON outbox_events(priority DESC, id) WHERE status IN ('PENDING', 'PROCESSING');
@@ -0,0 +1,16 @@
+/*
+  # Indexes for the paginated claim listing
+
+  1. Indexes
+    - `claims (building_id, status, created_at DESC)` - serves the building claim pages, with or without status/date filters
+    - `claim_photos (claim_id, photo_order)` - loads the photos of a whole page in display order with one query
+
+  2. Notes
+    - Without a status filter every status is passed explicitly, so the leading columns of the index are always usable
+*/
+
+CREATE INDEX IF NOT EXISTS idx_claims_building_status_created
+    ON claims(building_id, status, created_at DESC);
+
+CREATE INDEX IF NOT EXISTS idx_claim_photos_claim_order
+    ON claim_photos(claim_id, photo_order);
@@ -0,0 +1,38 @@
+/*
+  # Claim statistics rollups
+
+  1. Modified Tables
+    - `claims`
+      - `resolved_at` (timestamp, nullable) - first transition to RESOLVED or CLOSED, cleared when the claim is reopened
+
+  2. New Tables
+    - `claim_stats_counters` - number of claims per (building, creation month, status, type);
+      `claim_type = '*'` counts every claim once regardless of its types
+    - `claim_resolution_buckets` - resolution time histogram per building: claim count and cumulated seconds per bucket
+
+  3. Notes
+    - Counters are upserted in the same transaction as the claim change
+    - Existing claims are loaded into the rollups in batches at startup when the counters are empty;
+      resolved claims without resolved_at use their last update date
+*/
+
+ALTER TABLE claims ADD COLUMN IF NOT EXISTS resolved_at TIMESTAMP;
+
+CREATE TABLE IF NOT EXISTS claim_stats_counters (
+    id BIGSERIAL PRIMARY KEY,
+    building_id VARCHAR(255) NOT NULL,
+    month DATE NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    claim_type VARCHAR(50) NOT NULL,
+    claim_count BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT uk_claim_stats_counter UNIQUE (building_id, month, status, claim_type)
+);
+
+CREATE TABLE IF NOT EXISTS claim_resolution_buckets (
+    id BIGSERIAL PRIMARY KEY,
+    building_id VARCHAR(255) NOT NULL,
+    bucket INTEGER NOT NULL,
+    claim_count BIGINT NOT NULL DEFAULT 0,
+    total_seconds BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT uk_claim_resolution_bucket UNIQUE (building_id, bucket)
+);
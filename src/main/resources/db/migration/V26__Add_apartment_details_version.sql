@@ -0,0 +1,12 @@
+/*
+  # Version of the apartment details
+
+  1. Modified Tables
+    - `apartments`
+      - `details_version` (bigint, default 0) - incremented whenever a details section or photo of the apartment changes
+
+  2. Notes
+    - Cached details are served only while their version matches this column, so every instance sees updates
+*/
+
+ALTER TABLE apartments ADD COLUMN IF NOT EXISTS details_version BIGINT DEFAULT 0;
@@ -0,0 +1,16 @@
+/*
+  # Remove plaintext passwords from abandoned outbox events
+
+  1. Modified Tables
+    - `outbox_events`
+      - failed WELCOME_EMAIL events lose their `temporaryPassword` field
+
+  2. Notes
+    - New welcome emails store the temporary password encrypted (`encryptedPassword`)
+    - The relay removes secret fields from the payload when an event fails permanently
+    - Delivered events are deleted, so only FAILED rows can still hold a plaintext password
+*/
+
+UPDATE outbox_events
+SET payload = (payload::jsonb - 'temporaryPassword')::text
+WHERE event_type = 'WELCOME_EMAIL' AND status = 'FAILED' AND payload::jsonb ? 'temporaryPassword';
@@ -0,0 +1,17 @@
+/*
+  # Claim statistics backfill marker
+
+  1. New Tables
+    - `claim_stats_state` - single row (`id = 1`) tracking the rollup initialisation
+      - `backfill_completed_at` (timestamp, nullable) - written after the last backfill batch
+
+  2. Notes
+    - Without the marker, the rollups are truncated and rebuilt from the claims at startup,
+      so an interrupted backfill never leaves partial counters
+    - The rebuild runs under a Postgres advisory lock: only one instance rebuilds at a time
+*/
+
+CREATE TABLE IF NOT EXISTS claim_stats_state (
+    id INTEGER PRIMARY KEY,
+    backfill_completed_at TIMESTAMP
+);
@@ -0,0 +1,14 @@
+/*
+  # Notification inbox index without building
+
+  1. Changes
+    - Add an index on `notifications(resident_id, created_at DESC, id DESC)`
+
+  2. Purpose
+    - Inbox pages across all buildings (`findInbox`, `findInboxBefore`) are answered by an
+      index range scan; `idx_notifications_inbox` starts with `building_id` after the resident
+      and cannot provide that ordering
+*/
+
+CREATE INDEX IF NOT EXISTS idx_notifications_inbox_all_buildings
+    ON notifications(resident_id, created_at DESC, id DESC);
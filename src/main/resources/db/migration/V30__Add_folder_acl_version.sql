@@ -0,0 +1,14 @@
+/*
+  # Version of the folder permissions
+
+  1. Modified Tables
+    - `folders`
+      - `acl_version` (bigint, default 0) - incremented whenever the share type or permissions of the folder change
+
+  2. Notes
+    - The in-memory ACL index compares its entry with the version read alongside the folder and reloads
+      stale entries, so permission changes made on another instance apply immediately
+    - A reload never replaces an entry with a newer version
+*/
+
+ALTER TABLE folders ADD COLUMN IF NOT EXISTS acl_version BIGINT DEFAULT 0;
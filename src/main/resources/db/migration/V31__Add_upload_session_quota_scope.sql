@@ -0,0 +1,20 @@
+/*
+  # Quota scope of open upload sessions
+
+  1. Modified Tables
+    - `upload_sessions`
+      - `quota_building_id` (varchar) - building charged for the staging file while the session is open
+      - `quota_apartment_id` (varchar) - apartment charged for the staging file while the session is open
+
+  2. Indexes
+    - `idx_upload_sessions_uploaded_by` to count the open sessions of a user
+
+  3. Notes
+    - The announced size of open sessions is added to the used space when a new upload is initialised
+    - The session stops counting once it is completed, aborted or expired (the row is deleted)
+*/
+
+ALTER TABLE upload_sessions ADD COLUMN IF NOT EXISTS quota_building_id VARCHAR(255);
+ALTER TABLE upload_sessions ADD COLUMN IF NOT EXISTS quota_apartment_id VARCHAR(255);
+
+CREATE INDEX IF NOT EXISTS idx_upload_sessions_uploaded_by ON upload_sessions(uploaded_by);
@@ -0,0 +1,18 @@
+/*
+  # Claim statistics backfill progress
+
+  1. Modified Tables
+    - `claim_stats_state`
+      - `backfill_cursor` (bigint, nullable) - last claim id read by the backfill, advanced in each batch transaction
+      - `backfill_max_id` (bigint, nullable) - highest claim id covered by the backfill
+
+  2. Notes
+    - Every instance reads the progress from this row: an incremental update of a claim in
+      ]backfill_cursor, backfill_max_id] is skipped, since the backfill will count its final state
+    - Batches hold an exclusive advisory lock and incremental updates a shared one, so a claim is
+      never read by a batch while its update is uncommitted
+    - An interrupted backfill resumes after `backfill_cursor` instead of starting over
+*/
+
+ALTER TABLE claim_stats_state ADD COLUMN IF NOT EXISTS backfill_cursor BIGINT;
+ALTER TABLE claim_stats_state ADD COLUMN IF NOT EXISTS backfill_max_id BIGINT;
@@ -0,0 +1,117 @@
+package be.delomid.oneapp.mschat.mschat.repository;
+
+import be.delomid.oneapp.mschat.mschat.model.Building;
+import be.delomid.oneapp.mschat.mschat.model.BuildingPhoto;
+import be.delomid.oneapp.mschat.mschat.service.PhotoOrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Les requêtes de réordonnancement utilisent array_position / string_to_array : elles
+ * tournent sur la base Postgres configurée, chaque test est annulé en fin d'exécution.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PhotoOrderRepositoryTests {
+
+    @Autowired
+    private BuildingPhotoRepository buildingPhotoRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final PhotoOrderService photoOrderService = new PhotoOrderService();
+
+    @Test
+    void applyPhotoOrderWritesTheRankOfEachId() {
+        Building building = persistBuilding();
+        BuildingPhoto first = persistPhoto(building, 0);
+        BuildingPhoto second = persistPhoto(building, 1);
+        BuildingPhoto third = persistPhoto(building, 2);
+        List<Long> order = List.of(third.getId(), first.getId(), second.getId());
+
+        int updated = buildingPhotoRepository.applyPhotoOrder(building.getBuildingId(), order,
+                third.getId() + "," + first.getId() + "," + second.getId());
+        entityManager.clear();
+
+        assertThat(updated).isEqualTo(3);
+        assertThat(buildingPhotoRepository.findByBuildingBuildingIdOrderByPhotoOrderAsc(building.getBuildingId()))
+                .extracting(BuildingPhoto::getId, BuildingPhoto::getPhotoOrder)
+                .containsExactly(tuple(third.getId(), 0), tuple(first.getId(), 1), tuple(second.getId(), 2));
+    }
+
+    @Test
+    void applyPhotoOrderIgnoresPhotosOfAnotherOwner() {
+        Building building = persistBuilding();
+        Building other = persistBuilding();
+        BuildingPhoto own = persistPhoto(building, 5);
+        BuildingPhoto foreign = persistPhoto(other, 5);
+
+        int updated = buildingPhotoRepository.applyPhotoOrder(building.getBuildingId(),
+                List.of(foreign.getId(), own.getId()), foreign.getId() + "," + own.getId());
+        entityManager.clear();
+
+        assertThat(updated).isEqualTo(1);
+        assertThat(buildingPhotoRepository.findById(own.getId())).get()
+                .extracting(BuildingPhoto::getPhotoOrder).isEqualTo(1);
+        assertThat(buildingPhotoRepository.findById(foreign.getId())).get()
+                .extracting(BuildingPhoto::getPhotoOrder).isEqualTo(5);
+    }
+
+    @Test
+    void reorderAppliesTheRequestedOrder() {
+        Building building = persistBuilding();
+        BuildingPhoto first = persistPhoto(building, 0);
+        BuildingPhoto second = persistPhoto(building, 1);
+
+        photoOrderService.reorder(buildingPhotoRepository, building.getBuildingId(),
+                List.of(second.getId(), first.getId()));
+        entityManager.clear();
+
+        assertThat(buildingPhotoRepository.findByBuildingBuildingIdOrderByPhotoOrderAsc(building.getBuildingId()))
+                .extracting(BuildingPhoto::getId)
+                .containsExactly(second.getId(), first.getId());
+    }
+
+    @Test
+    void reorderRejectsNullAndForeignIds() {
+        Building building = persistBuilding();
+        BuildingPhoto own = persistPhoto(building, 0);
+        BuildingPhoto foreign = persistPhoto(persistBuilding(), 0);
+
+        assertThatThrownBy(() -> photoOrderService.reorder(buildingPhotoRepository, building.getBuildingId(),
+                Arrays.asList(own.getId(), null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> photoOrderService.reorder(buildingPhotoRepository, building.getBuildingId(),
+                List.of(own.getId(), foreign.getId())))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Building persistBuilding() {
+        return entityManager.persist(Building.builder()
+                .buildingId("test-" + UUID.randomUUID())
+                .buildingLabel("Immeuble de test")
+                .build());
+    }
+
+    private BuildingPhoto persistPhoto(Building building, int order) {
+        BuildingPhoto photo = entityManager.persist(BuildingPhoto.builder()
+                .building(building)
+                .photoUrl("http://localhost/files/" + UUID.randomUUID() + ".jpg")
+                .photoOrder(order)
+                .build());
+        entityManager.flush();
+        return photo;
+    }
+}
@@ -0,0 +1,233 @@
+package be.delomid.oneapp.mschat.mschat.service;
+
+import be.delomid.oneapp.mschat.mschat.exception.TooManyRequestsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Les envois passent par un vrai serveur SMTP local (port éphémère) : on vérifie les
+ * sessions ouvertes et les messages réellement transmis.
+ */
+class EmailServiceTests {
+
+    private SmtpServer smtpServer;
+    private JavaMailSenderImpl mailSender;
+
+    @BeforeEach
+    void startSmtpServer() throws IOException {
+        smtpServer = new SmtpServer();
+        smtpServer.start();
+
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(smtpServer.getPort());
+        Properties properties = new Properties();
+        properties.put("mail.smtp.connectiontimeout", "5000");
+        properties.put("mail.smtp.timeout", "5000");
+        mailSender.setJavaMailProperties(properties);
+    }
+
+    @AfterEach
+    void stopSmtpServer() throws IOException {
+        smtpServer.stop();
+    }
+
+    @Test
+    void sendBatchUsesOneSessionForAllMessages() {
+        EmailService emailService = new EmailService(mailSender);
+
+        List<SimpleMailMessage> failed = emailService.sendBatch(List.of(
+                message("a@example.com"), message("b@example.com"), message("c@example.com")));
+
+        assertThat(failed).isEmpty();
+        assertThat(smtpServer.sessions).hasSize(1);
+        assertThat(smtpServer.deliveredRecipients()).containsExactly("a@example.com", "b@example.com", "c@example.com");
+        assertThat(smtpServer.delivered).allSatisfy(delivered -> {
+            assertThat(delivered.data).contains("Subject: Test");
+            assertThat(delivered.data).contains("Contenu");
+        });
+    }
+
+    @Test
+    void sendBatchReturnsRejectedMessages() {
+        smtpServer.rejected.add("b@example.com");
+        EmailService emailService = new EmailService(mailSender);
+        SimpleMailMessage rejected = message("b@example.com");
+
+        List<SimpleMailMessage> failed = emailService.sendBatch(List.of(
+                message("a@example.com"), rejected, message("c@example.com")));
+
+        assertThat(failed).containsExactly(rejected);
+        assertThat(smtpServer.sessions).hasSize(1);
+        assertThat(smtpServer.deliveredRecipients()).containsExactly("a@example.com", "c@example.com");
+    }
+
+    @Test
+    void dispatcherRetriesTransientFailuresOnce() {
+        smtpServer.rejectedOnce.add("b@example.com");
+        EmailDispatchService dispatchService = new EmailDispatchService(new EmailService(mailSender), 1, 10, 10);
+
+        List<SimpleMailMessage> abandoned = dispatchService.dispatchBatch(List.of(
+                message("a@example.com"), message("b@example.com")));
+
+        assertThat(abandoned).isEmpty();
+        assertThat(smtpServer.sessions).hasSize(2);
+        assertThat(smtpServer.deliveredRecipients()).containsExactly("a@example.com", "b@example.com");
+        assertThat(smtpServer.delivered).extracting(delivered -> delivered.session).containsExactly(1, 2);
+    }
+
+    @Test
+    void dispatcherAbandonsMessagesStillRejectedAfterRetry() {
+        smtpServer.rejected.add("b@example.com");
+        EmailDispatchService dispatchService = new EmailDispatchService(new EmailService(mailSender), 1, 10, 10);
+        SimpleMailMessage rejected = message("b@example.com");
+
+        List<SimpleMailMessage> abandoned = dispatchService.dispatchBatch(List.of(message("a@example.com"), rejected));
+
+        assertThat(abandoned).containsExactly(rejected);
+        assertThat(smtpServer.sessions).hasSize(2);
+        assertThat(smtpServer.deliveredRecipients()).containsExactly("a@example.com");
+    }
+
+    @Test
+    void submitRejectsMessagesWhenTheQueueIsFull() {
+        EmailDispatchService dispatchService = new EmailDispatchService(new EmailService(mailSender), 1, 1, 10);
+
+        dispatchService.submitAfterCommit(message("a@example.com"));
+
+        assertThatThrownBy(() -> dispatchService.submitAfterCommit(message("b@example.com")))
+                .isInstanceOf(TooManyRequestsException.class);
+        assertThat(dispatchService.getQueueSize()).isEqualTo(1);
+    }
+
+    private static SimpleMailMessage message(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@example.com");
+        message.setTo(to);
+        message.setSubject("Test");
+        message.setText("Contenu");
+        return message;
+    }
+
+    private record DeliveredMessage(int session, String recipient, String data) {
+    }
+
+    /**
+     * Serveur SMTP minimal : une connexion à la fois, refus des destinataires configurés (550).
+     */
+    private static class SmtpServer {
+
+        private final ServerSocket serverSocket;
+        private final List<Integer> sessions = new CopyOnWriteArrayList<>();
+        private final List<DeliveredMessage> delivered = new CopyOnWriteArrayList<>();
+        private final Set<String> rejected = ConcurrentHashMap.newKeySet();
+        private final Set<String> rejectedOnce = ConcurrentHashMap.newKeySet();
+        private Thread thread;
+
+        private SmtpServer() throws IOException {
+            this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        }
+
+        private int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void start() {
+            thread = new Thread(this::acceptLoop, "smtp-test-server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void stop() throws IOException {
+            serverSocket.close();
+        }
+
+        private List<String> deliveredRecipients() {
+            return delivered.stream().map(DeliveredMessage::recipient).toList();
+        }
+
+        private void acceptLoop() {
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept()) {
+                    sessions.add(sessions.size() + 1);
+                    handle(sessions.size(), socket);
+                } catch (IOException e) {
+                    // Serveur arrêté ou client déconnecté
+                }
+            }
+        }
+
+        private void handle(int session, Socket socket) throws IOException {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+            reply(out, "220 localhost ESMTP test");
+
+            List<String> recipients = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase();
+                if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+                    reply(out, "250 localhost");
+                } else if (command.startsWith("MAIL FROM")) {
+                    recipients.clear();
+                    reply(out, "250 OK");
+                } else if (command.startsWith("RCPT TO")) {
+                    String recipient = line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+                    if (rejected.contains(recipient) || rejectedOnce.remove(recipient)) {
+                        reply(out, "550 Mailbox unavailable: " + recipient);
+                    } else {
+                        recipients.add(recipient);
+                        reply(out, "250 OK");
+                    }
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    StringBuilder data = new StringBuilder();
+                    while ((line = in.readLine()) != null && !line.equals(".")) {
+                        data.append(line).append('\n');
+                    }
+                    for (String recipient : recipients) {
+                        delivered.add(new DeliveredMessage(session, recipient, data.toString()));
+                    }
+                    reply(out, "250 OK queued");
+                } else if (command.equals("RSET")) {
+                    recipients.clear();
+                    reply(out, "250 OK");
+                } else if (command.equals("NOOP")) {
+                    reply(out, "250 OK");
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 Bye");
+                    return;
+                } else {
+                    reply(out, "502 Command not implemented");
+                }
+            }
+        }
+
+        private static void reply(Writer out, String line) throws IOException {
+            out.write(line + "\r\n");
+            out.flush();
+        }
+    }
+}